@@ -1,5 +1,7 @@
 package com.dkd.web.controller.system;
 
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 import javax.servlet.http.HttpServletResponse;
@@ -81,7 +83,12 @@ public class SysUserController extends BaseController
     public AjaxResult importData(MultipartFile file, boolean updateSupport) throws Exception
     {
         ExcelUtil<SysUser> util = new ExcelUtil<SysUser>(SysUser.class);
-        List<SysUser> userList = util.importExcel(file.getInputStream());
+        // 逐行读取，不在内存中保留整个工作簿
+        List<SysUser> userList = new ArrayList<SysUser>();
+        try (InputStream is = file.getInputStream())
+        {
+            util.importExcel(StringUtils.EMPTY, is, 0, userList::add);
+        }
         String operName = getUsername();
         String message = userService.importUser(userList, updateSupport, operName);
         return success(message);
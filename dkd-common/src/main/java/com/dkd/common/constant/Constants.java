@@ -163,7 +163,7 @@ public class Constants
     /**
      * 定时任务白名单配置（仅允许访问的包名，如其他需要可以自行添加）
      */
-    public static final String[] JOB_WHITELIST_STR = { "com.dkd.quartz.task" };
+    public static final String[] JOB_WHITELIST_STR = { "com.dkd.quartz.task", "com.dkd.manage.task" };
 
     /**
      * 定时任务违规的字符
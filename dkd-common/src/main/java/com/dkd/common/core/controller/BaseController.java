@@ -3,6 +3,8 @@ package com.dkd.common.core.controller;
 import java.beans.PropertyEditorSupport;
 import java.util.Date;
 import java.util.List;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.web.bind.WebDataBinder;
@@ -11,7 +13,9 @@ import com.github.pagehelper.PageHelper;
 import com.github.pagehelper.PageInfo;
 import com.dkd.common.constant.HttpStatus;
 import com.dkd.common.core.domain.AjaxResult;
+import com.dkd.common.core.domain.BaseEntity;
 import com.dkd.common.core.domain.model.LoginUser;
+import com.dkd.common.core.page.PageCursor;
 import com.dkd.common.core.page.PageDomain;
 import com.dkd.common.core.page.TableDataInfo;
 import com.dkd.common.core.page.TableSupport;
@@ -55,6 +59,30 @@ public class BaseController
         PageUtils.startPage();
     }
 
+    /**
+     * 设置游标分页数据，续页条件写入查询对象的params（cursorMode/cursorTime/cursorId），
+     * 由mapper按 create_time desc, id desc 排序并追加续页条件
+     */
+    protected void startCursorPage(BaseEntity entity)
+    {
+        PageCursor cursor = PageCursor.decode(TableSupport.buildPageRequest().getCursor());
+        entity.getParams().put("cursorMode", true);
+        if (cursor != null)
+        {
+            entity.getParams().put("cursorTime", cursor.getTime());
+            entity.getParams().put("cursorId", cursor.getId());
+        }
+        PageUtils.startCursorPage();
+    }
+
+    /**
+     * 是否游标分页
+     */
+    protected boolean isCursorPage()
+    {
+        return TableSupport.buildPageRequest().isCursorPage();
+    }
+
     /**
      * 设置请求排序数据
      */
@@ -90,6 +118,49 @@ public class BaseController
         return rspData;
     }
 
+    /**
+     * 响应游标分页数据
+     * 
+     * @param list 多取一行的查询结果
+     * @param timeGetter 创建时间
+     * @param idGetter 主键
+     * @param estimator 估算总数（countMode=estimate时调用）
+     */
+    protected <T> TableDataInfo getCursorDataTable(List<T> list, Function<T, Date> timeGetter, Function<T, Long> idGetter,
+            LongSupplier estimator)
+    {
+        PageDomain pageDomain = TableSupport.buildPageRequest();
+        int pageSize = pageDomain.getPageSize();
+        TableDataInfo rspData = new TableDataInfo();
+        rspData.setCode(HttpStatus.SUCCESS);
+        rspData.setMsg("查询成功");
+        if (list.size() > pageSize)
+        {
+            list = list.subList(0, pageSize);
+            T last = list.get(pageSize - 1);
+            rspData.setNextCursor(PageCursor.encode(timeGetter.apply(last), idGetter.apply(last)));
+        }
+        rspData.setRows(list);
+        rspData.setTotal(pageDomain.isEstimateCount() ? estimator.getAsLong() : -1);
+        return rspData;
+    }
+
+    /**
+     * 响应分页数据，countMode=estimate时以估算值代替总数
+     * 
+     * @param list 查询结果
+     * @param estimator 估算总数
+     */
+    protected TableDataInfo getDataTable(List<?> list, LongSupplier estimator)
+    {
+        TableDataInfo rspData = getDataTable(list);
+        if (TableSupport.buildPageRequest().isEstimateCount())
+        {
+            rspData.setTotal(estimator.getAsLong());
+        }
+        return rspData;
+    }
+
     /**
      * 返回成功
      */
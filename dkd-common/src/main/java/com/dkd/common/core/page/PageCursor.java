@@ -0,0 +1,79 @@
+package com.dkd.common.core.page;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+import com.dkd.common.exception.ServiceException;
+import com.dkd.common.utils.StringUtils;
+
+/**
+ * 游标分页的续页标记
+ * 
+ * 由最后一行的(创建时间, 主键)编码为不透明字符串返回给前端，下一页原样带回，
+ * 查询条件变为 (create_time, id) &lt; (cursorTime, cursorId)，不再依赖 offset。
+ * 
+ * @author ruoyi
+ */
+public class PageCursor
+{
+    private static final String SEPARATOR = ":";
+
+    /** 最后一行的创建时间 */
+    private final Date time;
+
+    /** 最后一行的主键 */
+    private final Long id;
+
+    public PageCursor(Date time, Long id)
+    {
+        this.time = time;
+        this.id = id;
+    }
+
+    public Date getTime()
+    {
+        return time;
+    }
+
+    public Long getId()
+    {
+        return id;
+    }
+
+    /**
+     * 编码续页标记
+     * 
+     * @param time 最后一行的创建时间
+     * @param id 最后一行的主键
+     * @return 续页标记
+     */
+    public static String encode(Date time, Long id)
+    {
+        String raw = time.getTime() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析续页标记
+     * 
+     * @param cursor 续页标记
+     * @return 游标，为空表示第一页
+     */
+    public static PageCursor decode(String cursor)
+    {
+        if (StringUtils.isEmpty(cursor))
+        {
+            return null;
+        }
+        try
+        {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split(SEPARATOR);
+            return new PageCursor(new Date(Long.parseLong(parts[0])), Long.valueOf(parts[1]));
+        }
+        catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e)
+        {
+            throw new ServiceException("分页游标无效，请从第一页重新查询");
+        }
+    }
+}
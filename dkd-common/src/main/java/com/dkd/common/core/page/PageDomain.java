@@ -9,6 +9,15 @@ import com.dkd.common.utils.StringUtils;
  */
 public class PageDomain
 {
+    /** 精确统计总数 */
+    public static final String COUNT_EXACT = "exact";
+
+    /** 估算总数 */
+    public static final String COUNT_ESTIMATE = "estimate";
+
+    /** 不统计总数 */
+    public static final String COUNT_NONE = "none";
+
     /** 当前记录起始索引 */
     private Integer pageNum;
 
@@ -24,6 +33,12 @@ public class PageDomain
     /** 分页参数合理化 */
     private Boolean reasonable = true;
 
+    /** 游标分页的续页标记（传空串表示游标分页的第一页，不传则为普通分页） */
+    private String cursor;
+
+    /** 总数统计方式 exact精确 estimate估算 none不统计 */
+    private String countMode;
+
     public String getOrderBy()
     {
         if (StringUtils.isEmpty(orderByColumn))
@@ -98,4 +113,48 @@ public class PageDomain
     {
         this.reasonable = reasonable;
     }
+
+    public String getCursor()
+    {
+        return cursor;
+    }
+
+    public void setCursor(String cursor)
+    {
+        this.cursor = cursor;
+    }
+
+    public String getCountMode()
+    {
+        return countMode;
+    }
+
+    public void setCountMode(String countMode)
+    {
+        this.countMode = countMode;
+    }
+
+    /**
+     * 是否游标分页
+     */
+    public boolean isCursorPage()
+    {
+        return cursor != null;
+    }
+
+    /**
+     * 是否精确统计总数（游标分页不做精确统计）
+     */
+    public boolean isExactCount()
+    {
+        return !isCursorPage() && (StringUtils.isEmpty(countMode) || COUNT_EXACT.equals(countMode));
+    }
+
+    /**
+     * 是否估算总数
+     */
+    public boolean isEstimateCount()
+    {
+        return COUNT_ESTIMATE.equals(countMode);
+    }
 }
@@ -2,6 +2,7 @@ package com.dkd.common.core.page;
 
 import java.io.Serializable;
 import java.util.List;
+import com.fasterxml.jackson.annotation.JsonInclude;
 
 /**
  * 表格分页数据对象
@@ -24,6 +25,10 @@ public class TableDataInfo implements Serializable
     /** 消息内容 */
     private String msg;
 
+    /** 游标分页的下一页标记，为空表示没有下一页 */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String nextCursor;
+
     /**
      * 表格数据对象
      */
@@ -82,4 +87,14 @@ public class TableDataInfo implements Serializable
     {
         this.msg = msg;
     }
+
+    public String getNextCursor()
+    {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor)
+    {
+        this.nextCursor = nextCursor;
+    }
 }
@@ -35,6 +35,16 @@ public class TableSupport
      */
     public static final String REASONABLE = "reasonable";
 
+    /**
+     * 游标分页的续页标记
+     */
+    public static final String CURSOR = "cursor";
+
+    /**
+     * 总数统计方式 exact/estimate/none
+     */
+    public static final String COUNT_MODE = "countMode";
+
     /**
      * 封装分页对象
      */
@@ -46,6 +56,8 @@ public class TableSupport
         pageDomain.setOrderByColumn(ServletUtils.getParameter(ORDER_BY_COLUMN));
         pageDomain.setIsAsc(ServletUtils.getParameter(IS_ASC));
         pageDomain.setReasonable(ServletUtils.getParameterToBool(REASONABLE));
+        pageDomain.setCursor(ServletUtils.getParameter(CURSOR));
+        pageDomain.setCountMode(ServletUtils.getParameter(COUNT_MODE));
         return pageDomain;
     }
 
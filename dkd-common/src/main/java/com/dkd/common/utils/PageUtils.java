@@ -22,7 +22,17 @@ public class PageUtils extends PageHelper
         Integer pageSize = pageDomain.getPageSize();
         String orderBy = SqlUtil.escapeOrderBySql(pageDomain.getOrderBy());
         Boolean reasonable = pageDomain.getReasonable();
-        PageHelper.startPage(pageNum, pageSize, orderBy).setReasonable(reasonable);
+        PageHelper.startPage(pageNum, pageSize, orderBy).setReasonable(reasonable).setCount(pageDomain.isExactCount());
+    }
+
+    /**
+     * 设置游标分页数据（多取一行用于判断是否还有下一页，不执行count）
+     */
+    public static PageDomain startCursorPage()
+    {
+        PageDomain pageDomain = TableSupport.buildPageRequest();
+        PageHelper.startPage(1, pageDomain.getPageSize() + 1, false);
+        return pageDomain;
     }
 
     /**
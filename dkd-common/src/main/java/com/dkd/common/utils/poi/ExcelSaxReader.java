@@ -0,0 +1,351 @@
+package com.dkd.common.utils.poi;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.xml.parsers.SAXParserFactory;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.apache.poi.xssf.usermodel.XSSFRelation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+import com.dkd.common.utils.StringUtils;
+
+/**
+ * xlsx流式读取（SAX）
+ *
+ * 不构建工作簿对象模型，逐行解析sheet的XML，每行回调一次"列号 -> 单元格值"，内存占用与行数无关（共享字符串表除外）。
+ * 单元格值的类型与{@link ExcelUtil#getCellValue}一致：日期格式的数字为Date，小数为BigDecimal，整数为不带小数点的字符串，
+ * 文本为String，布尔为Boolean。不读取图片；上传的流先落盘为临时文件，避免解压后的整个压缩包驻留内存。
+ *
+ * @author ruoyi
+ */
+public class ExcelSaxReader
+{
+    private static final Logger log = LoggerFactory.getLogger(ExcelSaxReader.class);
+
+    /**
+     * 行回调
+     */
+    public interface RowHandler
+    {
+        /**
+         * 处理一行
+         *
+         * @param rowNum 行下标（从0开始）
+         * @param cells 列下标 -> 单元格值，不含空单元格
+         */
+        void handle(int rowNum, Map<Integer, Object> cells) throws Exception;
+    }
+
+    private ExcelSaxReader()
+    {
+    }
+
+    /**
+     * 逐行读取xlsx
+     *
+     * @param is 输入流
+     * @param sheetName 工作表名称，为空时读取第一个工作表
+     * @param handler 行回调，非空行才回调
+     */
+    public static void read(InputStream is, String sheetName, RowHandler handler) throws Exception
+    {
+        File file = File.createTempFile("excel-import-", ".xlsx");
+        try
+        {
+            Files.copy(is, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ);
+            try
+            {
+                XSSFReader reader = new XSSFReader(pkg);
+                List<String> sharedStrings = readSharedStrings(pkg);
+                StylesTable styles = reader.getStylesTable();
+                XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+                while (sheets.hasNext())
+                {
+                    try (InputStream sheet = sheets.next())
+                    {
+                        if (StringUtils.isEmpty(sheetName) || sheetName.equals(sheets.getSheetName()))
+                        {
+                            parse(sheet, new SheetHandler(sharedStrings, styles, handler));
+                            return;
+                        }
+                    }
+                }
+                throw new IOException("文件sheet不存在");
+            }
+            finally
+            {
+                pkg.revert();
+            }
+        }
+        finally
+        {
+            if (!file.delete())
+            {
+                log.warn("临时文件删除失败：{}", file.getAbsolutePath());
+            }
+        }
+    }
+
+    /**
+     * 读取共享字符串表（富文本只取文字，忽略拼音注音）
+     */
+    private static List<String> readSharedStrings(OPCPackage pkg) throws Exception
+    {
+        List<String> strings = new ArrayList<>();
+        List<PackagePart> parts = pkg.getPartsByContentType(XSSFRelation.SHARED_STRINGS.getContentType());
+        if (parts.isEmpty())
+        {
+            return strings;
+        }
+        try (InputStream in = parts.get(0).getInputStream())
+        {
+            parse(in, new DefaultHandler()
+            {
+                private final StringBuilder text = new StringBuilder();
+
+                private boolean inText;
+
+                private boolean inPhonetic;
+
+                @Override
+                public void startElement(String uri, String localName, String qName, Attributes attributes)
+                {
+                    if ("si".equals(localName))
+                    {
+                        text.setLength(0);
+                    }
+                    else if ("rPh".equals(localName))
+                    {
+                        inPhonetic = true;
+                    }
+                    else if ("t".equals(localName))
+                    {
+                        inText = !inPhonetic;
+                    }
+                }
+
+                @Override
+                public void endElement(String uri, String localName, String qName)
+                {
+                    if ("si".equals(localName))
+                    {
+                        strings.add(text.toString());
+                    }
+                    else if ("rPh".equals(localName))
+                    {
+                        inPhonetic = false;
+                    }
+                    else if ("t".equals(localName))
+                    {
+                        inText = false;
+                    }
+                }
+
+                @Override
+                public void characters(char[] ch, int start, int length)
+                {
+                    if (inText)
+                    {
+                        text.append(ch, start, length);
+                    }
+                }
+            });
+        }
+        return strings;
+    }
+
+    private static void parse(InputStream in, ContentHandler contentHandler) throws Exception
+    {
+        SAXParserFactory factory = SAXParserFactory.newInstance();
+        factory.setNamespaceAware(true);
+        factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+        XMLReader xmlReader = factory.newSAXParser().getXMLReader();
+        xmlReader.setContentHandler(contentHandler);
+        try
+        {
+            xmlReader.parse(new InputSource(in));
+        }
+        catch (SAXException e)
+        {
+            // 行回调抛出的异常原样抛出
+            if (e.getException() != null)
+            {
+                throw e.getException();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 列字母转下标，如A -> 0，AB -> 27
+     */
+    private static int columnIndex(String cellRef)
+    {
+        int column = 0;
+        for (int i = 0; i < cellRef.length(); i++)
+        {
+            char c = cellRef.charAt(i);
+            if (c < 'A' || c > 'Z')
+            {
+                break;
+            }
+            column = column * 26 + (c - 'A' + 1);
+        }
+        return column - 1;
+    }
+
+    /**
+     * sheet解析：sheetData > row > c > v | is > t
+     */
+    private static class SheetHandler extends DefaultHandler
+    {
+        private final List<String> sharedStrings;
+
+        private final StylesTable styles;
+
+        private final RowHandler handler;
+
+        private final StringBuilder text = new StringBuilder();
+
+        private Map<Integer, Object> cells = new HashMap<>();
+
+        private int rowNum = -1;
+
+        private int column = -1;
+
+        private String cellType;
+
+        private int styleIndex;
+
+        private boolean inValue;
+
+        SheetHandler(List<String> sharedStrings, StylesTable styles, RowHandler handler)
+        {
+            this.sharedStrings = sharedStrings;
+            this.styles = styles;
+            this.handler = handler;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes)
+        {
+            if ("row".equals(localName))
+            {
+                String r = attributes.getValue("r");
+                rowNum = r == null ? rowNum + 1 : Integer.parseInt(r) - 1;
+                column = -1;
+                cells = new HashMap<>();
+            }
+            else if ("c".equals(localName))
+            {
+                String r = attributes.getValue("r");
+                column = r == null ? column + 1 : columnIndex(r);
+                cellType = attributes.getValue("t");
+                String s = attributes.getValue("s");
+                styleIndex = s == null ? 0 : Integer.parseInt(s);
+                text.setLength(0);
+            }
+            else if ("v".equals(localName) || ("t".equals(localName) && "inlineStr".equals(cellType)))
+            {
+                inValue = true;
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException
+        {
+            if ("v".equals(localName) || "t".equals(localName))
+            {
+                inValue = false;
+            }
+            else if ("c".equals(localName))
+            {
+                if (text.length() > 0)
+                {
+                    cells.put(column, value(text.toString()));
+                }
+            }
+            else if ("row".equals(localName) && !cells.isEmpty())
+            {
+                try
+                {
+                    handler.handle(rowNum, cells);
+                }
+                catch (Exception e)
+                {
+                    throw new SAXException(e);
+                }
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length)
+        {
+            if (inValue)
+            {
+                text.append(ch, start, length);
+            }
+        }
+
+        /**
+         * 按单元格类型转换，与整表读取的取值方式一致
+         */
+        private Object value(String raw)
+        {
+            if ("s".equals(cellType))
+            {
+                return sharedStrings.get(Integer.parseInt(raw.trim()));
+            }
+            if ("inlineStr".equals(cellType) || "str".equals(cellType) || "e".equals(cellType))
+            {
+                return raw;
+            }
+            if ("b".equals(cellType))
+            {
+                return "1".equals(raw.trim());
+            }
+            double number = Double.parseDouble(raw);
+            if (isDateFormatted(number))
+            {
+                return DateUtil.getJavaDate(number);
+            }
+            if (number % 1 != 0)
+            {
+                return new BigDecimal(Double.toString(number));
+            }
+            return new DecimalFormat("0").format(number);
+        }
+
+        private boolean isDateFormatted(double number)
+        {
+            if (styles == null || styleIndex >= styles.getNumCellStyles() || !DateUtil.isValidExcelDate(number))
+            {
+                return false;
+            }
+            XSSFCellStyle style = styles.getStyleAt(styleIndex);
+            return style != null && DateUtil.isADateFormat(style.getDataFormat(), style.getDataFormatString());
+        }
+    }
+}
@@ -22,10 +22,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import javax.servlet.http.HttpServletResponse;
 
 import com.alibaba.excel.EasyExcel;
+import com.alibaba.excel.read.listener.ReadListener;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.RegExUtils;
 import org.apache.commons.lang3.reflect.FieldUtils;
@@ -36,6 +38,7 @@ import org.apache.poi.hssf.usermodel.HSSFShape;
 import org.apache.poi.hssf.usermodel.HSSFSheet;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.apache.poi.ooxml.POIXMLDocumentPart;
+import org.apache.poi.poifs.filesystem.FileMagic;
 import org.apache.poi.ss.usermodel.BorderStyle;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellStyle;
@@ -201,6 +204,11 @@ public class ExcelUtil<T>
      */
     public String[] excludeFields;
 
+    /**
+     * 流式导入时是否导入图片列
+     */
+    private boolean importImages = true;
+
     public ExcelUtil(Class<T> clazz)
     {
         this.clazz = clazz;
@@ -373,17 +381,7 @@ public class ExcelUtil<T>
                 }
             }
             // 有数据时才处理 得到类的所有field.
-            List<Object[]> fields = this.getFields();
-            Map<Integer, Object[]> fieldsMap = new HashMap<Integer, Object[]>();
-            for (Object[] objects : fields)
-            {
-                Excel attr = (Excel) objects[1];
-                Integer column = cellMap.get(attr.name());
-                if (column != null)
-                {
-                    fieldsMap.put(column, objects);
-                }
-            }
+            Map<Integer, Object[]> fieldsMap = getImportFieldsMap(cellMap);
             for (int i = titleNum + 1; i <= rows; i++)
             {
                 // 从第2行开始取数据,默认第一行是表头.
@@ -399,101 +397,25 @@ public class ExcelUtil<T>
                     Object val = this.getCellValue(row, entry.getKey());
 
                     // 如果不存在实例则新建.
-                    entity = (entity == null ? clazz.newInstance() : entity);
+                    entity = (entity == null ? clazz.getDeclaredConstructor().newInstance() : entity);
                     // 从map中得到对应列的field.
                     Field field = (Field) entry.getValue()[0];
                     Excel attr = (Excel) entry.getValue()[1];
-                    // 取得类型,并根据对象类型设置值.
-                    Class<?> fieldType = field.getType();
-                    if (String.class == fieldType)
+                    val = convertImportValue(val, field, attr);
+                    if (ColumnType.IMAGE == attr.cellType() && !hasImportConverter(attr) && StringUtils.isNotEmpty(pictures))
                     {
-                        String s = Convert.toStr(val);
-                        if (StringUtils.endsWith(s, ".0"))
+                        PictureData image = pictures.get(row.getRowNum() + "_" + entry.getKey());
+                        if (image == null)
                         {
-                            val = StringUtils.substringBefore(s, ".0");
+                            val = "";
                         }
                         else
                         {
-                            String dateFormat = field.getAnnotation(Excel.class).dateFormat();
-                            if (StringUtils.isNotEmpty(dateFormat))
-                            {
-                                val = parseDateToStr(dateFormat, val);
-                            }
-                            else
-                            {
-                                val = Convert.toStr(val);
-                            }
-                        }
-                    }
-                    else if ((Integer.TYPE == fieldType || Integer.class == fieldType) && StringUtils.isNumeric(Convert.toStr(val)))
-                    {
-                        val = Convert.toInt(val);
-                    }
-                    else if ((Long.TYPE == fieldType || Long.class == fieldType) && StringUtils.isNumeric(Convert.toStr(val)))
-                    {
-                        val = Convert.toLong(val);
-                    }
-                    else if (Double.TYPE == fieldType || Double.class == fieldType)
-                    {
-                        val = Convert.toDouble(val);
-                    }
-                    else if (Float.TYPE == fieldType || Float.class == fieldType)
-                    {
-                        val = Convert.toFloat(val);
-                    }
-                    else if (BigDecimal.class == fieldType)
-                    {
-                        val = Convert.toBigDecimal(val);
-                    }
-                    else if (Date.class == fieldType)
-                    {
-                        if (val instanceof String)
-                        {
-                            val = DateUtils.parseDate(val);
-                        }
-                        else if (val instanceof Double)
-                        {
-                            val = DateUtil.getJavaDate((Double) val);
+                            byte[] data = image.getData();
+                            val = FileUtils.writeImportBytes(data);
                         }
                     }
-                    else if (Boolean.TYPE == fieldType || Boolean.class == fieldType)
-                    {
-                        val = Convert.toBool(val, false);
-                    }
-                    if (StringUtils.isNotNull(fieldType))
-                    {
-                        String propertyName = field.getName();
-                        if (StringUtils.isNotEmpty(attr.targetAttr()))
-                        {
-                            propertyName = field.getName() + "." + attr.targetAttr();
-                        }
-                        if (StringUtils.isNotEmpty(attr.readConverterExp()))
-                        {
-                            val = reverseByExp(Convert.toStr(val), attr.readConverterExp(), attr.separator());
-                        }
-                        else if (StringUtils.isNotEmpty(attr.dictType()))
-                        {
-                            val = reverseDictByExp(Convert.toStr(val), attr.dictType(), attr.separator());
-                        }
-                        else if (!attr.handler().equals(ExcelHandlerAdapter.class))
-                        {
-                            val = dataFormatHandlerAdapter(val, attr, null);
-                        }
-                        else if (ColumnType.IMAGE == attr.cellType() && StringUtils.isNotEmpty(pictures))
-                        {
-                            PictureData image = pictures.get(row.getRowNum() + "_" + entry.getKey());
-                            if (image == null)
-                            {
-                                val = "";
-                            }
-                            else
-                            {
-                                byte[] data = image.getData();
-                                val = FileUtils.writeImportBytes(data);
-                            }
-                        }
-                        ReflectUtils.invokeSetter(entity, propertyName, val);
-                    }
+                    setImportValue(entity, field, attr, val);
                 }
                 list.add(entity);
             }
@@ -501,6 +423,239 @@ public class ExcelUtil<T>
         return list;
     }
 
+    /**
+     * 对excel表单指定表格索引名逐行读取，每行转换后回调，不在内存中保留整个表单
+     * 
+     * xlsx使用SAX逐行解析，类型转换、字典和readConverterExp与整表读取一致；
+     * xls，或实体有图片列且需要导入图片（见{@link #setImportImages}）时，退回整表读取后逐行回调。
+     * 
+     * @param sheetName 表格索引名
+     * @param is 输入流
+     * @param titleNum 标题占用行数
+     * @param consumer 行回调
+     */
+    public void importExcel(String sheetName, InputStream is, int titleNum, Consumer<T> consumer) throws Exception
+    {
+        this.type = Type.IMPORT;
+        InputStream in = FileMagic.prepareToCheckMagic(is);
+        if (FileMagic.valueOf(in) != FileMagic.OOXML || (importImages && hasImageField()))
+        {
+            for (T entity : importExcel(sheetName, in, titleNum))
+            {
+                consumer.accept(entity);
+            }
+            return;
+        }
+        Map<String, Integer> cellMap = new HashMap<String, Integer>();
+        List<Map<Integer, Object[]>> fieldsHolder = new ArrayList<Map<Integer, Object[]>>(1);
+        ExcelSaxReader.read(in, sheetName, (rowNum, cells) -> {
+            if (rowNum < titleNum)
+            {
+                return;
+            }
+            // 表头
+            if (rowNum == titleNum)
+            {
+                for (Map.Entry<Integer, Object> cell : cells.entrySet())
+                {
+                    cellMap.put(cell.getValue().toString(), cell.getKey());
+                }
+                fieldsHolder.add(getImportFieldsMap(cellMap));
+                return;
+            }
+            if (fieldsHolder.isEmpty() || fieldsHolder.get(0).isEmpty())
+            {
+                return;
+            }
+            T entity = clazz.getDeclaredConstructor().newInstance();
+            for (Map.Entry<Integer, Object[]> entry : fieldsHolder.get(0).entrySet())
+            {
+                Object val = cells.containsKey(entry.getKey()) ? cells.get(entry.getKey()) : "";
+                Field field = (Field) entry.getValue()[0];
+                Excel attr = (Excel) entry.getValue()[1];
+                setImportValue(entity, field, attr, convertImportValue(val, field, attr));
+            }
+            consumer.accept(entity);
+        });
+    }
+
+    /**
+     * 对excel表单指定表格索引名逐行读取，每攒够batchSize行回调一次，不在内存中保留整个表单
+     * 
+     * @param sheetName 表格索引名
+     * @param is 输入流
+     * @param titleNum 标题占用行数
+     * @param batchSize 每批行数
+     * @param consumer 批回调
+     */
+    public void importExcel(String sheetName, InputStream is, int titleNum, int batchSize, Consumer<List<T>> consumer) throws Exception
+    {
+        List<T> batch = new ArrayList<T>(batchSize);
+        importExcel(sheetName, is, titleNum, entity -> {
+            batch.add(entity);
+            if (batch.size() >= batchSize)
+            {
+                consumer.accept(new ArrayList<T>(batch));
+                batch.clear();
+            }
+        });
+        if (!batch.isEmpty())
+        {
+            consumer.accept(batch);
+        }
+    }
+
+    /**
+     * 流式导入时是否导入图片列，默认导入（有图片列时退回整表读取）；不需要图片时关闭以使用流式读取
+     * 
+     * @param importImages 是否导入图片
+     */
+    public void setImportImages(boolean importImages)
+    {
+        this.importImages = importImages;
+    }
+
+    /**
+     * 表头列名映射到注解字段
+     * 
+     * @param cellMap 列名 -> 列下标
+     * @return 列下标 -> 字段和注解
+     */
+    private Map<Integer, Object[]> getImportFieldsMap(Map<String, Integer> cellMap)
+    {
+        List<Object[]> fields = this.getFields();
+        Map<Integer, Object[]> fieldsMap = new HashMap<Integer, Object[]>();
+        for (Object[] objects : fields)
+        {
+            Excel attr = (Excel) objects[1];
+            Integer column = cellMap.get(attr.name());
+            if (column != null)
+            {
+                fieldsMap.put(column, objects);
+            }
+        }
+        return fieldsMap;
+    }
+
+    /**
+     * 导入时按字段类型转换单元格值，再按readConverterExp、字典或自定义处理器转换（整表读取和流式读取共用）
+     * 
+     * @param val 单元格值
+     * @param field 字段
+     * @param attr 注解
+     * @return 转换后的值
+     */
+    private Object convertImportValue(Object val, Field field, Excel attr)
+    {
+        // 取得类型,并根据对象类型设置值.
+        Class<?> fieldType = field.getType();
+        if (String.class == fieldType)
+        {
+            String s = Convert.toStr(val);
+            if (StringUtils.endsWith(s, ".0"))
+            {
+                val = StringUtils.substringBefore(s, ".0");
+            }
+            else
+            {
+                String dateFormat = field.getAnnotation(Excel.class).dateFormat();
+                if (StringUtils.isNotEmpty(dateFormat))
+                {
+                    val = parseDateToStr(dateFormat, val);
+                }
+                else
+                {
+                    val = Convert.toStr(val);
+                }
+            }
+        }
+        else if ((Integer.TYPE == fieldType || Integer.class == fieldType) && StringUtils.isNumeric(Convert.toStr(val)))
+        {
+            val = Convert.toInt(val);
+        }
+        else if ((Long.TYPE == fieldType || Long.class == fieldType) && StringUtils.isNumeric(Convert.toStr(val)))
+        {
+            val = Convert.toLong(val);
+        }
+        else if (Double.TYPE == fieldType || Double.class == fieldType)
+        {
+            val = Convert.toDouble(val);
+        }
+        else if (Float.TYPE == fieldType || Float.class == fieldType)
+        {
+            val = Convert.toFloat(val);
+        }
+        else if (BigDecimal.class == fieldType)
+        {
+            val = Convert.toBigDecimal(val);
+        }
+        else if (Date.class == fieldType)
+        {
+            if (val instanceof String)
+            {
+                val = DateUtils.parseDate(val);
+            }
+            else if (val instanceof Double)
+            {
+                val = DateUtil.getJavaDate((Double) val);
+            }
+        }
+        else if (Boolean.TYPE == fieldType || Boolean.class == fieldType)
+        {
+            val = Convert.toBool(val, false);
+        }
+        if (StringUtils.isNotEmpty(attr.readConverterExp()))
+        {
+            val = reverseByExp(Convert.toStr(val), attr.readConverterExp(), attr.separator());
+        }
+        else if (StringUtils.isNotEmpty(attr.dictType()))
+        {
+            val = reverseDictByExp(Convert.toStr(val), attr.dictType(), attr.separator());
+        }
+        else if (!attr.handler().equals(ExcelHandlerAdapter.class))
+        {
+            val = dataFormatHandlerAdapter(val, attr, null);
+        }
+        return val;
+    }
+
+    /**
+     * 是否配置了readConverterExp、字典或自定义处理器
+     */
+    private static boolean hasImportConverter(Excel attr)
+    {
+        return StringUtils.isNotEmpty(attr.readConverterExp()) || StringUtils.isNotEmpty(attr.dictType())
+                || !attr.handler().equals(ExcelHandlerAdapter.class);
+    }
+
+    /**
+     * 导入值写入实体（targetAttr写入关联对象的属性）
+     */
+    private void setImportValue(T entity, Field field, Excel attr, Object val)
+    {
+        String propertyName = field.getName();
+        if (StringUtils.isNotEmpty(attr.targetAttr()))
+        {
+            propertyName = field.getName() + "." + attr.targetAttr();
+        }
+        ReflectUtils.invokeSetter(entity, propertyName, val);
+    }
+
+    /**
+     * 实体是否有图片列
+     */
+    private boolean hasImageField()
+    {
+        for (Object[] objects : this.getFields())
+        {
+            if (ColumnType.IMAGE == ((Excel) objects[1]).cellType())
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * 对list数据源将其里面的数据导入到excel表单
      * 
@@ -557,6 +712,59 @@ public class ExcelUtil<T>
         exportExcel(response);
     }
 
+    /**
+     * 流式导出，数据由调用方逐行推送（如MyBatis ResultHandler），内存只保留SXSSF窗口内的行，
+     * 单个工作表写满 sheetSize 行数据后自动切换到新的工作表，每个工作表末尾写入本表的合计行（不支持子列表字段）
+     * 
+     * @param response 返回数据
+     * @param sheetName 工作表的名称
+     * @param source 数据源，参数为逐行写入的回调
+     */
+    public void exportExcel(HttpServletResponse response, String sheetName, Consumer<Consumer<T>> source)
+    {
+        response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+        response.setCharacterEncoding("utf-8");
+        this.init(null, sheetName, StringUtils.EMPTY, Type.EXPORT);
+        try
+        {
+            createHeadRow();
+            int[] sheetIndex = { 0 };
+            int[] rowNo = { rownum };
+            source.accept(vo -> {
+                if (rowNo[0] - rownum >= sheetSize)
+                {
+                    addStatisticsRow();
+                    sheetIndex[0]++;
+                    createSheet(sheetIndex[0] + 1, sheetIndex[0]);
+                    createHeadRow();
+                    rowNo[0] = rownum;
+                }
+                Row row = sheet.createRow(++rowNo[0]);
+                int column = 0;
+                for (Object[] os : fields)
+                {
+                    Field field = (Field) os[0];
+                    if (!Collection.class.isAssignableFrom(field.getType()))
+                    {
+                        this.addCell((Excel) os[1], row, vo, field, column++);
+                    }
+                }
+            });
+            addStatisticsRow();
+            wb.write(response.getOutputStream());
+        }
+        catch (Exception e)
+        {
+            log.error("导出Excel异常{}", e.getMessage());
+        }
+        finally
+        {
+            // 清理SXSSF落盘的临时文件
+            ((SXSSFWorkbook) wb).dispose();
+            IOUtils.closeQuietly(wb);
+        }
+    }
+
     /**
      * 对list数据源将其里面的数据导入到excel表单
      * 
@@ -668,33 +876,43 @@ public class ExcelUtil<T>
         {
             createSheet(sheetNo, index);
 
-            // 产生一行
-            Row row = sheet.createRow(rownum);
-            int column = 0;
-            // 写入各个字段的列头名称
-            for (Object[] os : fields)
+            Row row = createHeadRow();
+            if (Type.EXPORT.equals(type))
             {
-                Field field = (Field) os[0];
-                Excel excel = (Excel) os[1];
-                if (Collection.class.isAssignableFrom(field.getType()))
-                {
-                    for (Field subField : subFields)
-                    {
-                        Excel subExcel = subField.getAnnotation(Excel.class);
-                        this.createHeadCell(subExcel, row, column++);
-                    }
-                }
-                else
+                fillExcelData(index, row);
+                addStatisticsRow();
+            }
+        }
+    }
+
+    /**
+     * 写入各个字段的列头名称
+     * 
+     * @return 列头行
+     */
+    public Row createHeadRow()
+    {
+        // 产生一行
+        Row row = sheet.createRow(rownum);
+        int column = 0;
+        for (Object[] os : fields)
+        {
+            Field field = (Field) os[0];
+            Excel excel = (Excel) os[1];
+            if (Collection.class.isAssignableFrom(field.getType()))
+            {
+                for (Field subField : subFields)
                 {
-                    this.createHeadCell(excel, row, column++);
+                    Excel subExcel = subField.getAnnotation(Excel.class);
+                    this.createHeadCell(subExcel, row, column++);
                 }
             }
-            if (Type.EXPORT.equals(type))
+            else
             {
-                fillExcelData(index, row);
-                addStatisticsRow();
+                this.createHeadCell(excel, row, column++);
             }
         }
+        return row;
     }
 
     /**
@@ -1322,7 +1540,7 @@ public class ExcelUtil<T>
     {
         try
         {
-            Object instance = excel.handler().newInstance();
+            Object instance = excel.handler().getDeclaredConstructor().newInstance();
             Method formatMethod = excel.handler().getMethod("format", new Class[] { Object.class, String[].class, Cell.class, Workbook.class });
             value = formatMethod.invoke(instance, value, excel.args(), cell, this.wb);
         }
@@ -1357,7 +1575,7 @@ public class ExcelUtil<T>
     }
 
     /**
-     * 创建统计行
+     * 创建当前工作表的统计行
      */
     public void addStatisticsRow()
     {
@@ -1552,6 +1770,8 @@ public class ExcelUtil<T>
         // 设置工作表的名称.
         if (sheetNo > 1 && index > 0)
         {
+            // 合计行只统计本工作表的数据
+            statistics.clear();
             this.sheet = wb.createSheet();
             this.createTitle();
             wb.setSheetName(index, sheetName + index);
@@ -1806,6 +2026,16 @@ public class ExcelUtil<T>
         return EasyExcel.read(is).head(clazz).sheet().doReadSync();
     }
 
+    /**
+     * 逐行读取excel表单默认第一个索引（EasyExcel），每解析一行回调一次监听，不在内存中保留整个表单
+     *
+     * @param is 输入流
+     * @param listener 行监听
+     */
+    public void importEasyExcel(InputStream is, ReadListener<T> listener) throws Exception {
+        EasyExcel.read(is, clazz, listener).sheet().doRead();
+    }
+
     /**
      * 对list数据源将其里面的数据导入到excel表单（EasyExcel）
      *
@@ -17,7 +17,9 @@ public class UUIDUtils {
      * 将其转换为一个更简短的8位字符字符串。这个过程中，使用了特定的算法将UUID的各个部分映射到特定的字符上。
      *
      * @return 返回一个8位的字符字符串，作为简短的UUID表示。
+     * @deprecated 随机生成不保证唯一，售货机编号请使用 InnerCodeGenerator
      */
+    @Deprecated
     public static String getUUID() {
         // 生成一个标准的UUID字符串，并移除其中的连字符
         String uuid= UUID.randomUUID().toString().replace("-", "");
@@ -0,0 +1,284 @@
+package com.dkd.common.utils.poi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONArray;
+import com.dkd.common.annotation.Excel;
+import com.dkd.common.core.domain.entity.SysDictData;
+import com.dkd.common.core.redis.RedisCache;
+import com.dkd.common.utils.DateUtils;
+import com.dkd.common.utils.DictUtils;
+import com.dkd.common.utils.StringUtils;
+import com.dkd.common.utils.spring.SpringUtils;
+
+/**
+ * Excel导入：SAX逐行读取与整表读取结果一致
+ *
+ * 同一个xlsx分别用整表读取和流式读取导入，逐行逐字段比对：日期（Date字段和带dateFormat的文本字段）、
+ * 小数、整数（数值字段和文本字段）、readConverterExp、字典，以及空单元格和中间的空行。
+ *
+ * @author ruoyi
+ */
+public class ExcelUtilImportTest
+{
+    private static final String DICT_TYPE = "sys_normal_disable";
+
+    @BeforeAll
+    public static void setUp()
+    {
+        // 字典从Redis缓存读取，这里用固定数据代替
+        SysDictData normal = new SysDictData();
+        normal.setDictLabel("正常");
+        normal.setDictValue("0");
+        SysDictData disabled = new SysDictData();
+        disabled.setDictLabel("停用");
+        disabled.setDictValue("1");
+        JSONArray dicts = JSON.parseArray(JSON.toJSONString(Arrays.asList(normal, disabled)));
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("redisCache", new RedisCache()
+        {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> T getCacheObject(String key)
+            {
+                return DictUtils.getCacheKey(DICT_TYPE).equals(key) ? (T) dicts : null;
+            }
+        });
+        new SpringUtils().postProcessBeanFactory(beanFactory);
+    }
+
+    @Test
+    public void saxMatchesWorkbook() throws Exception
+    {
+        byte[] file = workbook();
+
+        List<Item> expected = new ExcelUtil<Item>(Item.class).importExcel(StringUtils.EMPTY, new ByteArrayInputStream(file), 0);
+        List<Item> actual = new ArrayList<>();
+        new ExcelUtil<Item>(Item.class).importExcel(StringUtils.EMPTY, new ByteArrayInputStream(file), 0, actual::add);
+
+        assertEquals(3, expected.size());
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++)
+        {
+            Item e = expected.get(i), a = actual.get(i);
+            String row = "第" + (i + 1) + "行";
+            assertEquals(e.getBirthday(), a.getBirthday(), row + "日期");
+            assertEquals(e.getBirthdayText(), a.getBirthdayText(), row + "日期文本");
+            assertEquals(e.getAmount(), a.getAmount(), row + "金额");
+            assertEquals(e.getPrice(), a.getPrice(), row + "单价");
+            assertEquals(e.getQuantity(), a.getQuantity(), row + "数量");
+            assertEquals(e.getId(), a.getId(), row + "编号");
+            assertEquals(e.getCode(), a.getCode(), row + "编码");
+            assertEquals(e.getSex(), a.getSex(), row + "性别");
+            assertEquals(e.getStatus(), a.getStatus(), row + "状态");
+        }
+
+        // 取值本身也要正确，避免两条路径一起出错
+        Item first = actual.get(0);
+        assertEquals(DateUtils.parseDate("2024-03-15"), first.getBirthday());
+        assertEquals("2024-03-15", first.getBirthdayText());
+        assertEquals(new BigDecimal("12.5"), first.getAmount());
+        assertEquals(Double.valueOf(3.25), first.getPrice());
+        assertEquals(Integer.valueOf(42), first.getQuantity());
+        assertEquals(Long.valueOf(9007199254L), first.getId());
+        assertEquals("10086", first.getCode());
+        assertEquals("1", first.getSex());
+        assertEquals("1", first.getStatus());
+        Item second = actual.get(1);
+        assertEquals("2000-01-01", second.getBirthdayText());
+        assertEquals("A-01", second.getCode());
+        assertEquals("0", second.getSex());
+        assertEquals("0", second.getStatus());
+        Item third = actual.get(2);
+        assertEquals("2", third.getSex());
+        assertNull(third.getBirthday());
+        assertNull(third.getAmount());
+    }
+
+    /**
+     * 表头 + 3行数据，第2、3行数据之间有一个空行，第3行的日期和金额为空
+     */
+    private static byte[] workbook() throws Exception
+    {
+        try (XSSFWorkbook wb = new XSSFWorkbook(); ByteArrayOutputStream out = new ByteArrayOutputStream())
+        {
+            CellStyle dateStyle = wb.createCellStyle();
+            dateStyle.setDataFormat(wb.getCreationHelper().createDataFormat().getFormat("yyyy-mm-dd"));
+            Sheet sheet = wb.createSheet("数据");
+            String[] heads = { "日期", "日期文本", "金额", "单价", "数量", "编号", "编码", "性别", "状态" };
+            Row head = sheet.createRow(0);
+            for (int i = 0; i < heads.length; i++)
+            {
+                head.createCell(i).setCellValue(heads[i]);
+            }
+            Object[][] data = {
+                { DateUtils.parseDate("2024-03-15"), DateUtils.parseDate("2024-03-15"), 12.5, 3.25, 42d, 9007199254d, 10086d, "女", "停用" },
+                { DateUtils.parseDate("1999-12-31"), "2000-01-01", 0.1, 100d, 0d, 1d, "A-01", "男", "正常" },
+                null,
+                { null, null, null, 7d, 8d, 9d, "文本", "未知", "正常" } };
+            for (int r = 0; r < data.length; r++)
+            {
+                if (data[r] == null)
+                {
+                    continue;
+                }
+                Row row = sheet.createRow(r + 1);
+                for (int c = 0; c < data[r].length; c++)
+                {
+                    Object value = data[r][c];
+                    if (value instanceof Date)
+                    {
+                        row.createCell(c).setCellValue((Date) value);
+                        row.getCell(c).setCellStyle(dateStyle);
+                    }
+                    else if (value instanceof Double)
+                    {
+                        row.createCell(c).setCellValue((Double) value);
+                    }
+                    else if (value != null)
+                    {
+                        row.createCell(c).setCellValue((String) value);
+                    }
+                }
+            }
+            wb.write(out);
+            return out.toByteArray();
+        }
+    }
+
+    public static class Item
+    {
+        @Excel(name = "日期", dateFormat = "yyyy-MM-dd")
+        private Date birthday;
+
+        @Excel(name = "日期文本", dateFormat = "yyyy-MM-dd")
+        private String birthdayText;
+
+        @Excel(name = "金额")
+        private BigDecimal amount;
+
+        @Excel(name = "单价")
+        private Double price;
+
+        @Excel(name = "数量")
+        private Integer quantity;
+
+        @Excel(name = "编号")
+        private Long id;
+
+        @Excel(name = "编码")
+        private String code;
+
+        @Excel(name = "性别", readConverterExp = "0=男,1=女,2=未知")
+        private String sex;
+
+        @Excel(name = "状态", dictType = DICT_TYPE)
+        private String status;
+
+        public Date getBirthday()
+        {
+            return birthday;
+        }
+
+        public void setBirthday(Date birthday)
+        {
+            this.birthday = birthday;
+        }
+
+        public String getBirthdayText()
+        {
+            return birthdayText;
+        }
+
+        public void setBirthdayText(String birthdayText)
+        {
+            this.birthdayText = birthdayText;
+        }
+
+        public BigDecimal getAmount()
+        {
+            return amount;
+        }
+
+        public void setAmount(BigDecimal amount)
+        {
+            this.amount = amount;
+        }
+
+        public Double getPrice()
+        {
+            return price;
+        }
+
+        public void setPrice(Double price)
+        {
+            this.price = price;
+        }
+
+        public Integer getQuantity()
+        {
+            return quantity;
+        }
+
+        public void setQuantity(Integer quantity)
+        {
+            this.quantity = quantity;
+        }
+
+        public Long getId()
+        {
+            return id;
+        }
+
+        public void setId(Long id)
+        {
+            this.id = id;
+        }
+
+        public String getCode()
+        {
+            return code;
+        }
+
+        public void setCode(String code)
+        {
+            this.code = code;
+        }
+
+        public String getSex()
+        {
+            return sex;
+        }
+
+        public void setSex(String sex)
+        {
+            this.sex = sex;
+        }
+
+        public String getStatus()
+        {
+            return status;
+        }
+
+        public void setStatus(String status)
+        {
+            this.status = status;
+        }
+    }
+}
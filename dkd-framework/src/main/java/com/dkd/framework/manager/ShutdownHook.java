@@ -0,0 +1,16 @@
+package com.dkd.framework.manager;
+
+/**
+ * 应用退出前需要执行的收尾动作（如排空写缓冲）
+ * 
+ * 实现类注册为Spring Bean后，由{@link ShutdownManager}在关闭后台线程池之前统一调用
+ *
+ * @author ruoyi
+ */
+public interface ShutdownHook
+{
+    /**
+     * 执行收尾动作
+     */
+    void shutdown();
+}
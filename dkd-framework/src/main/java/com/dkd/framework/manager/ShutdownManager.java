@@ -1,7 +1,9 @@
 package com.dkd.framework.manager;
 
+import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import javax.annotation.PreDestroy;
 
@@ -15,12 +17,39 @@ public class ShutdownManager
 {
     private static final Logger logger = LoggerFactory.getLogger("sys-user");
 
+    @Autowired(required = false)
+    private List<ShutdownHook> shutdownHooks;
+
     @PreDestroy
     public void destroy()
     {
+        shutdownHooks();
         shutdownAsyncManager();
     }
 
+    /**
+     * 执行业务模块注册的收尾动作
+     */
+    private void shutdownHooks()
+    {
+        if (shutdownHooks == null)
+        {
+            return;
+        }
+        for (ShutdownHook hook : shutdownHooks)
+        {
+            try
+            {
+                logger.info("====执行停机收尾任务 {}====", hook.getClass().getSimpleName());
+                hook.shutdown();
+            }
+            catch (Exception e)
+            {
+                logger.error(e.getMessage(), e);
+            }
+        }
+    }
+
     /**
      * 停止异步执行任务
      */
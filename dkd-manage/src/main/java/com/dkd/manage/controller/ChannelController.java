@@ -4,6 +4,7 @@ import java.util.List;
 import javax.servlet.http.HttpServletResponse;
 
 import com.dkd.manage.domain.ChannelVo;
+import com.dkd.manage.domain.dto.ChannelBatchConfigDto;
 import com.dkd.manage.domain.dto.ChannelConfigDto;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,6 +15,7 @@ import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import com.dkd.common.annotation.Log;
 import com.dkd.common.core.controller.BaseController;
@@ -115,6 +117,25 @@ public class ChannelController extends BaseController
        return success(voList);
     }
 
+    /**
+     * 查询售货机实时库存（货道编号 -> 当前库存）
+     */
+    @PreAuthorize("@ss.hasPermi('manage:channel:list')")
+    @GetMapping("/stock/{innerCode}")
+    public AjaxResult stock(@PathVariable String innerCode){
+        return success(channelService.selectChannelStock(innerCode));
+    }
+
+    /**
+     * 出货扣减货道库存
+     */
+    @PreAuthorize("@ss.hasPermi('manage:channel:edit')")
+    @PutMapping("/vend/{innerCode}/{channelCode}")
+    public AjaxResult vend(@PathVariable String innerCode, @PathVariable String channelCode,
+                           @RequestParam(defaultValue = "1") Long quantity){
+        return success(channelService.vendChannel(innerCode, channelCode, quantity));
+    }
+
     /**
      * 货道关联商品
      * @param channelConfigDto
@@ -127,4 +148,16 @@ public class ChannelController extends BaseController
      return toAjax(channelService.setChannel(channelConfigDto));
     }
 
+    /**
+     * 按售货机类型批量配置货道商品
+     * @param batchConfigDto
+     * @return
+     */
+    @PreAuthorize("@ss.hasPermi('manage:channel:edit')")
+    @Log(title = "售货机货道", businessType = BusinessType.UPDATE)
+    @PutMapping("/config/batch")
+    public AjaxResult setChannelByVmType(@RequestBody ChannelBatchConfigDto batchConfigDto){
+        return success(channelService.setChannelByVmType(batchConfigDto));
+    }
+
 }
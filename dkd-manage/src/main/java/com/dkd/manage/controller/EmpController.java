@@ -5,6 +5,7 @@ import javax.servlet.http.HttpServletResponse;
 
 import com.dkd.common.constant.DkdContants;
 import com.dkd.manage.domain.VendingMachine;
+import com.dkd.manage.manager.EmpDirectory;
 import com.dkd.manage.service.IVendingMachineService;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -41,6 +42,9 @@ public class EmpController extends BaseController
     @Autowired
     private IVendingMachineService vendingMachineService;
 
+    @Autowired
+    private EmpDirectory empDirectory;
+
     /**
      * 查询人员列表列表
      */
@@ -122,14 +126,8 @@ public class EmpController extends BaseController
         if(vendingMachine == null){
              return error("售货机不存在");
         }
-        //2.根据售货机的区域id信息获取所在区运营人员列表
-        Emp emp = new Emp();
-        emp.setRegionId(vendingMachine.getRegionId());
-        emp.setRoleCode(DkdContants.ROLE_CODE_BUSINESS);//运营人员
-        emp.setStatus(Math.toIntExact(DkdContants.EMP_STATUS_NORMAL));//员工状态
-        //这里的emp相当于查询条件
-
-        return success(empService.selectEmpList(emp));
+        //2.根据售货机的区域id信息从员工目录获取所在区运营人员列表
+        return success(empDirectory.list(vendingMachine.getRegionId(), DkdContants.ROLE_CODE_BUSINESS, Math.toIntExact(DkdContants.EMP_STATUS_NORMAL)));
     }
 
     /**
@@ -145,13 +143,7 @@ public class EmpController extends BaseController
         if(vendingMachine == null){
             return error("售货机不存在");
         }
-        //2.根据售货机的区域id信息获取所在区运营人员列表
-        Emp emp = new Emp();
-        emp.setRegionId(vendingMachine.getRegionId());
-        emp.setRoleCode(DkdContants.ROLE_CODE_OPERATOR);//运营人员
-        emp.setStatus(Math.toIntExact(DkdContants.EMP_STATUS_NORMAL));//员工状态
-        //这里的emp相当于查询条件
-
-        return success(empService.selectEmpList(emp));
+        //2.根据售货机的区域id信息从员工目录获取所在区运维人员列表
+        return success(empDirectory.list(vendingMachine.getRegionId(), DkdContants.ROLE_CODE_OPERATOR, Math.toIntExact(DkdContants.EMP_STATUS_NORMAL)));
     }
 }
@@ -41,9 +41,15 @@ public class OrderController extends BaseController
     @GetMapping("/list")
     public TableDataInfo list(Order order)
     {
+        if (isCursorPage())
+        {
+            startCursorPage(order);
+            List<Order> list = orderService.selectOrderList(order);
+            return getCursorDataTable(list, Order::getCreateTime, Order::getId, orderService::estimateOrderCount);
+        }
         startPage();
         List<Order> list = orderService.selectOrderList(order);
-        return getDataTable(list);
+        return getDataTable(list, orderService::estimateOrderCount);
     }
 
     /**
@@ -54,9 +60,8 @@ public class OrderController extends BaseController
     @PostMapping("/export")
     public void export(HttpServletResponse response, Order order)
     {
-        List<Order> list = orderService.selectOrderList(order);
         ExcelUtil<Order> util = new ExcelUtil<Order>(Order.class);
-        util.exportExcel(response, list, "订单管理数据");
+        util.exportExcel(response, "订单管理数据", consumer -> orderService.streamOrderList(order, consumer));
     }
 
     /**
@@ -80,6 +85,17 @@ public class OrderController extends BaseController
         return toAjax(orderService.insertOrder(order));
     }
 
+    /**
+     * 批量提交订单
+     */
+    @PreAuthorize("@ss.hasPermi('manage:order:add')")
+    @Log(title = "订单管理", businessType = BusinessType.INSERT)
+    @PostMapping("/batch")
+    public AjaxResult batchAdd(@RequestBody List<Order> orderList)
+    {
+        return toAjax(orderService.submitOrders(orderList));
+    }
+
     /**
      * 修改订单管理
      */
@@ -0,0 +1,62 @@
+package com.dkd.manage.controller;
+
+import java.util.List;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import com.dkd.common.core.controller.BaseController;
+import com.dkd.manage.domain.OrderStats;
+import com.dkd.manage.service.IOrderStatsService;
+import com.dkd.common.core.page.TableDataInfo;
+
+/**
+ * 订单汇总Controller
+ * 
+ * @author itheima
+ * @date 2024-07-29
+ */
+@RestController
+@RequestMapping("/manage/orderStats")
+public class OrderStatsController extends BaseController
+{
+    @Autowired
+    private IOrderStatsService orderStatsService;
+
+    /**
+     * 按天查询订单汇总
+     */
+    @PreAuthorize("@ss.hasPermi('manage:order:list')")
+    @GetMapping("/day")
+    public TableDataInfo dayList(OrderStats orderStats)
+    {
+        startPage();
+        List<OrderStats> list = orderStatsService.selectDayStatsList(orderStats);
+        return getDataTable(list);
+    }
+
+    /**
+     * 按小时查询订单汇总
+     */
+    @PreAuthorize("@ss.hasPermi('manage:order:list')")
+    @GetMapping("/hour")
+    public TableDataInfo hourList(OrderStats orderStats)
+    {
+        startPage();
+        List<OrderStats> list = orderStatsService.selectHourStatsList(orderStats);
+        return getDataTable(list);
+    }
+
+    /**
+     * 按商品查询订单汇总
+     */
+    @PreAuthorize("@ss.hasPermi('manage:order:list')")
+    @GetMapping("/sku")
+    public TableDataInfo skuList(OrderStats orderStats)
+    {
+        startPage();
+        List<OrderStats> list = orderStatsService.selectSkuStatsList(orderStats);
+        return getDataTable(list);
+    }
+}
@@ -0,0 +1,69 @@
+package com.dkd.manage.controller;
+
+import java.util.List;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import com.dkd.common.annotation.Log;
+import com.dkd.common.core.controller.BaseController;
+import com.dkd.common.core.domain.AjaxResult;
+import com.dkd.common.enums.BusinessType;
+import com.dkd.manage.domain.PartnerSettlement;
+import com.dkd.manage.service.IPartnerSettlementService;
+import com.dkd.common.utils.poi.ExcelUtil;
+import com.dkd.common.core.page.TableDataInfo;
+
+/**
+ * 合作商分账结算Controller
+ * 
+ * @author itheima
+ * @date 2024-07-29
+ */
+@RestController
+@RequestMapping("/manage/settlement")
+public class PartnerSettlementController extends BaseController
+{
+    @Autowired
+    private IPartnerSettlementService partnerSettlementService;
+
+    /**
+     * 查询合作商分账结算列表
+     */
+    @PreAuthorize("@ss.hasPermi('manage:partner:list')")
+    @GetMapping("/list")
+    public TableDataInfo list(PartnerSettlement partnerSettlement)
+    {
+        startPage();
+        List<PartnerSettlement> list = partnerSettlementService.selectPartnerSettlementList(partnerSettlement);
+        return getDataTable(list);
+    }
+
+    /**
+     * 导出合作商分账结算列表
+     */
+    @PreAuthorize("@ss.hasPermi('manage:partner:export')")
+    @Log(title = "合作商分账结算", businessType = BusinessType.EXPORT)
+    @PostMapping("/export")
+    public void export(HttpServletResponse response, PartnerSettlement partnerSettlement)
+    {
+        List<PartnerSettlement> list = partnerSettlementService.selectPartnerSettlementList(partnerSettlement);
+        ExcelUtil<PartnerSettlement> util = new ExcelUtil<PartnerSettlement>(PartnerSettlement.class);
+        util.exportExcel(response, list, "合作商分账结算数据");
+    }
+
+    /**
+     * 结算指定周期（重复结算会覆盖该周期的结果）
+     */
+    @PreAuthorize("@ss.hasPermi('manage:partner:edit')")
+    @Log(title = "合作商分账结算", businessType = BusinessType.OTHER)
+    @PostMapping("/settle/{period}")
+    public AjaxResult settle(@PathVariable String period)
+    {
+        return success(partnerSettlementService.settle(period));
+    }
+}
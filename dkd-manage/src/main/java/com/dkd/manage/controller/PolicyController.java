@@ -11,12 +11,14 @@ import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import com.dkd.common.annotation.Log;
 import com.dkd.common.core.controller.BaseController;
 import com.dkd.common.core.domain.AjaxResult;
 import com.dkd.common.enums.BusinessType;
 import com.dkd.manage.domain.Policy;
+import com.dkd.manage.domain.dto.PolicyApplyDto;
 import com.dkd.manage.service.IPolicyService;
 import com.dkd.common.utils.poi.ExcelUtil;
 import com.dkd.common.core.page.TableDataInfo;
@@ -101,4 +103,25 @@ public class PolicyController extends BaseController
     {
         return toAjax(policyService.deletePolicyByPolicyIds(policyIds));
     }
+
+    /**
+     * 批量为设备设置策略
+     */
+    @PreAuthorize("@ss.hasPermi('manage:policy:edit')")
+    @Log(title = "策略管理", businessType = BusinessType.UPDATE, isSaveRequestData = false)
+    @PutMapping("/apply")
+    public AjaxResult apply(@RequestBody PolicyApplyDto policyApplyDto)
+    {
+        return success(policyService.applyPolicy(policyApplyDto));
+    }
+
+    /**
+     * 查询设备上商品的售价
+     */
+    @PreAuthorize("@ss.hasPermi('manage:policy:query')")
+    @GetMapping("/price/{innerCode}")
+    public AjaxResult price(@PathVariable String innerCode, @RequestParam List<Long> skuIds)
+    {
+        return success(policyService.selectSkuPrices(innerCode, skuIds));
+    }
 }
@@ -0,0 +1,52 @@
+package com.dkd.manage.controller;
+
+import java.util.List;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import com.dkd.common.annotation.Log;
+import com.dkd.common.core.controller.BaseController;
+import com.dkd.common.core.domain.AjaxResult;
+import com.dkd.common.enums.BusinessType;
+import com.dkd.manage.domain.PropagationJob;
+import com.dkd.manage.service.IPropagationJobService;
+import com.dkd.common.core.page.TableDataInfo;
+
+/**
+ * 冗余字段同步任务Controller
+ * 
+ * @author itheima
+ */
+@RestController
+@RequestMapping("/manage/propagation")
+public class PropagationJobController extends BaseController
+{
+    @Autowired
+    private IPropagationJobService propagationJobService;
+
+    /**
+     * 查询同步任务列表（进度）
+     */
+    @PreAuthorize("@ss.hasPermi('monitor:job:list')")
+    @GetMapping("/list")
+    public TableDataInfo list(PropagationJob propagationJob)
+    {
+        startPage();
+        List<PropagationJob> list = propagationJobService.selectPropagationJobList(propagationJob);
+        return getDataTable(list);
+    }
+
+    /**
+     * 立即执行待执行、失败和中断的同步任务
+     */
+    @PreAuthorize("@ss.hasPermi('monitor:job:changeStatus')")
+    @Log(title = "冗余字段同步", businessType = BusinessType.OTHER)
+    @PostMapping("/resume")
+    public AjaxResult resume()
+    {
+        return success(propagationJobService.resume());
+    }
+}
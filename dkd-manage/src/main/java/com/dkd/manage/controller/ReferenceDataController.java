@@ -0,0 +1,33 @@
+package com.dkd.manage.controller;
+
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import com.dkd.common.core.controller.BaseController;
+import com.dkd.common.core.domain.AjaxResult;
+import com.dkd.manage.manager.ReferenceData;
+
+/**
+ * 字典数据缓存Controller
+ * 
+ * @author itheima
+ */
+@RestController
+@RequestMapping("/manage/reference")
+public class ReferenceDataController extends BaseController
+{
+    @Autowired
+    private ReferenceData referenceData;
+
+    /**
+     * 查询各字典表缓存的条目数、版本号和命中率
+     */
+    @PreAuthorize("@ss.hasPermi('monitor:cache:list')")
+    @GetMapping("/stats")
+    public AjaxResult stats()
+    {
+        return success(referenceData.stats());
+    }
+}
@@ -62,15 +62,23 @@ public class SkuController extends BaseController
     }
 
     /**
-     * 导入商品管理数据
+     * 导入商品管理数据（逐行校验、去重后分批写入，返回逐行错误明细）
      */
     @PreAuthorize("@ss.hasPermi('manage:sku:add')")
     @Log(title = "商品管理", businessType = BusinessType.IMPORT)
     @PostMapping("/import")
     public AjaxResult excelImportData(MultipartFile file) throws Exception {
-        ExcelUtil<Sku> util = new ExcelUtil<Sku>(Sku.class);
-        List<Sku> skuList = util.importEasyExcel(file.getInputStream());
-        return toAjax(skuService.insertSkus(skuList));
+        return success(skuService.importSkus(file.getInputStream()));
+    }
+
+    /**
+     * 查询商品缓存统计
+     */
+    @PreAuthorize("@ss.hasPermi('manage:sku:list')")
+    @GetMapping("/cache/stats")
+    public AjaxResult cacheStats()
+    {
+        return success(skuService.selectSkuCacheStats());
     }
 
     /**
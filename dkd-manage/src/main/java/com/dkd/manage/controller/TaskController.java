@@ -5,6 +5,7 @@ import javax.servlet.http.HttpServletResponse;
 
 import com.dkd.manage.domain.dto.TaskDto;
 import com.dkd.manage.domain.vo.TaskVo;
+import com.dkd.manage.manager.TaskRoutePlanner;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -14,6 +15,7 @@ import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import com.dkd.common.annotation.Log;
 import com.dkd.common.core.controller.BaseController;
@@ -37,6 +39,9 @@ public class TaskController extends BaseController
     @Autowired
     private ITaskService taskService;
 
+    @Autowired
+    private TaskRoutePlanner taskRoutePlanner;
+
     /**
      * 查询工单列表
      */
@@ -44,9 +49,15 @@ public class TaskController extends BaseController
     @GetMapping("/list")
     public TableDataInfo list(Task task)
     {
+        if (isCursorPage())
+        {
+            startCursorPage(task);
+            List<TaskVo> voList = taskService.selectTaskVoList(task);
+            return getCursorDataTable(voList, TaskVo::getCreateTime, TaskVo::getTaskId, taskService::estimateTaskCount);
+        }
         startPage();
         List<TaskVo> voList = taskService.selectTaskVoList(task);
-        return getDataTable(voList);
+        return getDataTable(voList, taskService::estimateTaskCount);
     }
 
     /**
@@ -57,9 +68,8 @@ public class TaskController extends BaseController
     @PostMapping("/export")
     public void export(HttpServletResponse response, Task task)
     {
-        List<Task> list = taskService.selectTaskList(task);
         ExcelUtil<Task> util = new ExcelUtil<Task>(Task.class);
-        util.exportExcel(response, list, "工单数据");
+        util.exportExcel(response, "工单数据", consumer -> taskService.streamTaskList(task, consumer));
     }
 
     /**
@@ -116,4 +126,42 @@ public class TaskController extends BaseController
     public AjaxResult cancelTask(@RequestBody Task task){
         return toAjax(taskService.cancelTask(task));
     }
+
+    /**
+     * 接受工单
+     */
+    @PreAuthorize("@ss.hasPermi('manage:task:edit')")
+    @Log(title = "工单", businessType = BusinessType.UPDATE)
+    @PutMapping("/accept/{taskId}")
+    public AjaxResult acceptTask(@PathVariable Long taskId){
+        return toAjax(taskService.acceptTask(taskId));
+    }
+
+    /**
+     * 完成工单
+     */
+    @PreAuthorize("@ss.hasPermi('manage:task:edit')")
+    @Log(title = "工单", businessType = BusinessType.UPDATE)
+    @PutMapping("/finish/{taskId}")
+    public AjaxResult finishTask(@PathVariable Long taskId){
+        return toAjax(taskService.finishTask(taskId));
+    }
+
+    /**
+     * 按路线顺序获取员工的未完成工单
+     */
+    @PreAuthorize("@ss.hasPermi('manage:task:list')")
+    @GetMapping("/route/{userId}")
+    public AjaxResult route(@PathVariable Long userId){
+        return success(taskRoutePlanner.route(userId));
+    }
+
+    /**
+     * 获取区域内所有员工的工单路线
+     */
+    @PreAuthorize("@ss.hasPermi('manage:task:list')")
+    @GetMapping("/route/region/{regionId}")
+    public AjaxResult regionRoutes(@PathVariable Long regionId, @RequestParam(required = false) String roleCode){
+        return success(taskRoutePlanner.regionRoutes(regionId, roleCode));
+    }
 }
@@ -11,12 +11,18 @@ import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import com.dkd.common.annotation.Anonymous;
 import com.dkd.common.annotation.Log;
 import com.dkd.common.core.controller.BaseController;
 import com.dkd.common.core.domain.AjaxResult;
 import com.dkd.common.enums.BusinessType;
 import com.dkd.manage.domain.VendingMachine;
+import com.dkd.manage.domain.dto.VmHeartbeatDto;
+import com.dkd.manage.manager.FleetCounters;
+import com.dkd.manage.manager.VmGeoIndex;
+import com.dkd.manage.manager.VmHeartbeatCollector;
 import com.dkd.manage.service.IVendingMachineService;
 import com.dkd.common.utils.poi.ExcelUtil;
 import com.dkd.common.core.page.TableDataInfo;
@@ -34,6 +40,15 @@ public class VendingMachineController extends BaseController
     @Autowired
     private IVendingMachineService vendingMachineService;
 
+    @Autowired
+    private VmHeartbeatCollector vmHeartbeatCollector;
+
+    @Autowired
+    private VmGeoIndex vmGeoIndex;
+
+    @Autowired
+    private FleetCounters fleetCounters;
+
     /**
      * 查询设备管理列表
      */
@@ -54,9 +69,52 @@ public class VendingMachineController extends BaseController
     @PostMapping("/export")
     public void export(HttpServletResponse response, VendingMachine vendingMachine)
     {
-        List<VendingMachine> list = vendingMachineService.selectVendingMachineList(vendingMachine);
         ExcelUtil<VendingMachine> util = new ExcelUtil<VendingMachine>(VendingMachine.class);
-        util.exportExcel(response, list, "设备管理数据");
+        util.exportExcel(response, "设备管理数据", consumer -> vendingMachineService.streamVendingMachineList(vendingMachine, consumer));
+    }
+
+    /**
+     * 查询距离最近的售货机
+     */
+    @PreAuthorize("@ss.hasPermi('manage:vm:list')")
+    @GetMapping("/nearby")
+    public AjaxResult nearby(@RequestParam double lat, @RequestParam double lng, @RequestParam(defaultValue = "10") int k)
+    {
+        return success(vmGeoIndex.nearest(lat, lng, Math.min(k, 1000)));
+    }
+
+    /**
+     * 查询半径（米）范围内的售货机
+     */
+    @PreAuthorize("@ss.hasPermi('manage:vm:list')")
+    @GetMapping("/within")
+    public AjaxResult within(@RequestParam double lat, @RequestParam double lng, @RequestParam double radius)
+    {
+        return success(vmGeoIndex.withinRadius(lat, lng, radius));
+    }
+
+    /**
+     * 查询矩形范围内的售货机
+     */
+    @PreAuthorize("@ss.hasPermi('manage:vm:list')")
+    @GetMapping("/bbox")
+    public AjaxResult bbox(@RequestParam double minLat, @RequestParam double minLng, @RequestParam double maxLat, @RequestParam double maxLng)
+    {
+        return success(vmGeoIndex.withinBox(minLat, minLng, maxLat, maxLng));
+    }
+
+    /**
+     * 按区域、点位或合作商统计各状态的设备数
+     */
+    @PreAuthorize("@ss.hasPermi('manage:vm:list')")
+    @GetMapping("/count/{dimension}/{id}")
+    public AjaxResult count(@PathVariable String dimension, @PathVariable Long id)
+    {
+        if (!"region".equals(dimension) && !"node".equals(dimension) && !"partner".equals(dimension))
+        {
+            return error("统计维度只能是region、node或partner");
+        }
+        return success(fleetCounters.vmStatusCount(dimension, id));
     }
 
     /**
@@ -80,6 +138,28 @@ public class VendingMachineController extends BaseController
         return toAjax(vendingMachineService.insertVendingMachine(vendingMachine));
     }
 
+    /**
+     * 批量新增设备管理
+     */
+    @PreAuthorize("@ss.hasPermi('manage:vm:add')")
+    @Log(title = "设备管理", businessType = BusinessType.INSERT, isSaveRequestData = false, isSaveResponseData = false)
+    @PostMapping("/batch")
+    public AjaxResult batchAdd(@RequestBody List<VendingMachine> vendingMachineList)
+    {
+        return success(vendingMachineService.batchInsertVendingMachine(vendingMachineList));
+    }
+
+    /**
+     * 售货机上报心跳和运行状态（设备编号+clientId认证）
+     */
+    @Anonymous
+    @PostMapping("/heartbeat")
+    public AjaxResult heartbeat(@RequestBody VmHeartbeatDto heartbeat)
+    {
+        vmHeartbeatCollector.receive(heartbeat);
+        return success();
+    }
+
     /**
      * 修改设备管理
      */
@@ -0,0 +1,177 @@
+package com.dkd.manage.domain;
+
+import java.util.Date;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+import com.dkd.common.annotation.Excel;
+import com.dkd.common.core.domain.BaseEntity;
+
+/**
+ * 订单汇总对象 tb_order_stats_day / tb_order_stats_hour
+ *
+ * @author itheima
+ * @date 2024-07-29
+ */
+public class OrderStats extends BaseEntity
+{
+    private static final long serialVersionUID = 1L;
+
+    /** 统计时间（天或小时） */
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    @Excel(name = "统计时间", width = 30, dateFormat = "yyyy-MM-dd HH:mm:ss")
+    private Date statTime;
+
+    /** 机器编号 */
+    @Excel(name = "机器编号")
+    private String innerCode;
+
+    /** 商品id */
+    private Long skuId;
+
+    /** 点位id */
+    private Long nodeId;
+
+    /** 区域id */
+    private Long regionId;
+
+    /** 合作商id */
+    private Long partnerId;
+
+    /** 订单数 */
+    @Excel(name = "订单数")
+    private Long orderCount;
+
+    /** 支付完成订单数 */
+    @Excel(name = "支付完成订单数")
+    private Long paidCount;
+
+    /** 出货成功订单数 */
+    @Excel(name = "出货成功订单数")
+    private Long successCount;
+
+    /** 支付金额 */
+    @Excel(name = "支付金额")
+    private Long paidAmount;
+
+    /** 合作商账单金额 */
+    @Excel(name = "合作商账单金额")
+    private Long bill;
+
+    public void setStatTime(Date statTime)
+    {
+        this.statTime = statTime;
+    }
+
+    public Date getStatTime()
+    {
+        return statTime;
+    }
+    public void setInnerCode(String innerCode)
+    {
+        this.innerCode = innerCode;
+    }
+
+    public String getInnerCode()
+    {
+        return innerCode;
+    }
+    public void setSkuId(Long skuId)
+    {
+        this.skuId = skuId;
+    }
+
+    public Long getSkuId()
+    {
+        return skuId;
+    }
+    public void setNodeId(Long nodeId)
+    {
+        this.nodeId = nodeId;
+    }
+
+    public Long getNodeId()
+    {
+        return nodeId;
+    }
+    public void setRegionId(Long regionId)
+    {
+        this.regionId = regionId;
+    }
+
+    public Long getRegionId()
+    {
+        return regionId;
+    }
+    public void setPartnerId(Long partnerId)
+    {
+        this.partnerId = partnerId;
+    }
+
+    public Long getPartnerId()
+    {
+        return partnerId;
+    }
+    public void setOrderCount(Long orderCount)
+    {
+        this.orderCount = orderCount;
+    }
+
+    public Long getOrderCount()
+    {
+        return orderCount;
+    }
+    public void setPaidCount(Long paidCount)
+    {
+        this.paidCount = paidCount;
+    }
+
+    public Long getPaidCount()
+    {
+        return paidCount;
+    }
+    public void setSuccessCount(Long successCount)
+    {
+        this.successCount = successCount;
+    }
+
+    public Long getSuccessCount()
+    {
+        return successCount;
+    }
+    public void setPaidAmount(Long paidAmount)
+    {
+        this.paidAmount = paidAmount;
+    }
+
+    public Long getPaidAmount()
+    {
+        return paidAmount;
+    }
+    public void setBill(Long bill)
+    {
+        this.bill = bill;
+    }
+
+    public Long getBill()
+    {
+        return bill;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this,ToStringStyle.MULTI_LINE_STYLE)
+            .append("statTime", getStatTime())
+            .append("innerCode", getInnerCode())
+            .append("skuId", getSkuId())
+            .append("nodeId", getNodeId())
+            .append("regionId", getRegionId())
+            .append("partnerId", getPartnerId())
+            .append("orderCount", getOrderCount())
+            .append("paidCount", getPaidCount())
+            .append("successCount", getSuccessCount())
+            .append("paidAmount", getPaidAmount())
+            .append("bill", getBill())
+            .toString();
+    }
+}
@@ -0,0 +1,149 @@
+package com.dkd.manage.domain;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+import com.dkd.common.annotation.Excel;
+import com.dkd.common.core.domain.BaseEntity;
+
+/**
+ * 合作商分账结算对象 tb_partner_settlement
+ * 
+ * @author itheima
+ * @date 2024-07-29
+ */
+public class PartnerSettlement extends BaseEntity
+{
+    private static final long serialVersionUID = 1L;
+
+    /** 主键 */
+    private Long id;
+
+    /** 合作商id */
+    private Long partnerId;
+
+    /** 合作商名称 */
+    @Excel(name = "合作商名称")
+    private String partnerName;
+
+    /** 结算周期（yyyy-MM） */
+    @Excel(name = "结算周期")
+    private String period;
+
+    /** 支付完成订单数 */
+    @Excel(name = "订单数")
+    private Long orderCount;
+
+    /** 订单金额 */
+    @Excel(name = "订单金额")
+    private Long orderAmount;
+
+    /** 合作商账单金额 */
+    @Excel(name = "合作商账单金额")
+    private Long bill;
+
+    /** 分成比例 */
+    @Excel(name = "分成比例")
+    private Long profitRatio;
+
+    /** 分成金额 */
+    @Excel(name = "分成金额")
+    private Long shareAmount;
+
+    public void setId(Long id)
+    {
+        this.id = id;
+    }
+
+    public Long getId()
+    {
+        return id;
+    }
+    public void setPartnerId(Long partnerId)
+    {
+        this.partnerId = partnerId;
+    }
+
+    public Long getPartnerId()
+    {
+        return partnerId;
+    }
+    public void setPartnerName(String partnerName)
+    {
+        this.partnerName = partnerName;
+    }
+
+    public String getPartnerName()
+    {
+        return partnerName;
+    }
+    public void setPeriod(String period)
+    {
+        this.period = period;
+    }
+
+    public String getPeriod()
+    {
+        return period;
+    }
+    public void setOrderCount(Long orderCount)
+    {
+        this.orderCount = orderCount;
+    }
+
+    public Long getOrderCount()
+    {
+        return orderCount;
+    }
+    public void setOrderAmount(Long orderAmount)
+    {
+        this.orderAmount = orderAmount;
+    }
+
+    public Long getOrderAmount()
+    {
+        return orderAmount;
+    }
+    public void setBill(Long bill)
+    {
+        this.bill = bill;
+    }
+
+    public Long getBill()
+    {
+        return bill;
+    }
+    public void setProfitRatio(Long profitRatio)
+    {
+        this.profitRatio = profitRatio;
+    }
+
+    public Long getProfitRatio()
+    {
+        return profitRatio;
+    }
+    public void setShareAmount(Long shareAmount)
+    {
+        this.shareAmount = shareAmount;
+    }
+
+    public Long getShareAmount()
+    {
+        return shareAmount;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this,ToStringStyle.MULTI_LINE_STYLE)
+            .append("id", getId())
+            .append("partnerId", getPartnerId())
+            .append("partnerName", getPartnerName())
+            .append("period", getPeriod())
+            .append("orderCount", getOrderCount())
+            .append("orderAmount", getOrderAmount())
+            .append("bill", getBill())
+            .append("profitRatio", getProfitRatio())
+            .append("shareAmount", getShareAmount())
+            .append("createTime", getCreateTime())
+            .toString();
+    }
+}
@@ -0,0 +1,134 @@
+package com.dkd.manage.domain;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+import com.dkd.common.annotation.Excel;
+import com.dkd.common.core.domain.BaseEntity;
+
+/**
+ * 冗余字段同步任务对象 tb_propagation_job
+ * 
+ * @author itheima
+ */
+public class PropagationJob extends BaseEntity
+{
+    private static final long serialVersionUID = 1L;
+
+    /** 主键 */
+    private Long id;
+
+    /** 任务类型（node:点位 region:区域 role:角色） */
+    @Excel(name = "任务类型")
+    private String jobType;
+
+    /** 被修改的点位、区域或角色id */
+    @Excel(name = "来源id")
+    private Long sourceId;
+
+    /** 修订号（来源每次修改加1，执行中发现变化则从头重新同步） */
+    private Long revision;
+
+    /** 已同步到的目标行主键（断点） */
+    private Long lastId;
+
+    /** 本轮已同步行数 */
+    @Excel(name = "已同步行数")
+    private Long processedCount;
+
+    /** 状态（0:待执行 1:执行中 2:已完成 3:失败） */
+    @Excel(name = "状态", readConverterExp = "0=待执行,1=执行中,2=已完成,3=失败")
+    private Long status;
+
+    /** 失败原因 */
+    @Excel(name = "失败原因")
+    private String errorMsg;
+
+    public void setId(Long id)
+    {
+        this.id = id;
+    }
+
+    public Long getId()
+    {
+        return id;
+    }
+    public void setJobType(String jobType)
+    {
+        this.jobType = jobType;
+    }
+
+    public String getJobType()
+    {
+        return jobType;
+    }
+    public void setSourceId(Long sourceId)
+    {
+        this.sourceId = sourceId;
+    }
+
+    public Long getSourceId()
+    {
+        return sourceId;
+    }
+    public void setRevision(Long revision)
+    {
+        this.revision = revision;
+    }
+
+    public Long getRevision()
+    {
+        return revision;
+    }
+    public void setLastId(Long lastId)
+    {
+        this.lastId = lastId;
+    }
+
+    public Long getLastId()
+    {
+        return lastId;
+    }
+    public void setProcessedCount(Long processedCount)
+    {
+        this.processedCount = processedCount;
+    }
+
+    public Long getProcessedCount()
+    {
+        return processedCount;
+    }
+    public void setStatus(Long status)
+    {
+        this.status = status;
+    }
+
+    public Long getStatus()
+    {
+        return status;
+    }
+    public void setErrorMsg(String errorMsg)
+    {
+        this.errorMsg = errorMsg;
+    }
+
+    public String getErrorMsg()
+    {
+        return errorMsg;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this,ToStringStyle.MULTI_LINE_STYLE)
+            .append("id", getId())
+            .append("jobType", getJobType())
+            .append("sourceId", getSourceId())
+            .append("revision", getRevision())
+            .append("lastId", getLastId())
+            .append("processedCount", getProcessedCount())
+            .append("status", getStatus())
+            .append("errorMsg", getErrorMsg())
+            .append("createTime", getCreateTime())
+            .append("updateTime", getUpdateTime())
+            .toString();
+    }
+}
@@ -62,6 +62,9 @@ public class Task extends BaseEntity
     @Excel(name = "地址")
     private String addr;
 
+    /** 版本号 */
+    private Long version;
+
     public void setTaskId(Long taskId) 
     {
         this.taskId = taskId;
@@ -170,6 +173,15 @@ public class Task extends BaseEntity
     {
         return addr;
     }
+    public void setVersion(Long version) 
+    {
+        this.version = version;
+    }
+
+    public Long getVersion() 
+    {
+        return version;
+    }
 
     @Override
     public String toString() {
@@ -186,6 +198,7 @@ public class Task extends BaseEntity
             .append("productTypeId", getProductTypeId())
             .append("assignorId", getAssignorId())
             .append("addr", getAddr())
+            .append("version", getVersion())
             .append("createTime", getCreateTime())
             .append("updateTime", getUpdateTime())
             .toString();
@@ -70,6 +70,13 @@ public class VendingMachine extends BaseEntity
     /** 策略id */
     private Long policyId;
 
+    /** 在线状态 0:离线 1:在线 */
+    private Long onlineStatus;
+
+    /** 最后心跳时间 */
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private Date lastHeartbeatTime;
+
     public void setId(Long id) 
     {
         this.id = id;
@@ -214,6 +221,24 @@ public class VendingMachine extends BaseEntity
     {
         return policyId;
     }
+    public void setOnlineStatus(Long onlineStatus) 
+    {
+        this.onlineStatus = onlineStatus;
+    }
+
+    public Long getOnlineStatus() 
+    {
+        return onlineStatus;
+    }
+    public void setLastHeartbeatTime(Date lastHeartbeatTime) 
+    {
+        this.lastHeartbeatTime = lastHeartbeatTime;
+    }
+
+    public Date getLastHeartbeatTime() 
+    {
+        return lastHeartbeatTime;
+    }
 
     @Override
     public String toString() {
@@ -234,6 +259,8 @@ public class VendingMachine extends BaseEntity
             .append("latitude", getLatitude())
             .append("clientId", getClientId())
             .append("policyId", getPolicyId())
+            .append("onlineStatus", getOnlineStatus())
+            .append("lastHeartbeatTime", getLastHeartbeatTime())
             .append("createTime", getCreateTime())
             .append("updateTime", getUpdateTime())
             .toString();
@@ -0,0 +1,12 @@
+package com.dkd.manage.domain.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class ChannelBatchConfigDto {
+    private Long vmTypeId;//售货机类型id
+    private List<String> innerCodes;//限定的售货机编号，为空时配置该类型的全部售货机
+    private List<ChannelSkuDto> channelList;//货道编号和商品id
+}
@@ -0,0 +1,16 @@
+package com.dkd.manage.domain.dto;
+
+import lombok.Data;
+
+@Data
+public class ChannelSupplyDto {
+    private String innerCode; // 售货机编号
+    private String channelCode; // 货道编号
+    private Long skuId; // 商品id
+    private String skuName; // 商品名称
+    private String skuImage; // 商品图片
+    private Long maxCapacity; // 货道最大容量
+    private Long currentCapacity; // 货道当前容量
+    private Long regionId; // 售货机所属区域
+    private String addr; // 售货机地址
+}
@@ -0,0 +1,11 @@
+package com.dkd.manage.domain.dto;
+
+import lombok.Data;
+
+@Data
+public class EmpTaskLoadDto {
+    private Long id; // 员工id
+    private String userName; // 员工名称
+    private Long regionId; // 所属区域
+    private Long taskCount; // 未完成工单数
+}
@@ -0,0 +1,12 @@
+package com.dkd.manage.domain.dto;
+
+import lombok.Data;
+
+@Data
+public class FleetCountDto {
+    private Long regionId; // 区域id
+    private Long nodeId; // 点位id，点位计数时为空
+    private Long partnerId; // 合作商id
+    private Long vmStatus; // 设备状态，点位计数时为空
+    private Long count; // 数量
+}
@@ -0,0 +1,11 @@
+package com.dkd.manage.domain.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class PolicyApplyDto {
+    private Long policyId;//策略id，为空时取消设备的策略
+    private List<String> innerCodes;//设备编号
+}
@@ -0,0 +1,11 @@
+package com.dkd.manage.domain.dto;
+
+import lombok.Data;
+
+@Data
+public class SkuImportErrorDto {
+    private Integer rowNum; // Excel行号（从1开始，含表头）
+    private String skuName; // 商品名称，无法解析时为空
+    private String brandName; // 品牌，无法解析时为空
+    private String msg; // 错误原因
+}
@@ -0,0 +1,15 @@
+package com.dkd.manage.domain.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Data;
+
+@Data
+public class SkuImportResultDto {
+    private Integer totalCount = 0; // 读取的数据行数
+    private Integer successCount = 0; // 新增成功数
+    private Integer duplicateCount = 0; // 与已有商品或文件中前面的行重复（商品名称+品牌）而跳过的行数
+    private Integer failCount = 0; // 校验或写入失败的行数
+    private Boolean errorsTruncated = false; // 错误明细是否超过上限而被截断
+    private List<SkuImportErrorDto> errors = new ArrayList<>(); // 错误明细（含重复行）
+}
@@ -0,0 +1,14 @@
+package com.dkd.manage.domain.dto;
+
+import java.util.List;
+import com.dkd.manage.domain.Task;
+import lombok.Data;
+
+@Data
+public class TaskRouteDto {
+    private Long userId; // 运营员id
+    private String userName; // 运营员名称
+    private Double distance; // 路线总长度（米），不含无坐标的售货机
+    private Boolean planned; // 是否已规划，规划超时时按创建时间排列
+    private List<Task> taskList; // 按访问顺序排列的未完成工单
+}
@@ -0,0 +1,12 @@
+package com.dkd.manage.domain.dto;
+
+import lombok.Data;
+
+@Data
+public class VmGeoDto {
+    private Long id; // 售货机id
+    private String innerCode; // 售货机编号
+    private Double latitude; // 纬度（度）
+    private Double longitude; // 经度（度）
+    private Double distance; // 与查询点的距离（米），矩形查询时为空
+}
@@ -0,0 +1,10 @@
+package com.dkd.manage.domain.dto;
+
+import lombok.Data;
+
+@Data
+public class VmHeartbeatDto {
+    private String innerCode; // 售货机编号
+    private String clientId; // 客户端id，用于认证
+    private String runningStatus; // 运行状态，为空时只更新心跳时间
+}
@@ -0,0 +1,14 @@
+package com.dkd.manage.domain.dto;
+
+import lombok.Data;
+
+@Data
+public class VmProvisionResultDto {
+    private Integer index; // 请求中的序号（从0开始）
+    private Long vmTypeId; // 设备类型id
+    private Long nodeId; // 点位id
+    private Long id; // 新增设备id，失败时为空
+    private String innerCode; // 设备编号，失败时为空
+    private Boolean success; // 是否成功
+    private String msg; // 失败原因
+}
@@ -0,0 +1,49 @@
+package com.dkd.manage.event;
+
+import org.springframework.context.ApplicationEvent;
+import com.dkd.manage.domain.Task;
+
+/**
+ * 工单状态流转事件
+ *
+ * 在状态更新所在事务内发布，需要在提交后处理的监听方请使用@TransactionalEventListener；
+ * 新建工单时fromStatus为空。
+ *
+ * @author itheima
+ */
+public class TaskStatusEvent extends ApplicationEvent
+{
+    private static final long serialVersionUID = 1L;
+
+    /** 流转后的工单 */
+    private final Task task;
+
+    /** 原状态 */
+    private final Long fromStatus;
+
+    /** 新状态 */
+    private final Long toStatus;
+
+    public TaskStatusEvent(Object source, Task task, Long fromStatus, Long toStatus)
+    {
+        super(source);
+        this.task = task;
+        this.fromStatus = fromStatus;
+        this.toStatus = toStatus;
+    }
+
+    public Task getTask()
+    {
+        return task;
+    }
+
+    public Long getFromStatus()
+    {
+        return fromStatus;
+    }
+
+    public Long getToStatus()
+    {
+        return toStatus;
+    }
+}
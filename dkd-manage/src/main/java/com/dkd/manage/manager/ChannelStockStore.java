@@ -0,0 +1,493 @@
+package com.dkd.manage.manager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import com.dkd.common.constant.DkdContants;
+import com.dkd.common.exception.ServiceException;
+import com.dkd.framework.manager.ShutdownHook;
+import com.dkd.manage.domain.Channel;
+import com.dkd.manage.domain.Task;
+import com.dkd.manage.domain.TaskDetails;
+import com.dkd.manage.event.TaskStatusEvent;
+import com.dkd.manage.mapper.ChannelMapper;
+import com.dkd.manage.mapper.TaskDetailsMapper;
+
+/**
+ * 货道实时库存
+ *
+ * 每台售货机一个Redis哈希（货道编号 -> 当前库存），首次访问时从tb_channel加载。
+ * 出货通过Lua脚本原子地校验并扣减，补货原子地增加，变更的售货机记入脏集合；
+ * 后台线程定期从脏集合中认领一批售货机（原子地移入写回中哈希，同一台售货机同时只有一个节点在写回），
+ * 读取整机库存后合并为一条批量update写回tb_channel，成功后才移除写回中标记，失败时放回脏集合。
+ * 写回中标记超过flush-timeout未移除（节点在写回过程中退出）时放回脏集合重新写回。
+ * 对账时先写回，再把与数据库不一致、且既没有未写回变更也不在写回中的售货机缓存删除，下次访问重新加载。
+ *
+ * @author itheima
+ */
+@Component
+public class ChannelStockStore implements ShutdownHook
+{
+    private static final Logger log = LoggerFactory.getLogger(ChannelStockStore.class);
+
+    /** 售货机库存哈希的键前缀 */
+    private static final String STOCK_KEY = "dkd.stock.vm.";
+
+    /** 有未写回变更的售货机集合 */
+    private static final String DIRTY_KEY = "dkd.stock.dirty";
+
+    /** 写回中的售货机哈希（售货机编号 -> 认领时间） */
+    private static final String FLUSHING_KEY = "dkd.stock.flushing";
+
+    /** 已加载到Redis的售货机集合 */
+    private static final String LOADED_KEY = "dkd.stock.loaded";
+
+    /** 货道未加载 */
+    private static final long NOT_LOADED = -2;
+
+    /** 库存不足 */
+    private static final long NOT_ENOUGH = -1;
+
+    /** 键不存在时写入整机库存：KEYS[1]=哈希 KEYS[2]=已加载集合，ARGV[1]=售货机编号，之后为货道编号、库存交替 */
+    private static final DefaultRedisScript<Long> LOAD_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('exists', KEYS[1]) == 1 then\n" +
+            "    return 0\n" +
+            "end\n" +
+            "for i = 2, #ARGV, 2 do\n" +
+            "    redis.call('hset', KEYS[1], ARGV[i], ARGV[i + 1])\n" +
+            "end\n" +
+            "redis.call('sadd', KEYS[2], ARGV[1])\n" +
+            "return 1", Long.class);
+
+    /** 校验并扣减：KEYS[1]=哈希 KEYS[2]=脏集合，ARGV=货道编号、数量、售货机编号 */
+    private static final DefaultRedisScript<Long> VEND_SCRIPT = new DefaultRedisScript<>(
+            "local stock = redis.call('hget', KEYS[1], ARGV[1])\n" +
+            "if not stock then\n" +
+            "    return -2\n" +
+            "end\n" +
+            "stock = tonumber(stock)\n" +
+            "local quantity = tonumber(ARGV[2])\n" +
+            "if stock < quantity then\n" +
+            "    return -1\n" +
+            "end\n" +
+            "redis.call('hincrby', KEYS[1], ARGV[1], -quantity)\n" +
+            "redis.call('sadd', KEYS[2], ARGV[3])\n" +
+            "return stock - quantity", Long.class);
+
+    /** 增加库存：KEYS[1]=哈希 KEYS[2]=脏集合，ARGV=货道编号、数量、售货机编号 */
+    private static final DefaultRedisScript<Long> SUPPLY_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('hexists', KEYS[1], ARGV[1]) == 0 then\n" +
+            "    return -2\n" +
+            "end\n" +
+            "local stock = redis.call('hincrby', KEYS[1], ARGV[1], ARGV[2])\n" +
+            "redis.call('sadd', KEYS[2], ARGV[3])\n" +
+            "return stock", Long.class);
+
+    /** 没有未写回变更且不在写回中时删除缓存：KEYS[1]=哈希 KEYS[2]=脏集合 KEYS[3]=已加载集合 KEYS[4]=写回中哈希，ARGV[1]=售货机编号 */
+    private static final DefaultRedisScript<Long> EVICT_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('sismember', KEYS[2], ARGV[1]) == 1 or redis.call('hexists', KEYS[4], ARGV[1]) == 1 then\n" +
+            "    return 0\n" +
+            "end\n" +
+            "redis.call('del', KEYS[1])\n" +
+            "redis.call('srem', KEYS[3], ARGV[1])\n" +
+            "return 1", Long.class);
+
+    /** 认领写回：不在写回中的从脏集合移入写回中哈希：KEYS[1]=脏集合 KEYS[2]=写回中哈希，ARGV[1]=认领时间，之后为售货机编号 */
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> CLAIM_SCRIPT = new DefaultRedisScript<>(
+            "local claimed = {}\n" +
+            "for i = 2, #ARGV do\n" +
+            "    if redis.call('hexists', KEYS[2], ARGV[i]) == 0 and redis.call('srem', KEYS[1], ARGV[i]) == 1 then\n" +
+            "        redis.call('hset', KEYS[2], ARGV[i], ARGV[1])\n" +
+            "        claimed[#claimed + 1] = ARGV[i]\n" +
+            "    end\n" +
+            "end\n" +
+            "return claimed", List.class);
+
+    /** 认领时间未变时放回脏集合：KEYS[1]=脏集合 KEYS[2]=写回中哈希，ARGV[1]=售货机编号 ARGV[2]=认领时间 */
+    private static final DefaultRedisScript<Long> REQUEUE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('hget', KEYS[2], ARGV[1]) ~= ARGV[2] then\n" +
+            "    return 0\n" +
+            "end\n" +
+            "redis.call('sadd', KEYS[1], ARGV[1])\n" +
+            "redis.call('hdel', KEYS[2], ARGV[1])\n" +
+            "return 1", Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private ChannelMapper channelMapper;
+
+    @Autowired
+    private TaskDetailsMapper taskDetailsMapper;
+
+    /** 写回间隔（毫秒） */
+    @Value("${dkd.stock.flush-interval:1000}")
+    private long flushInterval;
+
+    /** 每次写回的售货机数 */
+    @Value("${dkd.stock.batch-size:200}")
+    private int batchSize;
+
+    /** 写回中标记超过该时长视为写回节点已退出（秒） */
+    @Value("${dkd.stock.flush-timeout:60}")
+    private int flushTimeout;
+
+    private final Object flushLock = new Object();
+
+    private Thread flusher;
+
+    private volatile boolean running;
+
+    @PostConstruct
+    public void init()
+    {
+        running = true;
+        flusher = new Thread(this::flushLoop, "channel-stock-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * 出货扣减库存
+     *
+     * @param innerCode 售货机编号
+     * @param channelCode 货道编号
+     * @param quantity 数量
+     * @return 扣减后的库存，库存不足时返回-1
+     */
+    public long vend(String innerCode, String channelCode, long quantity)
+    {
+        return change(VEND_SCRIPT, innerCode, channelCode, quantity);
+    }
+
+    /**
+     * 补货增加库存
+     *
+     * @param innerCode 售货机编号
+     * @param channelCode 货道编号
+     * @param quantity 数量
+     * @return 增加后的库存
+     */
+    public long supply(String innerCode, String channelCode, long quantity)
+    {
+        return change(SUPPLY_SCRIPT, innerCode, channelCode, quantity);
+    }
+
+    /**
+     * 查询整机库存，已加载时一次往返
+     *
+     * @param innerCode 售货机编号
+     * @return 货道编号 -> 当前库存
+     */
+    public Map<String, Long> getStock(String innerCode)
+    {
+        Map<String, Long> stock = readStock(innerCode);
+        if (stock.isEmpty())
+        {
+            load(innerCode);
+            stock = readStock(innerCode);
+        }
+        return stock;
+    }
+
+    /**
+     * 数据库中的货道库存被直接修改后，同步更新已加载的缓存
+     *
+     * @param innerCode 售货机编号
+     * @param channelCode 货道编号
+     * @param currentCapacity 当前库存
+     */
+    public void reset(String innerCode, String channelCode, long currentCapacity)
+    {
+        String key = STOCK_KEY + innerCode;
+        if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(key)))
+        {
+            stringRedisTemplate.opsForHash().put(key, channelCode, String.valueOf(currentCapacity));
+        }
+    }
+
+    /**
+     * 补货工单完成后按工单详情增加库存
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTaskStatus(TaskStatusEvent event)
+    {
+        Task task = event.getTask();
+        if (!DkdContants.TASK_STATUS_FINISH.equals(event.getToStatus())
+                || !DkdContants.TASK_TYPE_SUPPLY.equals(task.getProductTypeId()))
+        {
+            return;
+        }
+        TaskDetails query = new TaskDetails();
+        query.setTaskId(task.getTaskId());
+        for (TaskDetails details : taskDetailsMapper.selectTaskDetailsList(query))
+        {
+            if (details.getExpectCapacity() != null && details.getExpectCapacity() > 0)
+            {
+                supply(task.getInnerCode(), details.getChannelCode(), details.getExpectCapacity());
+            }
+        }
+    }
+
+    /**
+     * 把有变更的售货机库存写回数据库
+     *
+     * @return 写回的售货机数
+     */
+    public int flush()
+    {
+        synchronized (flushLock)
+        {
+            requeueStale();
+            int total = 0;
+            while (true)
+            {
+                List<String> innerCodes = claim();
+                if (innerCodes.isEmpty())
+                {
+                    return total;
+                }
+                String[] members = innerCodes.toArray(new String[0]);
+                try
+                {
+                    writeBack(innerCodes);
+                }
+                catch (RuntimeException e)
+                {
+                    // 写回失败时先重新标记再移除写回中标记，任何时刻至少保留一个标记，对账不会删除缓存
+                    stringRedisTemplate.opsForSet().add(DIRTY_KEY, members);
+                    stringRedisTemplate.opsForHash().delete(FLUSHING_KEY, (Object[]) members);
+                    throw e;
+                }
+                // 写回期间又有变更的售货机已重新进入脏集合，下一轮再写回
+                stringRedisTemplate.opsForHash().delete(FLUSHING_KEY, (Object[]) members);
+                total += innerCodes.size();
+            }
+        }
+    }
+
+    /**
+     * 对账：写回全部变更后，删除与数据库不一致的售货机缓存
+     *
+     * @return 删除缓存的售货机数
+     */
+    public int reconcile()
+    {
+        synchronized (flushLock)
+        {
+            flush();
+            Set<String> loaded = stringRedisTemplate.opsForSet().members(LOADED_KEY);
+            if (loaded == null || loaded.isEmpty())
+            {
+                return 0;
+            }
+            int evicted = 0;
+            List<String> innerCodes = new ArrayList<>(loaded);
+            for (int i = 0; i < innerCodes.size(); i += batchSize)
+            {
+                List<String> batch = innerCodes.subList(i, Math.min(i + batchSize, innerCodes.size()));
+                Map<String, Map<String, Long>> dbStock = new HashMap<>();
+                for (Channel channel : channelMapper.selectChannelStockList(batch))
+                {
+                    dbStock.computeIfAbsent(channel.getInnerCode(), k -> new HashMap<>())
+                            .put(channel.getChannelCode(), capacity(channel));
+                }
+                for (String innerCode : batch)
+                {
+                    Map<String, Long> cached = readStock(innerCode);
+                    if (!cached.equals(dbStock.getOrDefault(innerCode, Collections.emptyMap())) && evict(innerCode))
+                    {
+                        evicted++;
+                    }
+                }
+            }
+            log.info("货道库存对账完成，已加载售货机{}台，删除不一致缓存{}台", innerCodes.size(), evicted);
+            return evicted;
+        }
+    }
+
+    private long change(DefaultRedisScript<Long> script, String innerCode, String channelCode, long quantity)
+    {
+        if (quantity <= 0)
+        {
+            throw new ServiceException("数量必须大于0");
+        }
+        List<String> keys = Arrays.asList(STOCK_KEY + innerCode, DIRTY_KEY);
+        String[] args = { channelCode, String.valueOf(quantity), innerCode };
+        Long result = stringRedisTemplate.execute(script, keys, (Object[]) args);
+        if (result != null && result == NOT_LOADED)
+        {
+            load(innerCode);
+            result = stringRedisTemplate.execute(script, keys, (Object[]) args);
+        }
+        if (result == null || result == NOT_LOADED)
+        {
+            throw new ServiceException("货道不存在");
+        }
+        return result == NOT_ENOUGH ? NOT_ENOUGH : result;
+    }
+
+    /**
+     * 从数据库加载整机库存，已被其他线程加载时不覆盖
+     */
+    private void load(String innerCode)
+    {
+        Channel query = new Channel();
+        query.setInnerCode(innerCode);
+        List<Channel> channels = channelMapper.selectChannelList(query);
+        if (channels.isEmpty())
+        {
+            return;
+        }
+        List<String> args = new ArrayList<>(channels.size() * 2 + 1);
+        args.add(innerCode);
+        for (Channel channel : channels)
+        {
+            args.add(channel.getChannelCode());
+            args.add(String.valueOf(capacity(channel)));
+        }
+        stringRedisTemplate.execute(LOAD_SCRIPT, Arrays.asList(STOCK_KEY + innerCode, LOADED_KEY), args.toArray());
+    }
+
+    private boolean evict(String innerCode)
+    {
+        Long result = stringRedisTemplate.execute(EVICT_SCRIPT,
+                Arrays.asList(STOCK_KEY + innerCode, DIRTY_KEY, LOADED_KEY, FLUSHING_KEY), innerCode);
+        return result != null && result == 1;
+    }
+
+    /**
+     * 从脏集合中认领一批售货机，其他节点写回中的跳过
+     */
+    @SuppressWarnings("unchecked")
+    private List<String> claim()
+    {
+        Set<String> candidates = stringRedisTemplate.opsForSet().distinctRandomMembers(DIRTY_KEY, batchSize);
+        if (candidates == null || candidates.isEmpty())
+        {
+            return Collections.emptyList();
+        }
+        List<String> args = new ArrayList<>(candidates.size() + 1);
+        args.add(String.valueOf(System.currentTimeMillis()));
+        args.addAll(candidates);
+        List<String> claimed = stringRedisTemplate.execute(CLAIM_SCRIPT, Arrays.asList(DIRTY_KEY, FLUSHING_KEY), args.toArray());
+        return claimed == null ? Collections.emptyList() : claimed;
+    }
+
+    /**
+     * 认领后超过flush-timeout仍未完成的写回（节点已退出）放回脏集合
+     */
+    private void requeueStale()
+    {
+        long claimedBefore = System.currentTimeMillis() - flushTimeout * 1000L;
+        for (Map.Entry<Object, Object> entry : stringRedisTemplate.opsForHash().entries(FLUSHING_KEY).entrySet())
+        {
+            if (Long.parseLong((String) entry.getValue()) >= claimedBefore)
+            {
+                continue;
+            }
+            Long result = stringRedisTemplate.execute(REQUEUE_SCRIPT, Arrays.asList(DIRTY_KEY, FLUSHING_KEY), entry.getKey(), entry.getValue());
+            if (result != null && result == 1)
+            {
+                log.warn("售货机{}的库存写回超时未完成，重新写回", entry.getKey());
+            }
+        }
+    }
+
+    private void writeBack(List<String> innerCodes)
+    {
+        List<Channel> changed = new ArrayList<>();
+        for (String innerCode : innerCodes)
+        {
+            for (Map.Entry<String, Long> entry : readStock(innerCode).entrySet())
+            {
+                Channel channel = new Channel();
+                channel.setInnerCode(innerCode);
+                channel.setChannelCode(entry.getKey());
+                channel.setCurrentCapacity(entry.getValue());
+                changed.add(channel);
+            }
+        }
+        for (int i = 0; i < changed.size(); i += batchSize)
+        {
+            channelMapper.batchUpdateChannelCapacity(changed.subList(i, Math.min(i + batchSize, changed.size())));
+        }
+    }
+
+    private Map<String, Long> readStock(String innerCode)
+    {
+        Map<Object, Object> entries = stringRedisTemplate.opsForHash().entries(STOCK_KEY + innerCode);
+        Map<String, Long> stock = new HashMap<>(entries.size());
+        for (Map.Entry<Object, Object> entry : entries.entrySet())
+        {
+            stock.put((String) entry.getKey(), Long.valueOf((String) entry.getValue()));
+        }
+        return stock;
+    }
+
+    private static long capacity(Channel channel)
+    {
+        return channel.getCurrentCapacity() == null ? 0L : channel.getCurrentCapacity();
+    }
+
+    private void flushLoop()
+    {
+        while (running)
+        {
+            try
+            {
+                Thread.sleep(flushInterval);
+                flush();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            catch (Exception e)
+            {
+                log.error("货道库存写回异常", e);
+            }
+        }
+    }
+
+    /**
+     * 停止后台线程并写回剩余变更
+     */
+    @Override
+    public void shutdown()
+    {
+        running = false;
+        try
+        {
+            flusher.join(flushInterval * 2);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        try
+        {
+            flush();
+        }
+        catch (Exception e)
+        {
+            log.error("停机时货道库存写回失败", e);
+        }
+    }
+}
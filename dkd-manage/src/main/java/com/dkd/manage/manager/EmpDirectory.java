@@ -0,0 +1,236 @@
+package com.dkd.manage.manager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import com.dkd.common.utils.StringUtils;
+import com.dkd.manage.domain.Emp;
+import com.dkd.manage.mapper.EmpMapper;
+
+/**
+ * 员工目录
+ *
+ * 启动时加载全部员工，按id和"区域:角色编码:状态"建立索引，工单指派时的员工查询不再访问数据库。
+ * 员工修改的事务提交后重新读取该员工并重建索引，同时通过Redis频道通知其他节点做同样的刷新；
+ * 消息内容为"节点标识|逗号分隔的员工id"，"*"表示全部重新加载；本节点发出的通知不再重复刷新。
+ *
+ * @author itheima
+ */
+@Component
+public class EmpDirectory implements MessageListener
+{
+    private static final Logger log = LoggerFactory.getLogger(EmpDirectory.class);
+
+    /** 员工变更通知频道 */
+    private static final String CHANNEL = "dkd.emp.changed";
+
+    /** 全部重新加载 */
+    private static final String ALL = "*";
+
+    @Autowired
+    private EmpMapper empMapper;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    /** 员工id -> 员工 */
+    private final Map<Long, Emp> emps = new ConcurrentHashMap<>();
+
+    /** 区域:角色编码:状态 -> 员工列表（只读） */
+    private volatile Map<String, List<Emp>> index = Collections.emptyMap();
+
+    @PostConstruct
+    public void init()
+    {
+        reload();
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+    }
+
+    /**
+     * 按id获取员工
+     *
+     * @param id 员工id
+     * @return 员工，不存在时为空
+     */
+    public Emp get(Long id)
+    {
+        return id == null ? null : emps.get(id);
+    }
+
+    /**
+     * 按区域、角色、状态查询员工
+     *
+     * @param regionId 区域id
+     * @param roleCode 角色编码
+     * @param status 员工状态
+     * @return 员工列表（只读）
+     */
+    public List<Emp> list(Long regionId, String roleCode, Integer status)
+    {
+        List<Emp> list = index.get(key(regionId, roleCode, status));
+        return list == null ? Collections.emptyList() : list;
+    }
+
+    /**
+     * 员工已修改，在事务中调用时提交后刷新本节点并通知其他节点
+     *
+     * @param ids 员工id
+     */
+    public void changed(Long... ids)
+    {
+        publish(StringUtils.join(ids, ","));
+    }
+
+    /**
+     * 员工批量修改（如区域改名），提交后全部重新加载
+     */
+    public void changedAll()
+    {
+        publish(ALL);
+    }
+
+    /**
+     * 全部重新加载
+     */
+    public synchronized void reload()
+    {
+        Map<Long, Emp> loaded = new HashMap<>();
+        for (Emp emp : empMapper.selectEmpList(new Emp()))
+        {
+            loaded.put(emp.getId(), emp);
+        }
+        emps.putAll(loaded);
+        emps.keySet().retainAll(loaded.keySet());
+        rebuildIndex();
+        log.info("员工目录加载完成，共{}人", emps.size());
+    }
+
+    /**
+     * 重新读取指定员工
+     */
+    public synchronized void reload(List<Long> ids)
+    {
+        for (Long id : ids)
+        {
+            Emp emp = empMapper.selectEmpById(id);
+            if (emp == null)
+            {
+                emps.remove(id);
+            }
+            else
+            {
+                emps.put(id, emp);
+            }
+        }
+        rebuildIndex();
+    }
+
+    /**
+     * 其他节点发来的变更通知
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern)
+    {
+        String body = NodeMessage.unwrap(message);
+        if (body == null)
+        {
+            return;
+        }
+        try
+        {
+            apply(body);
+        }
+        catch (Exception e)
+        {
+            log.error("员工目录刷新失败，通知内容：{}", body, e);
+        }
+    }
+
+    private void publish(String body)
+    {
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+        {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization()
+            {
+                @Override
+                public void afterCommit()
+                {
+                    applyAndSend(body);
+                }
+            });
+        }
+        else
+        {
+            applyAndSend(body);
+        }
+    }
+
+    /**
+     * 本节点立即刷新，保证写入后马上可读；其他节点由频道通知
+     */
+    private void applyAndSend(String body)
+    {
+        apply(body);
+        stringRedisTemplate.convertAndSend(CHANNEL, NodeMessage.wrap(body));
+    }
+
+    private void apply(String body)
+    {
+        if (ALL.equals(body))
+        {
+            reload();
+            return;
+        }
+        List<Long> ids = new ArrayList<>();
+        for (String id : body.split(","))
+        {
+            if (StringUtils.isNotEmpty(id))
+            {
+                ids.add(Long.valueOf(id.trim()));
+            }
+        }
+        if (!ids.isEmpty())
+        {
+            reload(ids);
+        }
+    }
+
+    private void rebuildIndex()
+    {
+        Map<String, List<Emp>> rebuilt = new HashMap<>();
+        for (Emp emp : emps.values())
+        {
+            rebuilt.computeIfAbsent(key(emp.getRegionId(), emp.getRoleCode(), emp.getStatus()), k -> new ArrayList<>()).add(emp);
+        }
+        for (Map.Entry<String, List<Emp>> entry : rebuilt.entrySet())
+        {
+            List<Emp> list = entry.getValue();
+            list.sort((a, b) -> Long.compare(a.getId(), b.getId()));
+            entry.setValue(Collections.unmodifiableList(list));
+        }
+        index = rebuilt;
+    }
+
+    private static String key(Long regionId, String roleCode, Integer status)
+    {
+        return regionId + ":" + roleCode + ":" + status;
+    }
+}
@@ -0,0 +1,413 @@
+package com.dkd.manage.manager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import com.dkd.manage.domain.Node;
+import com.dkd.manage.domain.VendingMachine;
+import com.dkd.manage.domain.dto.FleetCountDto;
+import com.dkd.manage.mapper.NodeMapper;
+import com.dkd.manage.mapper.VendingMachineMapper;
+
+/**
+ * 设备和点位计数
+ *
+ * 按区域、点位、合作商统计各状态的设备数，按区域、合作商统计点位数，保存在Redis hash中：
+ * vm:{region|node|partner}:{id}为设备总数，后缀:{vmStatus}为该状态的设备数，node:{region|partner}:{id}为点位数。
+ * 设备和点位的增删改在事务提交后以HINCRBY累加，本地保留一份副本，超过refresh-interval后从Redis重新读取，
+ * 以获得其他节点的修改。对账任务按数据库重新统计并修正Redis中不一致的项。
+ *
+ * @author itheima
+ */
+@Component
+public class FleetCounters
+{
+    private static final Logger log = LoggerFactory.getLogger(FleetCounters.class);
+
+    /** 计数hash的键 */
+    private static final String COUNTER_KEY = "dkd.fleet.counters";
+
+    @Autowired
+    private VendingMachineMapper vendingMachineMapper;
+
+    @Autowired
+    private NodeMapper nodeMapper;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    /** 本地副本的刷新间隔（毫秒） */
+    @Value("${dkd.fleet.refresh-interval:5000}")
+    private long refreshInterval;
+
+    /** 本地副本 */
+    private volatile Map<String, Long> counters = new ConcurrentHashMap<>();
+
+    private volatile long refreshedAt;
+
+    /**
+     * 加载计数，Redis中没有时按数据库统计
+     */
+    @PostConstruct
+    public void init()
+    {
+        if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(COUNTER_KEY)))
+        {
+            refresh();
+        }
+        else
+        {
+            verify();
+        }
+    }
+
+    /**
+     * 点位的设备数
+     */
+    public int nodeVmCount(Long nodeId)
+    {
+        return get("vm:node:" + nodeId);
+    }
+
+    /**
+     * 区域的点位数
+     */
+    public int regionNodeCount(Long regionId)
+    {
+        return get("node:region:" + regionId);
+    }
+
+    /**
+     * 合作商的点位数
+     */
+    public int partnerNodeCount(Long partnerId)
+    {
+        return get("node:partner:" + partnerId);
+    }
+
+    /**
+     * 各状态的设备数
+     *
+     * @param dimension region、node或partner
+     * @param id 区域、点位或合作商id
+     * @return 设备状态 -> 设备数
+     */
+    public Map<Long, Long> vmStatusCount(String dimension, Long id)
+    {
+        String prefix = "vm:" + dimension + ":" + id + ":";
+        Map<Long, Long> result = new HashMap<>();
+        for (Map.Entry<String, Long> entry : snapshot().entrySet())
+        {
+            if (entry.getKey().startsWith(prefix) && entry.getValue() != 0)
+            {
+                result.put(Long.valueOf(entry.getKey().substring(prefix.length())), entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 新增设备
+     */
+    public void vmAdded(List<VendingMachine> vms)
+    {
+        Map<String, Long> deltas = new HashMap<>();
+        for (VendingMachine vm : vms)
+        {
+            addVm(deltas, vm, 1);
+        }
+        apply(deltas);
+    }
+
+    /**
+     * 修改设备（区域、点位、合作商或状态变化）
+     *
+     * @param before 修改前
+     * @param after 修改后
+     */
+    public void vmChanged(VendingMachine before, VendingMachine after)
+    {
+        Map<String, Long> deltas = new HashMap<>();
+        addVm(deltas, before, -1);
+        addVm(deltas, after, 1);
+        apply(deltas);
+    }
+
+    /**
+     * 删除设备
+     */
+    public void vmRemoved(List<VendingMachine> vms)
+    {
+        Map<String, Long> deltas = new HashMap<>();
+        for (VendingMachine vm : vms)
+        {
+            addVm(deltas, vm, -1);
+        }
+        apply(deltas);
+    }
+
+    /**
+     * 新增点位
+     */
+    public void nodeAdded(Node node)
+    {
+        Map<String, Long> deltas = new HashMap<>();
+        addNode(deltas, node, 1);
+        apply(deltas);
+    }
+
+    /**
+     * 修改点位（区域或合作商变化）
+     *
+     * @param before 修改前
+     * @param after 修改后
+     */
+    public void nodeChanged(Node before, Node after)
+    {
+        Map<String, Long> deltas = new HashMap<>();
+        addNode(deltas, before, -1);
+        addNode(deltas, after, 1);
+        apply(deltas);
+    }
+
+    /**
+     * 删除点位
+     */
+    public void nodeRemoved(List<Node> nodes)
+    {
+        Map<String, Long> deltas = new HashMap<>();
+        for (Node node : nodes)
+        {
+            addNode(deltas, node, -1);
+        }
+        apply(deltas);
+    }
+
+    /**
+     * 删除区域时移除该区域的计数，在事务中调用时提交后生效
+     */
+    public void regionRemoved(Long... regionIds)
+    {
+        afterCommit(() -> {
+            List<Object> fields = new ArrayList<>();
+            for (Long regionId : regionIds)
+            {
+                String vmPrefix = "vm:region:" + regionId + ":";
+                for (String field : snapshot().keySet())
+                {
+                    if (field.startsWith(vmPrefix))
+                    {
+                        fields.add(field);
+                    }
+                }
+                fields.add("vm:region:" + regionId);
+                fields.add("node:region:" + regionId);
+            }
+            stringRedisTemplate.opsForHash().delete(COUNTER_KEY, fields.toArray());
+            for (Object field : fields)
+            {
+                counters.remove(field);
+            }
+        });
+    }
+
+    /**
+     * 按数据库重新统计，修正Redis中不一致的计数
+     *
+     * 统计期间发生的增删改可能被覆盖，应在业务低峰执行
+     *
+     * @return 修正的项数
+     */
+    public int verify()
+    {
+        Map<String, Long> expected = new HashMap<>();
+        for (FleetCountDto count : vendingMachineMapper.selectFleetCountList())
+        {
+            VendingMachine vm = new VendingMachine();
+            vm.setRegionId(count.getRegionId());
+            vm.setNodeId(count.getNodeId());
+            vm.setPartnerId(count.getPartnerId());
+            vm.setVmStatus(count.getVmStatus());
+            addVm(expected, vm, count.getCount());
+        }
+        for (FleetCountDto count : nodeMapper.selectFleetCountList())
+        {
+            Node node = new Node();
+            node.setRegionId(count.getRegionId());
+            node.setPartnerId(count.getPartnerId());
+            addNode(expected, node, count.getCount());
+        }
+        Map<String, Long> actual = load();
+        Map<String, String> fix = new LinkedHashMap<>();
+        List<Object> stale = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : expected.entrySet())
+        {
+            if (!Objects.equals(entry.getValue(), actual.get(entry.getKey())))
+            {
+                fix.put(entry.getKey(), entry.getValue().toString());
+            }
+        }
+        for (String field : actual.keySet())
+        {
+            if (!expected.containsKey(field))
+            {
+                stale.add(field);
+            }
+        }
+        if (!fix.isEmpty())
+        {
+            stringRedisTemplate.opsForHash().putAll(COUNTER_KEY, fix);
+        }
+        if (!stale.isEmpty())
+        {
+            stringRedisTemplate.opsForHash().delete(COUNTER_KEY, stale.toArray());
+        }
+        int drift = fix.size() + stale.size();
+        if (drift > 0)
+        {
+            log.warn("设备和点位计数与数据库不一致，已修正{}项", drift);
+        }
+        refresh();
+        return drift;
+    }
+
+    private static void addVm(Map<String, Long> deltas, VendingMachine vm, long delta)
+    {
+        if (vm == null)
+        {
+            return;
+        }
+        addVm(deltas, "region", vm.getRegionId(), vm.getVmStatus(), delta);
+        addVm(deltas, "node", vm.getNodeId(), vm.getVmStatus(), delta);
+        addVm(deltas, "partner", vm.getPartnerId(), vm.getVmStatus(), delta);
+    }
+
+    private static void addVm(Map<String, Long> deltas, String dimension, Long id, Long vmStatus, long delta)
+    {
+        if (id == null)
+        {
+            return;
+        }
+        String field = "vm:" + dimension + ":" + id;
+        deltas.merge(field, delta, Long::sum);
+        if (vmStatus != null)
+        {
+            deltas.merge(field + ":" + vmStatus, delta, Long::sum);
+        }
+    }
+
+    private static void addNode(Map<String, Long> deltas, Node node, long delta)
+    {
+        if (node == null)
+        {
+            return;
+        }
+        if (node.getRegionId() != null)
+        {
+            deltas.merge("node:region:" + node.getRegionId(), delta, Long::sum);
+        }
+        if (node.getPartnerId() != null)
+        {
+            deltas.merge("node:partner:" + node.getPartnerId(), delta, Long::sum);
+        }
+    }
+
+    /**
+     * 提交后在一次管道中累加，并用返回的新值更新本地副本
+     */
+    private void apply(Map<String, Long> deltas)
+    {
+        deltas.values().removeIf(delta -> delta == 0);
+        if (deltas.isEmpty())
+        {
+            return;
+        }
+        afterCommit(() -> {
+            List<String> fields = new ArrayList<>(deltas.keySet());
+            List<Object> values = stringRedisTemplate.executePipelined(new RedisCallback<Object>()
+            {
+                @Override
+                public Object doInRedis(RedisConnection connection) throws DataAccessException
+                {
+                    byte[] key = COUNTER_KEY.getBytes(StandardCharsets.UTF_8);
+                    for (String field : fields)
+                    {
+                        connection.hIncrBy(key, field.getBytes(StandardCharsets.UTF_8), deltas.get(field));
+                    }
+                    return null;
+                }
+            });
+            for (int i = 0; i < fields.size(); i++)
+            {
+                counters.put(fields.get(i), (Long) values.get(i));
+            }
+        });
+    }
+
+    private int get(String field)
+    {
+        Long count = snapshot().get(field);
+        return count == null ? 0 : count.intValue();
+    }
+
+    private Map<String, Long> snapshot()
+    {
+        if (System.currentTimeMillis() - refreshedAt > refreshInterval)
+        {
+            refresh();
+        }
+        return counters;
+    }
+
+    private void refresh()
+    {
+        counters = new ConcurrentHashMap<>(load());
+        refreshedAt = System.currentTimeMillis();
+    }
+
+    private Map<String, Long> load()
+    {
+        Map<String, Long> result = new HashMap<>();
+        for (Map.Entry<Object, Object> entry : stringRedisTemplate.opsForHash().entries(COUNTER_KEY).entrySet())
+        {
+            result.put(entry.getKey().toString(), Long.valueOf(entry.getValue().toString()));
+        }
+        return result;
+    }
+
+    private static void afterCommit(Runnable action)
+    {
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+        {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization()
+            {
+                @Override
+                public void afterCommit()
+                {
+                    action.run();
+                }
+            });
+        }
+        else
+        {
+            action.run();
+        }
+    }
+}
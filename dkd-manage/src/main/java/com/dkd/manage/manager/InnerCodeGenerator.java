@@ -0,0 +1,123 @@
+package com.dkd.manage.manager;
+
+import javax.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * 售货机编号生成器
+ *
+ * 从Redis租借的全局序号经过[0, 62^8)上的Feistel置换打散后编码为8位62进制字符串。
+ * 置换是双射，序号不重复则编号不重复；本地分配只有AtomicLong自增和纯计算，无锁。
+ * 密钥一经使用不能修改，否则新旧编号可能重复。
+ *
+ * @author itheima
+ */
+@Component
+public class InnerCodeGenerator
+{
+    /** 售货机编号序列的键 */
+    private static final String INNER_CODE_KEY = "dkd.vm.inner.code";
+
+    /** 编号字符集 */
+    private static final char[] ALPHABET = "abcdefghijklmnopqrstuvwxyz0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray();
+
+    /** 编号长度 */
+    private static final int CODE_LENGTH = 8;
+
+    /** 编号空间大小 62^8 */
+    private static final long CODE_SPACE = 218340105584896L;
+
+    /** Feistel每半的位数，2^48 > 62^8 */
+    private static final int HALF_BITS = 24;
+
+    private static final long HALF_MASK = (1L << HALF_BITS) - 1;
+
+    private static final int ROUNDS = 6;
+
+    @Autowired
+    private RedisTemplate<Object, Object> redisTemplate;
+
+    /** 每次租借的号段长度 */
+    @Value("${dkd.vm.code.block-size:1000}")
+    private int blockSize;
+
+    /** 置换密钥 */
+    @Value("${dkd.vm.code.secret:5381}")
+    private long secret;
+
+    private SegmentSequence sequence;
+
+    private long[] roundKeys;
+
+    @PostConstruct
+    public void init()
+    {
+        sequence = new SegmentSequence(redisTemplate, INNER_CODE_KEY, blockSize, 0);
+        roundKeys = new long[ROUNDS];
+        long k = secret;
+        for (int i = 0; i < ROUNDS; i++)
+        {
+            k = mix(k + 0x9E3779B97F4A7C15L);
+            roundKeys[i] = k;
+        }
+    }
+
+    /**
+     * 生成一个售货机编号
+     */
+    public String nextCode()
+    {
+        return encode(permute((sequence.next() - 1) % CODE_SPACE));
+    }
+
+    /**
+     * [0, 62^8)上的置换：48位Feistel网络，结果超出范围时继续置换（cycle walking）
+     */
+    private long permute(long value)
+    {
+        long x = value;
+        do
+        {
+            x = feistel(x);
+        }
+        while (x >= CODE_SPACE);
+        return x;
+    }
+
+    private long feistel(long value)
+    {
+        long left = value >>> HALF_BITS;
+        long right = value & HALF_MASK;
+        for (int i = 0; i < ROUNDS; i++)
+        {
+            long next = left ^ (mix(right ^ roundKeys[i]) & HALF_MASK);
+            left = right;
+            right = next;
+        }
+        return (left << HALF_BITS) | right;
+    }
+
+    private static String encode(long value)
+    {
+        char[] code = new char[CODE_LENGTH];
+        for (int i = CODE_LENGTH - 1; i >= 0; i--)
+        {
+            code[i] = ALPHABET[(int) (value % ALPHABET.length)];
+            value /= ALPHABET.length;
+        }
+        return new String(code);
+    }
+
+    /**
+     * 64位混淆函数（SplitMix64终止步骤）
+     */
+    private static long mix(long z)
+    {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
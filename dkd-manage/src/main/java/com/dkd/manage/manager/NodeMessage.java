@@ -0,0 +1,54 @@
+package com.dkd.manage.manager;
+
+import java.nio.charset.StandardCharsets;
+import org.springframework.data.redis.connection.Message;
+import com.dkd.common.utils.uuid.IdUtils;
+
+/**
+ * 节点间变更通知的消息格式
+ *
+ * 消息内容为"节点标识|内容"，节点标识在进程启动时随机生成。发送方在发送前已经刷新了本地缓存，
+ * 收到自己发出的消息时直接忽略，不再重复加载。
+ *
+ * @author itheima
+ */
+public final class NodeMessage
+{
+    /** 本进程的节点标识 */
+    public static final String NODE_ID = IdUtils.fastSimpleUUID();
+
+    private static final char SEPARATOR = '|';
+
+    private NodeMessage()
+    {
+    }
+
+    /**
+     * 加上本节点标识
+     *
+     * @param body 消息内容
+     * @return 待发送的消息
+     */
+    public static String wrap(String body)
+    {
+        return NODE_ID + SEPARATOR + body;
+    }
+
+    /**
+     * 取出其他节点发来的消息内容
+     *
+     * @param message 频道消息
+     * @return 消息内容，本节点发出的消息返回null
+     */
+    public static String unwrap(Message message)
+    {
+        String text = new String(message.getBody(), StandardCharsets.UTF_8);
+        int index = text.indexOf(SEPARATOR);
+        if (index < 0)
+        {
+            // 未升级的节点发来的消息不带节点标识
+            return text;
+        }
+        return NODE_ID.equals(text.substring(0, index)) ? null : text.substring(index + 1);
+    }
+}
@@ -0,0 +1,330 @@
+package com.dkd.manage.manager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import javax.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import com.dkd.common.exception.ServiceException;
+import com.dkd.framework.manager.ShutdownHook;
+import com.dkd.manage.domain.Order;
+import com.dkd.manage.mapper.OrderMapper;
+import com.dkd.manage.service.IOrderStatsService;
+
+/**
+ * 订单写缓冲
+ *
+ * 订单先进入有界队列，由后台线程按条数或时间间隔合并为多行insert批量落库；
+ * 队列写满时调用方在超时后收到繁忙异常（背压），每条订单的Future在落库成功后才完成。
+ * 写入按订单号幂等（订单号唯一索引）：已落库的订单号不再插入也不再计入汇总，直接视为成功，
+ * 调用方在繁忙、失败或确认超时后可以用原订单号整批重试。
+ * 应用退出时由ShutdownManager调用，排空队列中剩余的订单。
+ *
+ * @author itheima
+ */
+@Component
+public class OrderWriteBehindBuffer implements ShutdownHook
+{
+    private static final Logger log = LoggerFactory.getLogger(OrderWriteBehindBuffer.class);
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Autowired
+    private IOrderStatsService orderStatsService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /** 队列容量 */
+    @Value("${dkd.order.buffer.capacity:10000}")
+    private int capacity;
+
+    /** 单批最大条数 */
+    @Value("${dkd.order.buffer.batch-size:500}")
+    private int batchSize;
+
+    /** 刷新间隔（毫秒） */
+    @Value("${dkd.order.buffer.flush-interval:200}")
+    private long flushInterval;
+
+    /** 入队等待时间（毫秒） */
+    @Value("${dkd.order.buffer.offer-timeout:100}")
+    private long offerTimeout;
+
+    private BlockingQueue<PendingOrder> queue;
+
+    private Thread flusher;
+
+    private volatile boolean running;
+
+    /** 入队持读锁、停机持写锁，保证停机后不会再有订单进入已排空的队列 */
+    private final ReadWriteLock shutdownLock = new ReentrantReadWriteLock();
+
+    @PostConstruct
+    public void init()
+    {
+        queue = new ArrayBlockingQueue<>(capacity);
+        running = true;
+        flusher = new Thread(this::flushLoop, "order-write-behind");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * 订单入队
+     *
+     * @param order 订单
+     * @return 订单落库后完成的Future
+     */
+    public CompletableFuture<Order> submit(Order order)
+    {
+        PendingOrder pending = new PendingOrder(order);
+        boolean accepted;
+        shutdownLock.readLock().lock();
+        try
+        {
+            if (!running)
+            {
+                throw new ServiceException("系统正在停机，订单暂停写入");
+            }
+            accepted = queue.offer(pending, offerTimeout, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            accepted = false;
+        }
+        finally
+        {
+            shutdownLock.readLock().unlock();
+        }
+        if (!accepted)
+        {
+            throw new ServiceException("订单写入繁忙，请稍后重试");
+        }
+        return pending.future;
+    }
+
+    /**
+     * 当前排队中的订单数
+     */
+    public int pendingSize()
+    {
+        return queue.size();
+    }
+
+    private void flushLoop()
+    {
+        List<PendingOrder> batch = new ArrayList<>(batchSize);
+        while (running)
+        {
+            try
+            {
+                long deadline = System.currentTimeMillis() + flushInterval;
+                while (batch.size() < batchSize)
+                {
+                    long wait = deadline - System.currentTimeMillis();
+                    if (wait <= 0)
+                    {
+                        break;
+                    }
+                    PendingOrder first = queue.poll(wait, TimeUnit.MILLISECONDS);
+                    if (first == null)
+                    {
+                        break;
+                    }
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - batch.size());
+                }
+                flush(batch);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            catch (Exception e)
+            {
+                log.error("订单批量写入异常", e);
+            }
+            finally
+            {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 批量写入，批量失败时逐条重试以隔离坏数据
+     * 同一时刻只执行一次写入：停机时后台线程可能尚未结束，停机排空与其串行执行
+     */
+    private synchronized void flush(List<PendingOrder> batch)
+    {
+        if (batch.isEmpty())
+        {
+            return;
+        }
+        // 同一批内重复的订单号只写一次，重复项随首条一起完成
+        Map<String, PendingOrder> unique = new LinkedHashMap<>();
+        List<PendingOrder> pendings = new ArrayList<>(batch.size());
+        for (PendingOrder pending : batch)
+        {
+            String orderNo = pending.order.getOrderNo();
+            PendingOrder first = orderNo == null ? null : unique.putIfAbsent(orderNo, pending);
+            if (first == null)
+            {
+                pendings.add(pending);
+            }
+            else
+            {
+                first.future.whenComplete((order, e) -> {
+                    if (e == null)
+                    {
+                        pending.future.complete(pending.order);
+                    }
+                    else
+                    {
+                        pending.future.completeExceptionally(e);
+                    }
+                });
+            }
+        }
+        List<Order> orders = new ArrayList<>(pendings.size());
+        for (PendingOrder pending : pendings)
+        {
+            orders.add(pending.order);
+        }
+        try
+        {
+            transactionTemplate.execute(status -> {
+                insertAbsent(orders);
+                return null;
+            });
+            for (PendingOrder pending : pendings)
+            {
+                pending.future.complete(pending.order);
+            }
+            return;
+        }
+        catch (Exception e)
+        {
+            log.warn("订单批量写入失败，改为逐条写入，条数：{}", pendings.size(), e);
+        }
+        for (PendingOrder pending : pendings)
+        {
+            try
+            {
+                transactionTemplate.execute(status -> {
+                    insertAbsent(Collections.singletonList(pending.order));
+                    return null;
+                });
+                pending.future.complete(pending.order);
+            }
+            catch (DuplicateKeyException e)
+            {
+                // 其他节点同时写入了同一订单号，订单已落库
+                pending.future.complete(pending.order);
+            }
+            catch (Exception e)
+            {
+                log.error("订单写入失败，订单号：{}", pending.order.getOrderNo(), e);
+                pending.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * 跳过已落库的订单号，只插入并汇总新订单
+     */
+    private void insertAbsent(List<Order> orders)
+    {
+        Set<String> orderNos = new HashSet<>();
+        for (Order order : orders)
+        {
+            if (order.getOrderNo() != null)
+            {
+                orderNos.add(order.getOrderNo());
+            }
+        }
+        Set<String> existing = orderNos.isEmpty() ? Collections.emptySet()
+                : new HashSet<>(orderMapper.selectExistingOrderNos(orderNos));
+        List<Order> inserts = new ArrayList<>(orders.size());
+        for (Order order : orders)
+        {
+            if (order.getOrderNo() == null || !existing.contains(order.getOrderNo()))
+            {
+                inserts.add(order);
+            }
+        }
+        if (inserts.isEmpty())
+        {
+            return;
+        }
+        orderMapper.batchInsertOrder(inserts);
+        orderStatsService.recordOrders(inserts);
+    }
+
+    /**
+     * 停止后台线程并排空剩余订单
+     */
+    @Override
+    public void shutdown()
+    {
+        shutdownLock.writeLock().lock();
+        try
+        {
+            running = false;
+        }
+        finally
+        {
+            shutdownLock.writeLock().unlock();
+        }
+        try
+        {
+            flusher.join(flushInterval * 5);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        if (flusher.isAlive())
+        {
+            log.warn("订单写入线程未在等待时间内结束，排空剩余订单时与其串行写入");
+        }
+        List<PendingOrder> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0)
+        {
+            flush(batch);
+            batch.clear();
+        }
+    }
+
+    private static class PendingOrder
+    {
+        private final Order order;
+
+        private final CompletableFuture<Order> future = new CompletableFuture<>();
+
+        PendingOrder(Order order)
+        {
+            this.order = order;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.dkd.manage.manager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import javax.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import com.dkd.common.utils.StringUtils;
+import com.dkd.framework.manager.ShutdownHook;
+import com.dkd.manage.domain.Partner;
+import com.dkd.manage.domain.PartnerSettlement;
+import com.dkd.manage.mapper.PartnerSettlementMapper;
+
+/**
+ * 合作商分账计算
+ *
+ * 合作商列表按分片大小递归拆分为fork-join子任务并行计算，每个分片一次查询按天汇总表，
+ * 分成金额 = 订单金额 * 分成比例 / 100（四舍五入到分）。
+ *
+ * @author itheima
+ */
+@Component
+public class PartnerSettlementCalculator implements ShutdownHook
+{
+    @Autowired
+    private PartnerSettlementMapper partnerSettlementMapper;
+
+    /** 并行度 */
+    @Value("${dkd.settlement.parallelism:4}")
+    private int parallelism;
+
+    /** 每个分片的合作商数 */
+    @Value("${dkd.settlement.shard-size:200}")
+    private int shardSize;
+
+    private ForkJoinPool pool;
+
+    @PostConstruct
+    public void init()
+    {
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * 计算结算周期内每个合作商的分成（无订单的合作商结果为0）
+     *
+     * @param partners 合作商列表
+     * @param period 结算周期
+     * @param beginTime 开始日期（含）
+     * @param endTime 结束日期（不含）
+     * @return 结算结果
+     */
+    public List<PartnerSettlement> calculate(List<Partner> partners, String period, Date beginTime, Date endTime)
+    {
+        if (partners.isEmpty())
+        {
+            return new ArrayList<>();
+        }
+        return pool.invoke(new ShardTask(partners, period, beginTime, endTime));
+    }
+
+    @Override
+    public void shutdown()
+    {
+        pool.shutdown();
+    }
+
+    private class ShardTask extends RecursiveTask<List<PartnerSettlement>>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Partner> partners;
+
+        private final String period;
+
+        private final Date beginTime;
+
+        private final Date endTime;
+
+        ShardTask(List<Partner> partners, String period, Date beginTime, Date endTime)
+        {
+            this.partners = partners;
+            this.period = period;
+            this.beginTime = beginTime;
+            this.endTime = endTime;
+        }
+
+        @Override
+        protected List<PartnerSettlement> compute()
+        {
+            if (partners.size() <= shardSize)
+            {
+                return settleShard();
+            }
+            int mid = partners.size() / 2;
+            ShardTask left = new ShardTask(partners.subList(0, mid), period, beginTime, endTime);
+            ShardTask right = new ShardTask(partners.subList(mid, partners.size()), period, beginTime, endTime);
+            left.fork();
+            List<PartnerSettlement> result = new ArrayList<>(right.compute());
+            result.addAll(left.join());
+            return result;
+        }
+
+        private List<PartnerSettlement> settleShard()
+        {
+            List<Long> partnerIds = new ArrayList<>(partners.size());
+            for (Partner partner : partners)
+            {
+                partnerIds.add(partner.getId());
+            }
+            Map<Long, PartnerSettlement> sales = new HashMap<>();
+            for (PartnerSettlement row : partnerSettlementMapper.sumPartnerSales(partnerIds, beginTime, endTime))
+            {
+                sales.put(row.getPartnerId(), row);
+            }
+            List<PartnerSettlement> result = new ArrayList<>(partners.size());
+            for (Partner partner : partners)
+            {
+                PartnerSettlement row = sales.get(partner.getId());
+                long orderCount = row == null ? 0L : StringUtils.nvl(row.getOrderCount(), 0L);
+                long orderAmount = row == null ? 0L : StringUtils.nvl(row.getOrderAmount(), 0L);
+                long bill = row == null ? 0L : StringUtils.nvl(row.getBill(), 0L);
+                long profitRatio = StringUtils.nvl(partner.getProfitRatio(), 0L);
+                PartnerSettlement settlement = new PartnerSettlement();
+                settlement.setPartnerId(partner.getId());
+                settlement.setPartnerName(partner.getPartnerName());
+                settlement.setPeriod(period);
+                settlement.setOrderCount(orderCount);
+                settlement.setOrderAmount(orderAmount);
+                settlement.setBill(bill);
+                settlement.setProfitRatio(profitRatio);
+                settlement.setShareAmount(BigDecimal.valueOf(orderAmount).multiply(BigDecimal.valueOf(profitRatio))
+                        .divide(BigDecimal.valueOf(100), 0, RoundingMode.HALF_UP).longValue());
+                result.add(settlement);
+            }
+            return result;
+        }
+    }
+}
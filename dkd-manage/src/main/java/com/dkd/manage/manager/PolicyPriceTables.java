@@ -0,0 +1,207 @@
+package com.dkd.manage.manager;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import com.dkd.manage.domain.Policy;
+import com.dkd.manage.domain.Sku;
+import com.dkd.manage.mapper.PolicyMapper;
+import com.dkd.manage.mapper.SkuMapper;
+
+/**
+ * 策略价格表
+ *
+ * 为每个策略预先计算"商品id -> 实际售价"（参与折扣的商品按折扣计算，其余为原价），
+ * 连同原价表组成一个不可变快照，查询只读取volatile引用，不加锁。
+ * 策略或商品修改的事务提交后整体重建并替换快照，同时递增Redis中的版本号，
+ * 其他节点在check-interval内发现版本变化后各自重建。
+ *
+ * @author itheima
+ */
+@Component
+public class PolicyPriceTables
+{
+    private static final Logger log = LoggerFactory.getLogger(PolicyPriceTables.class);
+
+    /** 价格表版本号的键 */
+    private static final String VERSION_KEY = "dkd.price.version";
+
+    /** 参与折扣 */
+    private static final Integer DISCOUNT_YES = 1;
+
+    @Autowired
+    private SkuMapper skuMapper;
+
+    @Autowired
+    private PolicyMapper policyMapper;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    /** 检查其他节点修改的间隔（毫秒） */
+    @Value("${dkd.price.check-interval:5000}")
+    private long checkInterval;
+
+    private volatile Snapshot snapshot = new Snapshot(null, Collections.emptyMap(), Collections.emptyMap());
+
+    private volatile long checkedAt;
+
+    @PostConstruct
+    public void init()
+    {
+        rebuild(stringRedisTemplate.opsForValue().get(VERSION_KEY));
+    }
+
+    /**
+     * 商品在策略下的售价（分）
+     *
+     * @param policyId 策略id，为空或策略不存在时为原价
+     * @param skuId 商品id
+     * @return 售价，商品不存在时为空
+     */
+    public Long price(Long policyId, Long skuId)
+    {
+        return table(policyId).get(skuId);
+    }
+
+    /**
+     * 多个商品在策略下的售价（分）
+     *
+     * @param policyId 策略id，为空或策略不存在时为原价
+     * @param skuIds 商品id
+     * @return 商品id -> 售价，不含不存在的商品
+     */
+    public Map<Long, Long> prices(Long policyId, Collection<Long> skuIds)
+    {
+        Map<Long, Long> table = table(policyId);
+        Map<Long, Long> result = new LinkedHashMap<>();
+        for (Long skuId : skuIds)
+        {
+            Long price = table.get(skuId);
+            if (price != null)
+            {
+                result.put(skuId, price);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 策略的完整价格表（只读）
+     *
+     * @param policyId 策略id，为空或策略不存在时为原价表
+     * @return 商品id -> 售价
+     */
+    public Map<Long, Long> table(Long policyId)
+    {
+        Snapshot current = current();
+        Map<Long, Long> table = policyId == null ? null : current.policyPrices.get(policyId);
+        return table == null ? current.basePrices : table;
+    }
+
+    /**
+     * 策略或商品已修改，在事务中调用时提交后重建
+     */
+    public void changed()
+    {
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+        {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization()
+            {
+                @Override
+                public void afterCommit()
+                {
+                    rebuild(String.valueOf(stringRedisTemplate.opsForValue().increment(VERSION_KEY)));
+                }
+            });
+        }
+        else
+        {
+            rebuild(String.valueOf(stringRedisTemplate.opsForValue().increment(VERSION_KEY)));
+        }
+    }
+
+    private Snapshot current()
+    {
+        long now = System.currentTimeMillis();
+        if (now - checkedAt > checkInterval)
+        {
+            checkedAt = now;
+            String version = stringRedisTemplate.opsForValue().get(VERSION_KEY);
+            if (version != null && !version.equals(snapshot.version))
+            {
+                rebuild(version);
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * 按数据库重建全部价格表并替换快照
+     *
+     * @param version 重建时的版本号（读取数据库之前取得，重建期间再有修改会在下次检查时重建）
+     */
+    private synchronized void rebuild(String version)
+    {
+        Map<Long, Long> basePrices = new HashMap<>();
+        Map<Long, Sku> skus = new HashMap<>();
+        for (Sku sku : skuMapper.selectSkuList(new Sku()))
+        {
+            if (sku.getPrice() != null)
+            {
+                basePrices.put(sku.getSkuId(), sku.getPrice());
+                skus.put(sku.getSkuId(), sku);
+            }
+        }
+        Map<Long, Map<Long, Long>> policyPrices = new HashMap<>();
+        for (Policy policy : policyMapper.selectPolicyList(new Policy()))
+        {
+            if (policy.getDiscount() == null)
+            {
+                continue;
+            }
+            Map<Long, Long> table = new HashMap<>(basePrices);
+            for (Sku sku : skus.values())
+            {
+                if (DISCOUNT_YES.equals(sku.getIsDiscount()))
+                {
+                    // 折扣后四舍五入到分
+                    table.put(sku.getSkuId(), (sku.getPrice() * policy.getDiscount() + 50) / 100);
+                }
+            }
+            policyPrices.put(policy.getPolicyId(), Collections.unmodifiableMap(table));
+        }
+        snapshot = new Snapshot(version, Collections.unmodifiableMap(basePrices), Collections.unmodifiableMap(policyPrices));
+        log.info("策略价格表重建完成，商品{}个，策略{}个", basePrices.size(), policyPrices.size());
+    }
+
+    private static class Snapshot
+    {
+        /** 版本号 */
+        private final String version;
+
+        /** 原价表 */
+        private final Map<Long, Long> basePrices;
+
+        /** 策略id -> 价格表 */
+        private final Map<Long, Map<Long, Long>> policyPrices;
+
+        Snapshot(String version, Map<Long, Long> basePrices, Map<Long, Map<Long, Long>> policyPrices)
+        {
+            this.version = version;
+            this.basePrices = basePrices;
+            this.policyPrices = policyPrices;
+        }
+    }
+}
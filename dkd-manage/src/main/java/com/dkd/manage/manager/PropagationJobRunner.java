@@ -0,0 +1,310 @@
+package com.dkd.manage.manager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import com.dkd.common.utils.DateUtils;
+import com.dkd.common.utils.StringUtils;
+import com.dkd.common.utils.Threads;
+import com.dkd.framework.manager.ShutdownHook;
+import com.dkd.manage.domain.Node;
+import com.dkd.manage.domain.PropagationJob;
+import com.dkd.manage.domain.VendingMachine;
+import com.dkd.manage.mapper.EmpMapper;
+import com.dkd.manage.mapper.NodeMapper;
+import com.dkd.manage.mapper.PropagationJobMapper;
+import com.dkd.manage.mapper.TaskMapper;
+import com.dkd.manage.mapper.VendingMachineMapper;
+
+/**
+ * 冗余字段同步
+ *
+ * 设备冗余了点位的区域、合作商、商圈类型和地址（未完成工单又冗余了设备的区域和地址），员工冗余了区域名称和角色信息。
+ * 点位、区域、角色修改时在同一事务中登记一条同步任务（同一来源只保留一条，再次修改时修订号加1并从头开始），
+ * 提交后由后台线程按目标表主键分批执行：每批一个事务，用一条关联更新按来源的当前值改写该批的行，并记录断点。
+ * 单批只锁batch-size行，大范围调整不会长时间锁表；进程中断或执行失败后，由定时任务从断点继续。
+ *
+ * @author itheima
+ */
+@Component
+public class PropagationJobRunner implements ShutdownHook
+{
+    private static final Logger log = LoggerFactory.getLogger(PropagationJobRunner.class);
+
+    /** 任务类型：点位 -> 设备、未完成工单 */
+    public static final String JOB_TYPE_NODE = "node";
+
+    /** 任务类型：区域 -> 员工 */
+    public static final String JOB_TYPE_REGION = "region";
+
+    /** 任务类型：角色 -> 员工 */
+    public static final String JOB_TYPE_ROLE = "role";
+
+    /** 失败原因的最大长度 */
+    private static final int ERROR_MSG_LENGTH = 500;
+
+    @Autowired
+    private PropagationJobMapper propagationJobMapper;
+
+    @Autowired
+    private VendingMachineMapper vendingMachineMapper;
+
+    @Autowired
+    private TaskMapper taskMapper;
+
+    @Autowired
+    private EmpMapper empMapper;
+
+    @Autowired
+    private NodeMapper nodeMapper;
+
+    @Autowired
+    private FleetCounters fleetCounters;
+
+    @Autowired
+    private EmpDirectory empDirectory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /** 每个事务改写的行数 */
+    @Value("${dkd.propagation.batch-size:500}")
+    private int batchSize;
+
+    /** 执行中的任务超过该时长未记录断点视为中断（秒） */
+    @Value("${dkd.propagation.stale-timeout:300}")
+    private int staleTimeout;
+
+    private ThreadPoolExecutor executor;
+
+    private volatile boolean stopping;
+
+    @PostConstruct
+    public void init()
+    {
+        // 单线程顺序执行；队列中已有一次待执行的扫描时，后续触发可以丢弃
+        executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1),
+                new BasicThreadFactory.Builder().namingPattern("propagation-%d").daemon(true).build(),
+                new ThreadPoolExecutor.DiscardPolicy());
+        executor.execute(this::runSafely);
+    }
+
+    /**
+     * 登记同步任务，须在修改来源的事务中调用；提交后触发执行
+     *
+     * @param jobType 任务类型
+     * @param sourceId 点位、区域或角色id
+     */
+    public void enqueue(String jobType, Long sourceId)
+    {
+        PropagationJob job = new PropagationJob();
+        job.setJobType(jobType);
+        job.setSourceId(sourceId);
+        job.setCreateTime(DateUtils.getNowDate());
+        propagationJobMapper.upsertPropagationJob(job);
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+        {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization()
+            {
+                @Override
+                public void afterCommit()
+                {
+                    executor.execute(PropagationJobRunner.this::runSafely);
+                }
+            });
+        }
+        else
+        {
+            executor.execute(this::runSafely);
+        }
+    }
+
+    /**
+     * 执行所有可执行的任务（待执行、失败、中断），由定时任务调用
+     *
+     * @return 执行完成的任务数
+     */
+    public int resume()
+    {
+        Date staleBefore = DateUtils.addSeconds(DateUtils.getNowDate(), -staleTimeout);
+        int finished = 0;
+        for (Long id : propagationJobMapper.selectRunnablePropagationJobIds(staleBefore))
+        {
+            if (stopping)
+            {
+                break;
+            }
+            // 多节点同时扫描时只有一个节点认领成功
+            if (propagationJobMapper.claimPropagationJob(id, staleBefore) == 0)
+            {
+                continue;
+            }
+            try
+            {
+                if (run(id))
+                {
+                    finished++;
+                }
+            }
+            catch (Exception e)
+            {
+                log.error("冗余字段同步任务{}执行失败", id, e);
+                propagationJobMapper.failPropagationJob(id, StringUtils.substring(e.getMessage(), 0, ERROR_MSG_LENGTH));
+            }
+        }
+        return finished;
+    }
+
+    /**
+     * 从断点开始分批执行，直到完成或应用退出
+     */
+    private boolean run(Long id)
+    {
+        PropagationJob job = propagationJobMapper.selectPropagationJobById(id);
+        while (!stopping)
+        {
+            PropagationJob current = job;
+            List<Long> ids = transactionTemplate.execute(status -> propagate(current));
+            boolean recorded;
+            if (ids.isEmpty())
+            {
+                recorded = propagationJobMapper.finishPropagationJob(id, job.getRevision()) > 0;
+                if (recorded)
+                {
+                    log.info("冗余字段同步完成，{}:{}，共{}行", job.getJobType(), job.getSourceId(), job.getProcessedCount());
+                    return true;
+                }
+            }
+            else
+            {
+                Long lastId = ids.get(ids.size() - 1);
+                recorded = propagationJobMapper.updatePropagationJobProgress(id, job.getRevision(), lastId, ids.size()) > 0;
+                if (recorded)
+                {
+                    job.setLastId(lastId);
+                    job.setProcessedCount(job.getProcessedCount() + ids.size());
+                }
+            }
+            if (!recorded)
+            {
+                // 执行期间来源再次修改，修订号和断点已重置，按新的修订号从头开始
+                job = propagationJobMapper.selectPropagationJobById(id);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 改写断点之后的一批目标行
+     *
+     * @return 本批改写的目标行主键（升序），为空表示已全部完成
+     */
+    private List<Long> propagate(PropagationJob job)
+    {
+        if (JOB_TYPE_NODE.equals(job.getJobType()))
+        {
+            return propagateNode(job.getSourceId(), job.getLastId());
+        }
+        if (JOB_TYPE_REGION.equals(job.getJobType()))
+        {
+            List<Long> ids = empMapper.selectEmpIdListByRegionId(job.getSourceId(), job.getLastId(), batchSize);
+            if (!ids.isEmpty())
+            {
+                empMapper.updateEmpFromRegion(job.getSourceId(), job.getLastId(), ids.get(ids.size() - 1));
+                empDirectory.changed(ids.toArray(new Long[0]));
+            }
+            return ids;
+        }
+        if (JOB_TYPE_ROLE.equals(job.getJobType()))
+        {
+            List<Long> ids = empMapper.selectEmpIdListByRoleId(job.getSourceId(), job.getLastId(), batchSize);
+            if (!ids.isEmpty())
+            {
+                empMapper.updateEmpFromRole(job.getSourceId(), job.getLastId(), ids.get(ids.size() - 1));
+                empDirectory.changed(ids.toArray(new Long[0]));
+            }
+            return ids;
+        }
+        log.warn("未知的冗余字段同步任务类型：{}", job.getJobType());
+        return Collections.emptyList();
+    }
+
+    private List<Long> propagateNode(Long nodeId, Long lastId)
+    {
+        Node node = nodeMapper.selectNodeById(nodeId);
+        if (node == null)
+        {
+            return Collections.emptyList();
+        }
+        List<VendingMachine> vms = vendingMachineMapper.selectVendingMachineListByNodeId(nodeId, lastId, batchSize);
+        if (vms.isEmpty())
+        {
+            return Collections.emptyList();
+        }
+        Long toId = vms.get(vms.size() - 1).getId();
+        vendingMachineMapper.updateVendingMachineFromNode(nodeId, lastId, toId);
+        taskMapper.updateOpenTaskFromVendingMachine(nodeId, lastId, toId);
+
+        // 区域或合作商变化的设备，按变化前后修正计数
+        List<Long> ids = new ArrayList<>(vms.size());
+        List<VendingMachine> moved = new ArrayList<>();
+        List<VendingMachine> movedTo = new ArrayList<>();
+        for (VendingMachine vm : vms)
+        {
+            ids.add(vm.getId());
+            if (!Objects.equals(vm.getRegionId(), node.getRegionId()) || !Objects.equals(vm.getPartnerId(), node.getPartnerId()))
+            {
+                VendingMachine after = new VendingMachine();
+                after.setNodeId(vm.getNodeId());
+                after.setRegionId(node.getRegionId());
+                after.setPartnerId(node.getPartnerId());
+                after.setVmStatus(vm.getVmStatus());
+                moved.add(vm);
+                movedTo.add(after);
+            }
+        }
+        if (!moved.isEmpty())
+        {
+            fleetCounters.vmRemoved(moved);
+            fleetCounters.vmAdded(movedTo);
+        }
+        return ids;
+    }
+
+    private void runSafely()
+    {
+        try
+        {
+            resume();
+        }
+        catch (Exception e)
+        {
+            log.error("冗余字段同步任务扫描失败", e);
+        }
+    }
+
+    /**
+     * 停止取新批次，正在执行的任务保持执行中，超过stale-timeout后由其他节点或下次启动从断点继续
+     */
+    @Override
+    public void shutdown()
+    {
+        stopping = true;
+        Threads.shutdownAndAwaitTermination(executor);
+    }
+}
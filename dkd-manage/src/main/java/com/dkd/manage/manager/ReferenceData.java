@@ -0,0 +1,239 @@
+package com.dkd.manage.manager;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import com.dkd.manage.domain.Node;
+import com.dkd.manage.domain.Partner;
+import com.dkd.manage.domain.Region;
+import com.dkd.manage.domain.Role;
+import com.dkd.manage.domain.SkuClass;
+import com.dkd.manage.domain.TaskType;
+import com.dkd.manage.domain.VmType;
+import com.dkd.manage.mapper.NodeMapper;
+import com.dkd.manage.mapper.PartnerMapper;
+import com.dkd.manage.mapper.RegionMapper;
+import com.dkd.manage.mapper.RoleMapper;
+import com.dkd.manage.mapper.SkuClassMapper;
+import com.dkd.manage.mapper.TaskTypeMapper;
+import com.dkd.manage.mapper.VmTypeMapper;
+
+/**
+ * 字典数据本地缓存
+ *
+ * 区域、角色、设备类型、商品类型、工单类型、合作商、点位这类小而少变的表，启动时各自整表加载为{@link ReferenceTable}，
+ * 冗余字段的补充（如员工的区域名称、设备的货道容量）直接读本地快照。
+ * 所属Service的写方法调用{@link #changed(String)}，事务提交后本节点重新加载，并通过Redis频道通知其他节点；
+ * 消息带有发送节点的标识，本节点发出的通知不再重复加载。
+ *
+ * @author itheima
+ */
+@Component
+public class ReferenceData implements MessageListener
+{
+    private static final Logger log = LoggerFactory.getLogger(ReferenceData.class);
+
+    /** 字典变更通知频道，消息内容为"节点标识|表名" */
+    private static final String CHANNEL = "dkd.reference.changed";
+
+    public static final String REGION = "region";
+
+    public static final String ROLE = "role";
+
+    public static final String VM_TYPE = "vmType";
+
+    public static final String SKU_CLASS = "skuClass";
+
+    public static final String TASK_TYPE = "taskType";
+
+    public static final String PARTNER = "partner";
+
+    public static final String NODE = "node";
+
+    @Autowired
+    private RegionMapper regionMapper;
+
+    @Autowired
+    private RoleMapper roleMapper;
+
+    @Autowired
+    private VmTypeMapper vmTypeMapper;
+
+    @Autowired
+    private SkuClassMapper skuClassMapper;
+
+    @Autowired
+    private TaskTypeMapper taskTypeMapper;
+
+    @Autowired
+    private PartnerMapper partnerMapper;
+
+    @Autowired
+    private NodeMapper nodeMapper;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    /** 未命中时两次重新加载的最小间隔（毫秒） */
+    @Value("${dkd.reference.min-reload-interval:1000}")
+    private long minReloadInterval;
+
+    private final Map<String, ReferenceTable<?>> tables = new LinkedHashMap<>();
+
+    private ReferenceTable<Region> regions;
+
+    private ReferenceTable<Role> roles;
+
+    private ReferenceTable<VmType> vmTypes;
+
+    private ReferenceTable<SkuClass> skuClasses;
+
+    private ReferenceTable<TaskType> taskTypes;
+
+    private ReferenceTable<Partner> partners;
+
+    private ReferenceTable<Node> nodes;
+
+    @PostConstruct
+    public void init()
+    {
+        regions = register(new ReferenceTable<>(REGION, () -> regionMapper.selectRegionList(new Region()), Region::getId, minReloadInterval));
+        roles = register(new ReferenceTable<>(ROLE, () -> roleMapper.selectRoleList(new Role()), Role::getRoleId, minReloadInterval));
+        vmTypes = register(new ReferenceTable<>(VM_TYPE, () -> vmTypeMapper.selectVmTypeList(new VmType()), VmType::getId, minReloadInterval));
+        skuClasses = register(new ReferenceTable<>(SKU_CLASS, () -> skuClassMapper.selectSkuClassList(new SkuClass()), SkuClass::getClassId, minReloadInterval));
+        taskTypes = register(new ReferenceTable<>(TASK_TYPE, () -> taskTypeMapper.selectTaskTypeList(new TaskType()), TaskType::getTypeId, minReloadInterval));
+        partners = register(new ReferenceTable<>(PARTNER, () -> partnerMapper.selectPartnerList(new Partner()), Partner::getId, minReloadInterval));
+        nodes = register(new ReferenceTable<>(NODE, () -> nodeMapper.selectNodeList(new Node()), Node::getId, minReloadInterval));
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+    }
+
+    public ReferenceTable<Region> regions()
+    {
+        return regions;
+    }
+
+    public ReferenceTable<Role> roles()
+    {
+        return roles;
+    }
+
+    public ReferenceTable<VmType> vmTypes()
+    {
+        return vmTypes;
+    }
+
+    public ReferenceTable<SkuClass> skuClasses()
+    {
+        return skuClasses;
+    }
+
+    public ReferenceTable<TaskType> taskTypes()
+    {
+        return taskTypes;
+    }
+
+    public ReferenceTable<Partner> partners()
+    {
+        return partners;
+    }
+
+    public ReferenceTable<Node> nodes()
+    {
+        return nodes;
+    }
+
+    /**
+     * 字典表已修改，在事务中调用时提交后重新加载并通知其他节点
+     *
+     * @param table 表名
+     */
+    public void changed(String table)
+    {
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+        {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization()
+            {
+                @Override
+                public void afterCommit()
+                {
+                    reloadAndSend(table);
+                }
+            });
+        }
+        else
+        {
+            reloadAndSend(table);
+        }
+    }
+
+    /**
+     * 各表的条目数、版本号和命中率
+     */
+    public Map<String, Object> stats()
+    {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (ReferenceTable<?> table : tables.values())
+        {
+            stats.put(table.getName(), table.stats());
+        }
+        return stats;
+    }
+
+    /**
+     * 其他节点发来的变更通知
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern)
+    {
+        String table = NodeMessage.unwrap(message);
+        if (table == null)
+        {
+            return;
+        }
+        try
+        {
+            reload(table);
+        }
+        catch (Exception e)
+        {
+            log.error("字典表{}重新加载失败", table, e);
+        }
+    }
+
+    private void reloadAndSend(String table)
+    {
+        reload(table);
+        stringRedisTemplate.convertAndSend(CHANNEL, NodeMessage.wrap(table));
+    }
+
+    private void reload(String table)
+    {
+        ReferenceTable<?> referenceTable = tables.get(table);
+        if (referenceTable != null)
+        {
+            referenceTable.reload();
+        }
+    }
+
+    private <V> ReferenceTable<V> register(ReferenceTable<V> table)
+    {
+        table.reload();
+        tables.put(table.getName(), table);
+        return table;
+    }
+}
@@ -0,0 +1,171 @@
+package com.dkd.manage.manager;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 字典表本地快照
+ *
+ * 整表加载为不可变的"主键 -> 记录"快照，重新加载时生成新快照并替换引用（写时复制），读取无锁。
+ * 每次加载版本号加1；未命中时按min-reload-interval限频重新加载一次，以获得其他节点新增、尚未通知到的记录。
+ * 由{@link ReferenceData}统一创建和失效。
+ *
+ * @param <V> 记录类型
+ * @author itheima
+ */
+public class ReferenceTable<V>
+{
+    /** 表名 */
+    private final String name;
+
+    /** 全量加载 */
+    private final Supplier<List<V>> loader;
+
+    /** 主键 */
+    private final Function<V, Long> idGetter;
+
+    /** 未命中时两次重新加载的最小间隔（毫秒） */
+    private final long minReloadInterval;
+
+    private volatile Snapshot<V> snapshot = new Snapshot<>(0, Collections.emptyMap(), 0);
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder loads = new LongAdder();
+
+    public ReferenceTable(String name, Supplier<List<V>> loader, Function<V, Long> idGetter, long minReloadInterval)
+    {
+        this.name = name;
+        this.loader = loader;
+        this.idGetter = idGetter;
+        this.minReloadInterval = minReloadInterval;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * 按主键获取
+     *
+     * @param id 主键
+     * @return 记录，不存在时为空
+     */
+    public V get(Long id)
+    {
+        if (id == null)
+        {
+            return null;
+        }
+        V value = snapshot.values.get(id);
+        if (value != null)
+        {
+            hits.increment();
+            return value;
+        }
+        misses.increment();
+        Snapshot<V> current = snapshot;
+        if (System.currentTimeMillis() - current.loadedAt >= minReloadInterval)
+        {
+            reload(current.version);
+        }
+        return snapshot.values.get(id);
+    }
+
+    /**
+     * 按主键批量获取
+     *
+     * @param ids 主键
+     * @return 主键 -> 记录，不含不存在的主键
+     */
+    public Map<Long, V> getAll(Collection<Long> ids)
+    {
+        Map<Long, V> result = new HashMap<>();
+        for (Long id : ids)
+        {
+            V value = get(id);
+            if (value != null)
+            {
+                result.put(id, value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 全部记录（只读）
+     */
+    public Collection<V> values()
+    {
+        return snapshot.values.values();
+    }
+
+    /**
+     * 全量重新加载（表已修改时调用，总是重新读取）
+     */
+    public synchronized void reload()
+    {
+        Map<Long, V> values = new HashMap<>();
+        for (V value : loader.get())
+        {
+            values.put(idGetter.apply(value), value);
+        }
+        loads.increment();
+        snapshot = new Snapshot<>(snapshot.version + 1, Collections.unmodifiableMap(values), System.currentTimeMillis());
+    }
+
+    /**
+     * 未命中时重新加载：版本号未变时才加载，避免并发未命中重复加载
+     */
+    private synchronized void reload(long expectedVersion)
+    {
+        if (snapshot.version == expectedVersion)
+        {
+            reload();
+        }
+    }
+
+    /**
+     * 命中率等统计
+     */
+    public Map<String, Object> stats()
+    {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long total = hitCount + missCount;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", snapshot.values.size());
+        stats.put("version", snapshot.version);
+        stats.put("hitCount", hitCount);
+        stats.put("missCount", missCount);
+        stats.put("hitRate", total == 0 ? 0D : (double) hitCount / total);
+        stats.put("loadCount", loads.sum());
+        return stats;
+    }
+
+    private static class Snapshot<V>
+    {
+        private final long version;
+
+        private final Map<Long, V> values;
+
+        private final long loadedAt;
+
+        Snapshot(long version, Map<Long, V> values, long loadedAt)
+        {
+            this.version = version;
+            this.values = values;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
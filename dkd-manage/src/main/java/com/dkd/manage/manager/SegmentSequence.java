@@ -0,0 +1,95 @@
+package com.dkd.manage.manager;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+/**
+ * 号段序列
+ *
+ * 每次从Redis原子地租借一段连续序号（INCRBY + EXPIRE 在同一个Lua脚本中执行），
+ * 段内序号在本地通过AtomicLong无锁分配，只有号段用完时才加锁续租。
+ * 多个节点各自持有不重叠的号段，因此序号全局唯一但不保证连续（节点重启会丢弃未用完的号段）。
+ *
+ * @author itheima
+ */
+public class SegmentSequence
+{
+    private static final DefaultRedisScript<Long> LEASE_SCRIPT = new DefaultRedisScript<>(
+            "local max = redis.call('incrby', KEYS[1], ARGV[1])\n" +
+            "if tonumber(ARGV[2]) > 0 then\n" +
+            "    redis.call('expire', KEYS[1], ARGV[2])\n" +
+            "end\n" +
+            "return max", Long.class);
+
+    private final RedisTemplate<Object, Object> redisTemplate;
+
+    private final String key;
+
+    private final int blockSize;
+
+    private final long expireSeconds;
+
+    private volatile Segment segment;
+
+    /**
+     * @param redisTemplate redis
+     * @param key 序列的键
+     * @param blockSize 每次租借的号段长度
+     * @param expireSeconds 键的过期时间（秒），0表示不过期
+     */
+    public SegmentSequence(RedisTemplate<Object, Object> redisTemplate, String key, int blockSize, long expireSeconds)
+    {
+        this.redisTemplate = redisTemplate;
+        this.key = key;
+        this.blockSize = blockSize;
+        this.expireSeconds = expireSeconds;
+    }
+
+    /**
+     * 获取下一个序号（从1开始）
+     */
+    public long next()
+    {
+        while (true)
+        {
+            Segment current = segment;
+            if (current != null)
+            {
+                long value = current.next.getAndIncrement();
+                if (value <= current.max)
+                {
+                    return value;
+                }
+            }
+            synchronized (this)
+            {
+                // 其他线程已经续租过则直接重试
+                if (segment == current)
+                {
+                    segment = lease();
+                }
+            }
+        }
+    }
+
+    private Segment lease()
+    {
+        Long max = redisTemplate.execute(LEASE_SCRIPT, Collections.singletonList(key), blockSize, expireSeconds);
+        return new Segment(max - blockSize + 1, max);
+    }
+
+    private static class Segment
+    {
+        private final AtomicLong next;
+
+        private final long max;
+
+        Segment(long first, long max)
+        {
+            this.next = new AtomicLong(first);
+            this.max = max;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.dkd.manage.manager;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import com.dkd.manage.domain.Sku;
+import com.dkd.manage.mapper.SkuMapper;
+
+/**
+ * 商品本地缓存
+ *
+ * 按访问顺序淘汰的LRU缓存，条目数超过上限时淘汰最久未访问的商品，条目写入超过TTL后视为过期；
+ * 批量获取时未命中的商品合并为一次IN查询。本节点的商品修改和删除会立即失效对应条目，
+ * 其他节点的修改最迟在TTL后生效。
+ *
+ * @author itheima
+ */
+@Component
+public class SkuCache
+{
+    @Autowired
+    private SkuMapper skuMapper;
+
+    /** 最大缓存条目数 */
+    @Value("${dkd.sku.cache.max-size:10000}")
+    private int maxSize;
+
+    /** 条目存活时间（秒） */
+    @Value("${dkd.sku.cache.ttl:300}")
+    private long ttlSeconds;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder loads = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    private final Map<Long, Entry> cache = new LinkedHashMap<Long, Entry>(16, 0.75f, true)
+    {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest)
+        {
+            if (size() > maxSize)
+            {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    /**
+     * 批量获取商品
+     *
+     * @param skuIds 商品id集合
+     * @return 商品id -> 商品，不存在的商品不在结果中
+     */
+    public Map<Long, Sku> getAll(Collection<Long> skuIds)
+    {
+        Map<Long, Sku> result = new HashMap<>();
+        Set<Long> missing = new LinkedHashSet<>();
+        long now = System.currentTimeMillis();
+        synchronized (cache)
+        {
+            for (Long skuId : skuIds)
+            {
+                if (skuId == null || result.containsKey(skuId) || missing.contains(skuId))
+                {
+                    continue;
+                }
+                Entry entry = cache.get(skuId);
+                if (entry != null && entry.expireAt > now)
+                {
+                    hits.increment();
+                    result.put(skuId, entry.sku);
+                }
+                else
+                {
+                    misses.increment();
+                    missing.add(skuId);
+                }
+            }
+        }
+        if (!missing.isEmpty())
+        {
+            loads.increment();
+            List<Sku> skus = skuMapper.selectSkuBySkuIds(missing.toArray(new Long[0]));
+            long expireAt = System.currentTimeMillis() + ttlSeconds * 1000;
+            synchronized (cache)
+            {
+                for (Sku sku : skus)
+                {
+                    cache.put(sku.getSkuId(), new Entry(sku, expireAt));
+                    result.put(sku.getSkuId(), sku);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 失效指定商品
+     *
+     * @param skuIds 商品id
+     */
+    public void invalidate(Long... skuIds)
+    {
+        synchronized (cache)
+        {
+            for (Long skuId : skuIds)
+            {
+                cache.remove(skuId);
+            }
+        }
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void invalidateAll()
+    {
+        synchronized (cache)
+        {
+            cache.clear();
+        }
+    }
+
+    /**
+     * 缓存统计
+     */
+    public Map<String, Object> stats()
+    {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long total = hitCount + missCount;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (cache)
+        {
+            stats.put("size", cache.size());
+        }
+        stats.put("maxSize", maxSize);
+        stats.put("hitCount", hitCount);
+        stats.put("missCount", missCount);
+        stats.put("hitRate", total == 0 ? 0D : (double) hitCount / total);
+        stats.put("loadCount", loads.sum());
+        stats.put("evictionCount", evictions.sum());
+        return stats;
+    }
+
+    private static class Entry
+    {
+        private final Sku sku;
+
+        private final long expireAt;
+
+        Entry(Sku sku, long expireAt)
+        {
+            this.sku = sku;
+            this.expireAt = expireAt;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.dkd.manage.manager;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.alibaba.excel.context.AnalysisContext;
+import com.alibaba.excel.exception.ExcelDataConvertException;
+import com.alibaba.excel.read.listener.ReadListener;
+import com.dkd.common.utils.StringUtils;
+import com.dkd.manage.domain.Sku;
+import com.dkd.manage.domain.SkuClass;
+import com.dkd.manage.domain.dto.SkuImportErrorDto;
+import com.dkd.manage.domain.dto.SkuImportResultDto;
+import com.dkd.manage.mapper.SkuMapper;
+
+/**
+ * 商品导入逐行读取监听
+ *
+ * EasyExcel边解析边回调，每行先校验，合格的行攒够batch-size条后按"商品名称+品牌"与库中已有商品去重，
+ * 再一次批量写入（每批独立提交，某批失败只影响该批）。文件中前面批次的行已经入库，同样由库内去重覆盖，
+ * 内存中只保留一个批次和错误明细，与文件大小无关。每次导入新建一个实例，不是线程安全的。
+ *
+ * @author itheima
+ */
+public class SkuImportListener implements ReadListener<Sku>
+{
+    private static final Logger log = LoggerFactory.getLogger(SkuImportListener.class);
+
+    private final SkuMapper skuMapper;
+
+    private final ReferenceTable<SkuClass> skuClasses;
+
+    /** 每批写入条数 */
+    private final int batchSize;
+
+    /** 错误明细上限 */
+    private final int maxErrors;
+
+    private final SkuImportResultDto result = new SkuImportResultDto();
+
+    private final List<Sku> batch;
+
+    private final List<Integer> batchRowNums;
+
+    public SkuImportListener(SkuMapper skuMapper, ReferenceTable<SkuClass> skuClasses, int batchSize, int maxErrors)
+    {
+        this.skuMapper = skuMapper;
+        this.skuClasses = skuClasses;
+        this.batchSize = batchSize;
+        this.maxErrors = maxErrors;
+        this.batch = new ArrayList<>(batchSize);
+        this.batchRowNums = new ArrayList<>(batchSize);
+    }
+
+    public SkuImportResultDto getResult()
+    {
+        return result;
+    }
+
+    @Override
+    public void invoke(Sku sku, AnalysisContext context)
+    {
+        int rowNum = context.readRowHolder().getRowIndex() + 1;
+        result.setTotalCount(result.getTotalCount() + 1);
+        sku.setSkuName(StringUtils.trim(sku.getSkuName()));
+        sku.setBrandName(StringUtils.trim(sku.getBrandName()));
+        String msg = validate(sku);
+        if (msg != null)
+        {
+            fail(rowNum, sku, msg);
+            return;
+        }
+        batch.add(sku);
+        batchRowNums.add(rowNum);
+        if (batch.size() >= batchSize)
+        {
+            flush();
+        }
+    }
+
+    /**
+     * 单元格类型转换失败（如价格不是数字）记为该行错误并继续读取，其他异常终止导入
+     */
+    @Override
+    public void onException(Exception exception, AnalysisContext context) throws Exception
+    {
+        if (exception instanceof ExcelDataConvertException)
+        {
+            ExcelDataConvertException e = (ExcelDataConvertException) exception;
+            result.setTotalCount(result.getTotalCount() + 1);
+            fail(e.getRowIndex() + 1, null, "第" + (e.getColumnIndex() + 1) + "列格式错误");
+            return;
+        }
+        throw exception;
+    }
+
+    @Override
+    public void doAfterAllAnalysed(AnalysisContext context)
+    {
+        flush();
+    }
+
+    private String validate(Sku sku)
+    {
+        if (StringUtils.isEmpty(sku.getSkuName()))
+        {
+            return "商品名称不能为空";
+        }
+        if (StringUtils.isEmpty(sku.getBrandName()))
+        {
+            return "品牌不能为空";
+        }
+        if (sku.getPrice() == null || sku.getPrice() <= 0)
+        {
+            return "商品价格必须大于0";
+        }
+        if (sku.getClassId() == null || skuClasses.get(sku.getClassId()) == null)
+        {
+            return "商品类型不存在";
+        }
+        return null;
+    }
+
+    /**
+     * 批次去重后写入
+     */
+    private void flush()
+    {
+        if (batch.isEmpty())
+        {
+            return;
+        }
+        Set<String> skuNames = new LinkedHashSet<>();
+        for (Sku sku : batch)
+        {
+            skuNames.add(sku.getSkuName());
+        }
+        Set<String> keys = new HashSet<>();
+        for (Sku existing : skuMapper.selectSkuNameBrandList(skuNames))
+        {
+            keys.add(key(existing));
+        }
+        List<Sku> inserts = new ArrayList<>(batch.size());
+        List<Integer> insertRowNums = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++)
+        {
+            Sku sku = batch.get(i);
+            if (keys.add(key(sku)))
+            {
+                inserts.add(sku);
+                insertRowNums.add(batchRowNums.get(i));
+            }
+            else
+            {
+                result.setDuplicateCount(result.getDuplicateCount() + 1);
+                addError(batchRowNums.get(i), sku, "商品名称和品牌与已有商品重复");
+            }
+        }
+        if (!inserts.isEmpty())
+        {
+            try
+            {
+                result.setSuccessCount(result.getSuccessCount() + skuMapper.insertSkus(inserts));
+            }
+            catch (RuntimeException e)
+            {
+                log.error("商品导入第{}至{}行写入失败", insertRowNums.get(0), insertRowNums.get(insertRowNums.size() - 1), e);
+                for (int i = 0; i < inserts.size(); i++)
+                {
+                    fail(insertRowNums.get(i), inserts.get(i), "写入失败");
+                }
+            }
+        }
+        batch.clear();
+        batchRowNums.clear();
+    }
+
+    private void fail(int rowNum, Sku sku, String msg)
+    {
+        result.setFailCount(result.getFailCount() + 1);
+        addError(rowNum, sku, msg);
+    }
+
+    private void addError(int rowNum, Sku sku, String msg)
+    {
+        if (result.getErrors().size() >= maxErrors)
+        {
+            result.setErrorsTruncated(true);
+            return;
+        }
+        SkuImportErrorDto error = new SkuImportErrorDto();
+        error.setRowNum(rowNum);
+        if (sku != null)
+        {
+            error.setSkuName(sku.getSkuName());
+            error.setBrandName(sku.getBrandName());
+        }
+        error.setMsg(msg);
+        result.getErrors().add(error);
+    }
+
+    private static String key(Sku sku)
+    {
+        return sku.getSkuName() + "\u0001" + sku.getBrandName();
+    }
+}
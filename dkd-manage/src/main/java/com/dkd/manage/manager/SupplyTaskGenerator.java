@@ -0,0 +1,212 @@
+package com.dkd.manage.manager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import com.dkd.common.constant.DkdContants;
+import com.dkd.common.utils.DateUtils;
+import com.dkd.manage.domain.Job;
+import com.dkd.manage.domain.Task;
+import com.dkd.manage.domain.TaskDetails;
+import com.dkd.manage.domain.dto.ChannelSupplyDto;
+import com.dkd.manage.domain.dto.EmpTaskLoadDto;
+import com.dkd.manage.mapper.ChannelMapper;
+import com.dkd.manage.mapper.EmpMapper;
+import com.dkd.manage.mapper.JobMapper;
+import com.dkd.manage.mapper.TaskDetailsMapper;
+import com.dkd.manage.mapper.TaskMapper;
+
+/**
+ * 自动补货工单生成
+ *
+ * 一次查询找出所有低于补货警戒线的货道并按售货机分组，每台售货机生成一张补货工单，
+ * 指派给所在区域当前未完成工单最少的运营员，工单和详情分批批量写入。
+ *
+ * @author itheima
+ */
+@Component
+public class SupplyTaskGenerator
+{
+    private static final Logger log = LoggerFactory.getLogger(SupplyTaskGenerator.class);
+
+    /** 自动创建 */
+    private static final Long CREATE_TYPE_AUTO = 0L;
+
+    @Autowired
+    private JobMapper jobMapper;
+
+    @Autowired
+    private ChannelMapper channelMapper;
+
+    @Autowired
+    private EmpMapper empMapper;
+
+    @Autowired
+    private TaskMapper taskMapper;
+
+    @Autowired
+    private TaskDetailsMapper taskDetailsMapper;
+
+    @Autowired
+    private TaskCodeAllocator taskCodeAllocator;
+
+    @Autowired
+    private TaskStateMachine taskStateMachine;
+
+    @Autowired
+    private TaskGuard taskGuard;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /** 每个事务写入的工单数 */
+    @Value("${dkd.supply.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * 扫描货道并生成补货工单
+     *
+     * @return 生成的工单数
+     */
+    public int generate()
+    {
+        List<Job> jobs = jobMapper.selectJobList(new Job());
+        if (jobs.isEmpty() || jobs.get(0).getAlertValue() == null)
+        {
+            log.warn("未配置补货警戒线，跳过自动补货");
+            return 0;
+        }
+        List<ChannelSupplyDto> channels = channelMapper.selectSupplyChannelList(jobs.get(0).getAlertValue());
+        if (channels.isEmpty())
+        {
+            return 0;
+        }
+        Map<String, List<ChannelSupplyDto>> machines = new LinkedHashMap<>();
+        for (ChannelSupplyDto channel : channels)
+        {
+            machines.computeIfAbsent(channel.getInnerCode(), k -> new ArrayList<>()).add(channel);
+        }
+        Map<Long, PriorityQueue<EmpTaskLoadDto>> operators = loadOperators();
+
+        Date now = DateUtils.getNowDate();
+        List<Task> tasks = new ArrayList<>(machines.size());
+        List<List<ChannelSupplyDto>> taskChannels = new ArrayList<>(machines.size());
+        int unassigned = 0;
+        for (List<ChannelSupplyDto> machineChannels : machines.values())
+        {
+            ChannelSupplyDto first = machineChannels.get(0);
+            PriorityQueue<EmpTaskLoadDto> queue = operators.get(first.getRegionId());
+            if (queue == null || queue.isEmpty())
+            {
+                unassigned++;
+                continue;
+            }
+            // 查询之后其他入口可能已为该售货机创建补货工单
+            if (!taskGuard.tryAcquire(first.getInnerCode(), DkdContants.TASK_TYPE_SUPPLY))
+            {
+                continue;
+            }
+            // 取负载最小的运营员，计入本次新增后放回
+            EmpTaskLoadDto emp = queue.poll();
+            emp.setTaskCount(emp.getTaskCount() + 1);
+            queue.offer(emp);
+
+            Task task = new Task();
+            task.setTaskCode(taskCodeAllocator.nextCode());
+            task.setTaskStatus(DkdContants.TASK_STATUS_CREATE);
+            task.setCreateType(CREATE_TYPE_AUTO);
+            task.setInnerCode(first.getInnerCode());
+            task.setUserId(emp.getId());
+            task.setUserName(emp.getUserName());
+            task.setRegionId(first.getRegionId());
+            task.setDesc("自动补货");
+            task.setProductTypeId(DkdContants.TASK_TYPE_SUPPLY);
+            task.setAddr(first.getAddr());
+            task.setCreateTime(now);
+            tasks.add(task);
+            taskChannels.add(machineChannels);
+        }
+        if (unassigned > 0)
+        {
+            log.warn("{}台售货机所在区域没有可用的运营员，未生成补货工单", unassigned);
+        }
+
+        for (int i = 0; i < tasks.size(); i += batchSize)
+        {
+            int end = Math.min(i + batchSize, tasks.size());
+            List<Task> taskBatch = tasks.subList(i, end);
+            List<List<ChannelSupplyDto>> channelBatch = taskChannels.subList(i, end);
+            try
+            {
+                transactionTemplate.execute(status -> {
+                    insertBatch(taskBatch, channelBatch);
+                    return null;
+                });
+            }
+            catch (RuntimeException e)
+            {
+                // 名额在事务外占用，写入失败时释放剩余所有未写入的工单
+                for (Task task : tasks.subList(i, tasks.size()))
+                {
+                    taskGuard.release(task.getInnerCode(), task.getProductTypeId());
+                }
+                throw e;
+            }
+        }
+        log.info("自动补货完成，待补货货道{}个，生成工单{}张", channels.size(), tasks.size());
+        return tasks.size();
+    }
+
+    /**
+     * 按区域组织运营员，负载相同时按员工id排序保证分配稳定
+     */
+    private Map<Long, PriorityQueue<EmpTaskLoadDto>> loadOperators()
+    {
+        Comparator<EmpTaskLoadDto> byLoad = Comparator.comparing(EmpTaskLoadDto::getTaskCount).thenComparing(EmpTaskLoadDto::getId);
+        Map<Long, PriorityQueue<EmpTaskLoadDto>> operators = new HashMap<>();
+        for (EmpTaskLoadDto emp : empMapper.selectEmpTaskLoadList(DkdContants.ROLE_CODE_BUSINESS))
+        {
+            operators.computeIfAbsent(emp.getRegionId(), k -> new PriorityQueue<>(byLoad)).offer(emp);
+        }
+        return operators;
+    }
+
+    private void insertBatch(List<Task> taskBatch, List<List<ChannelSupplyDto>> channelBatch)
+    {
+        taskMapper.batchInsertTask(taskBatch);
+        List<TaskDetails> details = new ArrayList<>();
+        for (int i = 0; i < taskBatch.size(); i++)
+        {
+            for (ChannelSupplyDto channel : channelBatch.get(i))
+            {
+                TaskDetails detail = new TaskDetails();
+                detail.setTaskId(taskBatch.get(i).getTaskId());
+                detail.setChannelCode(channel.getChannelCode());
+                detail.setExpectCapacity(channel.getMaxCapacity() - channel.getCurrentCapacity());
+                detail.setSkuId(channel.getSkuId());
+                detail.setSkuName(channel.getSkuName());
+                detail.setSkuImage(channel.getSkuImage());
+                details.add(detail);
+            }
+        }
+        for (int i = 0; i < details.size(); i += batchSize)
+        {
+            taskDetailsMapper.batchInsertTaskDetails(details.subList(i, Math.min(i + batchSize, details.size())));
+        }
+        for (Task task : taskBatch)
+        {
+            taskStateMachine.created(task);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.dkd.manage.manager;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+import com.dkd.common.utils.DateUtils;
+import com.dkd.common.utils.StringUtils;
+
+/**
+ * 工单编号分配器
+ *
+ * 编号格式为 yyyyMMdd + 至少4位当天序号，序号按天从Redis租借号段后本地分配，
+ * 日期变化时切换到新一天的序列。
+ *
+ * @author itheima
+ */
+@Component
+public class TaskCodeAllocator
+{
+    /** 工单编号序列的键前缀 */
+    private static final String TASK_CODE_KEY = "dkd.task.code.";
+
+    /** 序列键保留两天，跨零点时仍在使用旧号段的节点不受影响 */
+    private static final long EXPIRE_SECONDS = 2 * 24 * 60 * 60;
+
+    @Autowired
+    private RedisTemplate<Object, Object> redisTemplate;
+
+    /** 每次租借的号段长度 */
+    @Value("${dkd.task.code.block-size:50}")
+    private int blockSize;
+
+    private volatile DaySequence current;
+
+    /**
+     * 分配一个工单编号
+     */
+    public String nextCode()
+    {
+        String day = DateUtils.dateTimeNow("yyyyMMdd");
+        DaySequence daySequence = current;
+        if (daySequence == null || !daySequence.day.equals(day))
+        {
+            synchronized (this)
+            {
+                daySequence = current;
+                if (daySequence == null || !daySequence.day.equals(day))
+                {
+                    daySequence = new DaySequence(day, new SegmentSequence(redisTemplate, TASK_CODE_KEY + day, blockSize, EXPIRE_SECONDS));
+                    current = daySequence;
+                }
+            }
+        }
+        return day + StringUtils.leftPad(String.valueOf(daySequence.sequence.next()), 4, '0');
+    }
+
+    private static class DaySequence
+    {
+        private final String day;
+
+        private final SegmentSequence sequence;
+
+        DaySequence(String day, SegmentSequence sequence)
+        {
+            this.day = day;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.dkd.manage.manager;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import com.dkd.common.constant.DkdContants;
+import com.dkd.common.exception.ServiceException;
+import com.dkd.manage.domain.Task;
+import com.dkd.manage.event.TaskStatusEvent;
+import com.dkd.manage.mapper.TaskMapper;
+
+/**
+ * 售货机未完成工单防重
+ *
+ * Redis哈希中保存所有存在待办或进行中工单的"售货机编号:工单类型 -> 占位时间"，
+ * 新建工单前HSETNX占位，返回false说明已有同类型未完成工单；事务回滚时撤销占位，
+ * 工单完成或取消的事务提交后移除。启动时只补充数据库中的未完成工单，不做清理：
+ * 其他节点上正在执行的新建工单事务已占位但尚未提交，此时数据库中还查不到。
+ * 数据库中已没有未完成工单的占位由定时对账清理，占位时间在claim-grace之内的跳过；
+ * 与数据库不一致时由tb_task.open_guard唯一索引兜底。
+ *
+ * @author itheima
+ */
+@Component
+public class TaskGuard
+{
+    private static final Logger log = LoggerFactory.getLogger(TaskGuard.class);
+
+    /** 未完成工单占位哈希的键 */
+    private static final String OPEN_TASK_KEY = "dkd.task.open.claim";
+
+    /** 占位时间未变时才删除（对账期间被重新占用的不删）：KEYS[1]=哈希，ARGV[1]=成员 ARGV[2]=读取时的占位时间 */
+    private static final DefaultRedisScript<Long> PRUNE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('hget', KEYS[1], ARGV[1]) == ARGV[2] then\n" +
+            "    return redis.call('hdel', KEYS[1], ARGV[1])\n" +
+            "end\n" +
+            "return 0", Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private TaskMapper taskMapper;
+
+    /** 占位后多久仍可能尚未提交，对账时不清理（秒） */
+    @Value("${dkd.task.guard.claim-grace:300}")
+    private int claimGrace;
+
+    /**
+     * 补充数据库中的未完成工单（只增不删）
+     */
+    @PostConstruct
+    public void init()
+    {
+        int added = addMissing(selectOpenMembers());
+        log.info("未完成工单防重占位补充完成，新增{}项", added);
+    }
+
+    /**
+     * 对账：补充缺少的占位，清理数据库中已没有未完成工单、且占位时间超过claim-grace的占位
+     *
+     * @return 清理的占位数
+     */
+    public int reconcile()
+    {
+        // 先读占位再查数据库：读取之后才占位的成员不在本轮清理范围内
+        Map<String, String> claims = hashOps().entries(OPEN_TASK_KEY);
+        Set<String> open = selectOpenMembers();
+        addMissing(open);
+        long claimedBefore = System.currentTimeMillis() - claimGrace * 1000L;
+        int pruned = 0;
+        for (Map.Entry<String, String> claim : claims.entrySet())
+        {
+            if (open.contains(claim.getKey()) || claimTime(claim.getValue()) > claimedBefore)
+            {
+                continue;
+            }
+            Long removed = stringRedisTemplate.execute(PRUNE_SCRIPT, Collections.singletonList(OPEN_TASK_KEY),
+                    claim.getKey(), claim.getValue());
+            if (removed != null && removed > 0)
+            {
+                pruned++;
+            }
+        }
+        if (pruned > 0)
+        {
+            log.warn("未完成工单防重对账清理{}项过期占位", pruned);
+        }
+        return pruned;
+    }
+
+    /**
+     * 为售货机占用一个未完成工单名额，在事务中调用时回滚会自动撤销
+     *
+     * @param innerCode 售货机编号
+     * @param productTypeId 工单类型
+     * @return 是否占用成功，false表示已有同类型未完成工单
+     */
+    public boolean tryAcquire(String innerCode, Long productTypeId)
+    {
+        String member = member(innerCode, productTypeId);
+        Boolean added = hashOps().putIfAbsent(OPEN_TASK_KEY, member, String.valueOf(System.currentTimeMillis()));
+        if (!Boolean.TRUE.equals(added))
+        {
+            return false;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+        {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization()
+            {
+                @Override
+                public void afterCompletion(int status)
+                {
+                    if (status != STATUS_COMMITTED)
+                    {
+                        hashOps().delete(OPEN_TASK_KEY, member);
+                    }
+                }
+            });
+        }
+        return true;
+    }
+
+    /**
+     * 占用未完成工单名额，已有同类型未完成工单时抛出异常
+     *
+     * @param innerCode 售货机编号
+     * @param productTypeId 工单类型
+     */
+    public void acquire(String innerCode, Long productTypeId)
+    {
+        if (!tryAcquire(innerCode, productTypeId))
+        {
+            throw new ServiceException("设备已有未完成的同类型工单");
+        }
+    }
+
+    /**
+     * 释放未完成工单名额，在事务中调用时提交后才释放
+     *
+     * @param innerCode 售货机编号
+     * @param productTypeId 工单类型
+     */
+    public void release(String innerCode, Long productTypeId)
+    {
+        String member = member(innerCode, productTypeId);
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+        {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization()
+            {
+                @Override
+                public void afterCommit()
+                {
+                    hashOps().delete(OPEN_TASK_KEY, member);
+                }
+            });
+        }
+        else
+        {
+            hashOps().delete(OPEN_TASK_KEY, member);
+        }
+    }
+
+    /**
+     * 工单完成或取消后释放名额
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTaskStatus(TaskStatusEvent event)
+    {
+        if (isClosed(event.getToStatus()))
+        {
+            Task task = event.getTask();
+            hashOps().delete(OPEN_TASK_KEY, member(task.getInnerCode(), task.getProductTypeId()));
+        }
+    }
+
+    /**
+     * 工单状态是否已结束（完成或取消）
+     */
+    public static boolean isClosed(Long taskStatus)
+    {
+        return DkdContants.TASK_STATUS_FINISH.equals(taskStatus) || DkdContants.TASK_STATUS_CANCEL.equals(taskStatus);
+    }
+
+    private static String member(String innerCode, Long productTypeId)
+    {
+        return innerCode + ":" + productTypeId;
+    }
+
+    private HashOperations<String, String, String> hashOps()
+    {
+        return stringRedisTemplate.opsForHash();
+    }
+
+    private Set<String> selectOpenMembers()
+    {
+        Set<String> open = new HashSet<>();
+        for (Task task : taskMapper.selectOpenTaskList())
+        {
+            open.add(member(task.getInnerCode(), task.getProductTypeId()));
+        }
+        return open;
+    }
+
+    /**
+     * 缺少的占位以当前时间补上，已有的保持不变
+     */
+    private int addMissing(Set<String> members)
+    {
+        if (members.isEmpty())
+        {
+            return 0;
+        }
+        Set<String> missing = new HashSet<>(members);
+        missing.removeAll(hashOps().keys(OPEN_TASK_KEY));
+        int added = 0;
+        String now = String.valueOf(System.currentTimeMillis());
+        for (String member : missing)
+        {
+            if (Boolean.TRUE.equals(hashOps().putIfAbsent(OPEN_TASK_KEY, member, now)))
+            {
+                added++;
+            }
+        }
+        return added;
+    }
+
+    private static long claimTime(String value)
+    {
+        try
+        {
+            return Long.parseLong(value);
+        }
+        catch (NumberFormatException e)
+        {
+            return 0L;
+        }
+    }
+}
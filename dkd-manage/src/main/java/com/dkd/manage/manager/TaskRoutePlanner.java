@@ -0,0 +1,413 @@
+package com.dkd.manage.manager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import javax.annotation.PostConstruct;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import com.dkd.common.constant.DkdContants;
+import com.dkd.common.exception.ServiceException;
+import com.dkd.common.utils.StringUtils;
+import com.dkd.common.utils.Threads;
+import com.dkd.framework.manager.ShutdownHook;
+import com.dkd.manage.domain.Emp;
+import com.dkd.manage.domain.Task;
+import com.dkd.manage.domain.dto.TaskRouteDto;
+import com.dkd.manage.domain.dto.VmGeoDto;
+import com.dkd.manage.event.TaskStatusEvent;
+import com.dkd.manage.mapper.EmpMapper;
+import com.dkd.manage.mapper.TaskMapper;
+
+/**
+ * 工单路线规划
+ *
+ * 按售货机坐标为每个员工的未完成工单排出访问顺序：从离所有工单中心最远的售货机出发做最近邻，
+ * 再用2-opt反转路段直到路线不再缩短。多名员工在有界线程池中并行规划，整体超过timeout时
+ * 未完成的员工按创建时间排列返回。
+ * 规划结果缓存在本地，Redis中按员工记录工单集合的版本号，工单新建、状态流转、修改、删除后加1，
+ * 版本号与缓存不一致时重新规划，多节点部署时各节点缓存同时失效。
+ *
+ * @author itheima
+ */
+@Component
+public class TaskRoutePlanner implements ShutdownHook
+{
+    private static final Logger log = LoggerFactory.getLogger(TaskRoutePlanner.class);
+
+    /** 员工工单集合版本号（hash：员工id -> 版本号） */
+    private static final String VERSION_KEY = "dkd.route.version";
+
+    @Autowired
+    private TaskMapper taskMapper;
+
+    @Autowired
+    private EmpMapper empMapper;
+
+    @Autowired
+    private VmGeoIndex vmGeoIndex;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    /** 规划线程数，0表示CPU核数 */
+    @Value("${dkd.route.parallelism:0}")
+    private int parallelism;
+
+    /** 一次规划的最长等待时间（毫秒） */
+    @Value("${dkd.route.timeout:5000}")
+    private long timeout;
+
+    /** 2-opt最大轮数 */
+    @Value("${dkd.route.max-passes:50}")
+    private int maxPasses;
+
+    /** 员工id -> 规划结果 */
+    private final Map<Long, Plan> plans = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init()
+    {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1000),
+                new BasicThreadFactory.Builder().namingPattern("task-route-%d").daemon(true).build(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * 员工的工单路线
+     *
+     * @param userId 员工id
+     * @return 路线
+     */
+    public TaskRouteDto route(Long userId)
+    {
+        Emp emp = empMapper.selectEmpById(userId);
+        if (emp == null)
+        {
+            throw new ServiceException("员工不存在");
+        }
+        return routes(Collections.singletonList(emp)).get(0);
+    }
+
+    /**
+     * 区域内所有在职员工的工单路线
+     *
+     * @param regionId 区域id
+     * @param roleCode 角色编码，为空时为运营员
+     * @return 路线集合
+     */
+    public List<TaskRouteDto> regionRoutes(Long regionId, String roleCode)
+    {
+        Emp query = new Emp();
+        query.setRegionId(regionId);
+        query.setRoleCode(StringUtils.isEmpty(roleCode) ? DkdContants.ROLE_CODE_BUSINESS : roleCode);
+        query.setStatus(DkdContants.EMP_STATUS_NORMAL.intValue());
+        return routes(empMapper.selectEmpList(query));
+    }
+
+    /**
+     * 员工的工单集合有变化，在事务中调用时提交后生效
+     *
+     * @param userIds 员工id
+     */
+    public void invalidate(Long... userIds)
+    {
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+        {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization()
+            {
+                @Override
+                public void afterCommit()
+                {
+                    doInvalidate(userIds);
+                }
+            });
+        }
+        else
+        {
+            doInvalidate(userIds);
+        }
+    }
+
+    /**
+     * 工单新建或状态流转提交后使执行人的路线失效
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTaskStatus(TaskStatusEvent event)
+    {
+        doInvalidate(event.getTask().getUserId());
+    }
+
+    private void doInvalidate(Long... userIds)
+    {
+        for (Long userId : userIds)
+        {
+            if (userId != null)
+            {
+                stringRedisTemplate.opsForHash().increment(VERSION_KEY, userId.toString(), 1);
+                plans.remove(userId);
+            }
+        }
+    }
+
+    private List<TaskRouteDto> routes(List<Emp> emps)
+    {
+        if (emps.isEmpty())
+        {
+            return new ArrayList<>();
+        }
+        //1.一次读取所有员工的版本号，版本号一致的直接使用缓存
+        List<Object> userKeys = new ArrayList<>(emps.size());
+        for (Emp emp : emps)
+        {
+            userKeys.add(emp.getId().toString());
+        }
+        List<Object> versions = stringRedisTemplate.opsForHash().multiGet(VERSION_KEY, userKeys);
+        Map<Long, TaskRouteDto> routes = new HashMap<>();
+        Map<Emp, String> stale = new LinkedHashMap<>();
+        for (int i = 0; i < emps.size(); i++)
+        {
+            Emp emp = emps.get(i);
+            String version = versions.get(i) == null ? "0" : versions.get(i).toString();
+            Plan plan = plans.get(emp.getId());
+            if (plan != null && plan.version.equals(version))
+            {
+                routes.put(emp.getId(), plan.route);
+            }
+            else
+            {
+                stale.put(emp, version);
+            }
+        }
+
+        //2.一次查出需要重新规划的员工的工单，并行规划
+        if (!stale.isEmpty())
+        {
+            Map<Long, List<Task>> tasks = new HashMap<>();
+            List<Long> userIds = new ArrayList<>(stale.size());
+            for (Emp emp : stale.keySet())
+            {
+                userIds.add(emp.getId());
+                tasks.put(emp.getId(), new ArrayList<>());
+            }
+            for (Task task : taskMapper.selectOpenTaskListByUserIds(userIds))
+            {
+                tasks.get(task.getUserId()).add(task);
+            }
+            Map<Emp, Future<TaskRouteDto>> futures = new LinkedHashMap<>();
+            for (Emp emp : stale.keySet())
+            {
+                futures.put(emp, executor.submit(() -> plan(emp, tasks.get(emp.getId()))));
+            }
+            long deadline = System.currentTimeMillis() + timeout;
+            for (Map.Entry<Emp, Future<TaskRouteDto>> entry : futures.entrySet())
+            {
+                Emp emp = entry.getKey();
+                TaskRouteDto route;
+                try
+                {
+                    route = entry.getValue().get(Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+                    plans.put(emp.getId(), new Plan(stale.get(emp), route));
+                }
+                catch (TimeoutException e)
+                {
+                    entry.getValue().cancel(true);
+                    log.warn("工单路线规划超时，员工：{}", emp.getUserName());
+                    route = unplanned(emp, tasks.get(emp.getId()));
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    throw new ServiceException("工单路线规划被中断");
+                }
+                catch (Exception e)
+                {
+                    log.error("工单路线规划失败，员工：{}", emp.getUserName(), e);
+                    route = unplanned(emp, tasks.get(emp.getId()));
+                }
+                routes.put(emp.getId(), route);
+            }
+        }
+
+        List<TaskRouteDto> result = new ArrayList<>(emps.size());
+        for (Emp emp : emps)
+        {
+            result.add(routes.get(emp.getId()));
+        }
+        return result;
+    }
+
+    /**
+     * 最近邻构造初始路线，再用2-opt改进；没有坐标的售货机排在最后
+     */
+    private TaskRouteDto plan(Emp emp, List<Task> tasks)
+    {
+        List<Task> located = new ArrayList<>();
+        List<double[]> coordinates = new ArrayList<>();
+        List<Task> unlocated = new ArrayList<>();
+        for (Task task : tasks)
+        {
+            VmGeoDto geo = vmGeoIndex.get(task.getInnerCode());
+            if (geo == null)
+            {
+                unlocated.add(task);
+            }
+            else
+            {
+                located.add(task);
+                coordinates.add(new double[] { geo.getLatitude(), geo.getLongitude() });
+            }
+        }
+        int n = located.size();
+        double[][] dist = new double[n][n];
+        double centerLat = 0, centerLng = 0;
+        for (int i = 0; i < n; i++)
+        {
+            centerLat += coordinates.get(i)[0] / n;
+            centerLng += coordinates.get(i)[1] / n;
+            for (int j = 0; j < i; j++)
+            {
+                dist[i][j] = dist[j][i] = VmGeoIndex.distance(coordinates.get(i)[0], coordinates.get(i)[1], coordinates.get(j)[0], coordinates.get(j)[1]);
+            }
+        }
+
+        //1.从离中心最远的售货机出发，每次前往最近的未访问售货机
+        int[] order = new int[n];
+        if (n > 0)
+        {
+            int start = 0;
+            double farthest = -1;
+            for (int i = 0; i < n; i++)
+            {
+                double d = VmGeoIndex.distance(centerLat, centerLng, coordinates.get(i)[0], coordinates.get(i)[1]);
+                if (d > farthest)
+                {
+                    farthest = d;
+                    start = i;
+                }
+            }
+            boolean[] visited = new boolean[n];
+            order[0] = start;
+            visited[start] = true;
+            for (int k = 1; k < n; k++)
+            {
+                int prev = order[k - 1], next = -1;
+                for (int i = 0; i < n; i++)
+                {
+                    if (!visited[i] && (next < 0 || dist[prev][i] < dist[prev][next]))
+                    {
+                        next = i;
+                    }
+                }
+                order[k] = next;
+                visited[next] = true;
+            }
+        }
+
+        //2.2-opt：反转order[i..j]能缩短路线时执行反转（路线不回到起点，两端没有相邻边）
+        boolean improved = true;
+        for (int pass = 0; improved && pass < maxPasses && !Thread.currentThread().isInterrupted(); pass++)
+        {
+            improved = false;
+            for (int i = 0; i < n - 1; i++)
+            {
+                for (int j = i + 1; j < n; j++)
+                {
+                    double before = 0, after = 0;
+                    if (i > 0)
+                    {
+                        before += dist[order[i - 1]][order[i]];
+                        after += dist[order[i - 1]][order[j]];
+                    }
+                    if (j < n - 1)
+                    {
+                        before += dist[order[j]][order[j + 1]];
+                        after += dist[order[i]][order[j + 1]];
+                    }
+                    if (after < before - 1e-6)
+                    {
+                        for (int l = i, r = j; l < r; l++, r--)
+                        {
+                            int tmp = order[l];
+                            order[l] = order[r];
+                            order[r] = tmp;
+                        }
+                        improved = true;
+                    }
+                }
+            }
+        }
+
+        List<Task> taskList = new ArrayList<>(tasks.size());
+        double distance = 0;
+        for (int k = 0; k < n; k++)
+        {
+            taskList.add(located.get(order[k]));
+            if (k > 0)
+            {
+                distance += dist[order[k - 1]][order[k]];
+            }
+        }
+        taskList.addAll(unlocated);
+        TaskRouteDto route = route(emp, taskList, true);
+        route.setDistance(distance);
+        return route;
+    }
+
+    private static TaskRouteDto unplanned(Emp emp, List<Task> tasks)
+    {
+        return route(emp, tasks, false);
+    }
+
+    private static TaskRouteDto route(Emp emp, List<Task> tasks, boolean planned)
+    {
+        TaskRouteDto route = new TaskRouteDto();
+        route.setUserId(emp.getId());
+        route.setUserName(emp.getUserName());
+        route.setPlanned(planned);
+        route.setTaskList(tasks);
+        return route;
+    }
+
+    /**
+     * 停止规划线程池
+     */
+    @Override
+    public void shutdown()
+    {
+        Threads.shutdownAndAwaitTermination(executor);
+    }
+
+    private static class Plan
+    {
+        private final String version;
+
+        private final TaskRouteDto route;
+
+        Plan(String version, TaskRouteDto route)
+        {
+            this.version = version;
+            this.route = route;
+        }
+    }
+}
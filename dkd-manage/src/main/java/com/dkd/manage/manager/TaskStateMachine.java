@@ -0,0 +1,152 @@
+package com.dkd.manage.manager;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import com.dkd.common.constant.DkdContants;
+import com.dkd.common.exception.ServiceException;
+import com.dkd.common.utils.DateUtils;
+import com.dkd.manage.domain.Task;
+import com.dkd.manage.event.TaskStatusEvent;
+import com.dkd.manage.mapper.TaskMapper;
+
+/**
+ * 工单状态机
+ *
+ * 状态流转：待办 -> 进行中 -> 完成，待办/进行中 -> 取消。
+ * 每次流转是一条带状态和版本号条件的update，更新行数为0说明工单已被他人修改，
+ * 重新读取后按最新状态再次校验，最多重试MAX_RETRY次；成功后发布TaskStatusEvent。
+ * 每次尝试在独立事务中执行，调用方不应在外层事务中调用，否则重试读到的仍是旧快照。
+ *
+ * @author itheima
+ */
+@Component
+public class TaskStateMachine
+{
+    /** 冲突重试次数 */
+    private static final int MAX_RETRY = 3;
+
+    /** 允许的状态流转 */
+    private static final Map<Long, Set<Long>> TRANSITIONS = new HashMap<>();
+
+    /** 状态名称 */
+    private static final Map<Long, String> STATUS_NAMES = new HashMap<>();
+
+    static
+    {
+        TRANSITIONS.put(DkdContants.TASK_STATUS_CREATE, statusSet(DkdContants.TASK_STATUS_PROGRESS, DkdContants.TASK_STATUS_CANCEL));
+        TRANSITIONS.put(DkdContants.TASK_STATUS_PROGRESS, statusSet(DkdContants.TASK_STATUS_FINISH, DkdContants.TASK_STATUS_CANCEL));
+        STATUS_NAMES.put(DkdContants.TASK_STATUS_CREATE, "待办");
+        STATUS_NAMES.put(DkdContants.TASK_STATUS_PROGRESS, "进行中");
+        STATUS_NAMES.put(DkdContants.TASK_STATUS_CANCEL, "已取消");
+        STATUS_NAMES.put(DkdContants.TASK_STATUS_FINISH, "已完成");
+    }
+
+    @Autowired
+    private TaskMapper taskMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    /**
+     * 是否允许从fromStatus流转到toStatus
+     */
+    public static boolean canTransit(Long fromStatus, Long toStatus)
+    {
+        Set<Long> targets = TRANSITIONS.get(fromStatus);
+        return targets != null && targets.contains(toStatus);
+    }
+
+    /**
+     * 工单状态流转
+     *
+     * @param taskId 工单主键
+     * @param toStatus 目标状态
+     * @param desc 备注，为空时不修改
+     * @return 流转后的工单
+     */
+    public Task transit(Long taskId, Long toStatus, String desc)
+    {
+        for (int i = 0; i < MAX_RETRY; i++)
+        {
+            Task task = transactionTemplate.execute(status -> tryTransit(taskId, toStatus, desc));
+            if (task != null)
+            {
+                return task;
+            }
+        }
+        throw new ServiceException("工单状态已被他人修改，请刷新后重试");
+    }
+
+    /**
+     * 发布新建工单事件，需在插入工单的事务内调用
+     *
+     * @param task 新建的工单
+     */
+    public void created(Task task)
+    {
+        if (task.getVersion() == null)
+        {
+            task.setVersion(0L);
+        }
+        eventPublisher.publishEvent(new TaskStatusEvent(this, task, null, task.getTaskStatus()));
+    }
+
+    /**
+     * 单次尝试，版本冲突时返回null
+     */
+    private Task tryTransit(Long taskId, Long toStatus, String desc)
+    {
+        Task task = taskMapper.selectTaskByTaskId(taskId);
+        if (task == null)
+        {
+            throw new ServiceException("工单不存在");
+        }
+        Long fromStatus = task.getTaskStatus();
+        if (fromStatus.equals(toStatus))
+        {
+            throw new ServiceException("该工单" + statusName(fromStatus) + "，不能重复操作");
+        }
+        if (!canTransit(fromStatus, toStatus))
+        {
+            throw new ServiceException("该工单" + statusName(fromStatus) + "，不能变更为" + statusName(toStatus));
+        }
+        Date now = DateUtils.getNowDate();
+        if (taskMapper.updateTaskStatus(taskId, fromStatus, toStatus, task.getVersion(), desc, now) == 0)
+        {
+            return null;
+        }
+        task.setTaskStatus(toStatus);
+        task.setVersion(task.getVersion() + 1);
+        task.setUpdateTime(now);
+        if (desc != null)
+        {
+            task.setDesc(desc);
+        }
+        eventPublisher.publishEvent(new TaskStatusEvent(this, task, fromStatus, toStatus));
+        return task;
+    }
+
+    private static String statusName(Long status)
+    {
+        String name = STATUS_NAMES.get(status);
+        return name == null ? "状态为" + status : name;
+    }
+
+    private static Set<Long> statusSet(Long... statuses)
+    {
+        Set<Long> set = new HashSet<>();
+        Collections.addAll(set, statuses);
+        return Collections.unmodifiableSet(set);
+    }
+}
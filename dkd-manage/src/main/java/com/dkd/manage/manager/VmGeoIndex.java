@@ -0,0 +1,562 @@
+package com.dkd.manage.manager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import com.dkd.common.utils.StringUtils;
+import com.dkd.manage.domain.VendingMachine;
+import com.dkd.manage.domain.dto.VmGeoDto;
+import com.dkd.manage.mapper.VendingMachineMapper;
+
+/**
+ * 售货机空间索引
+ *
+ * 按经纬度把售货机划分到等大的网格中（默认0.01度，约1公里），内存中保存网格 -> 售货机集合。
+ * 半径和矩形查询只扫描覆盖范围内的网格：半径查询按球冠的经度跨度取外接矩形，跨过±180°经线时分两段扫描，
+ * 包含极点时扫描全部经度；最近K台从一个网格边长的半径开始按倍数扩大半径查询，直到找到K台或覆盖全球。
+ * 新增、修改、删除售货机时在事务提交后更新本节点的索引，并通过Redis频道通知其他节点：
+ * 位置变化的售货机按id从库中重新读取，删除的售货机直接移出索引。
+ *
+ * @author itheima
+ */
+@Component
+public class VmGeoIndex implements MessageListener
+{
+    private static final Logger log = LoggerFactory.getLogger(VmGeoIndex.class);
+
+    /** 位置变更通知频道，消息内容为"put:id,id"或"remove:id,id" */
+    private static final String CHANNEL = "dkd.geo.changed";
+
+    private static final String PUT = "put:";
+
+    private static final String REMOVE = "remove:";
+
+    /** 地球平均半径（米） */
+    private static final double EARTH_RADIUS = 6371008.8;
+
+    /** 每度纬度对应的米数 */
+    private static final double METERS_PER_DEGREE = Math.PI * EARTH_RADIUS / 180;
+
+    /** 外接矩形向外放宽的度数，避免边界上的点因浮点误差漏掉 */
+    private static final double BOUND_EPSILON = 1e-9;
+
+    @Autowired
+    private VendingMachineMapper vendingMachineMapper;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    /** 网格边长（度） */
+    @Value("${dkd.geo.cell-size:0.01}")
+    private double cellSize;
+
+    /** 库中经纬度的缩放倍数（库中值 / 倍数 = 度） */
+    @Value("${dkd.geo.coordinate-scale:1000000}")
+    private double coordinateScale;
+
+    /** 网格 -> 售货机 */
+    private final Map<Long, Set<Point>> cells = new ConcurrentHashMap<>();
+
+    /** 售货机id -> 位置 */
+    private final Map<Long, Point> points = new ConcurrentHashMap<>();
+
+    /** 售货机编号 -> 位置 */
+    private final Map<String, Point> codes = new ConcurrentHashMap<>();
+
+    /** 已占用网格的行列范围，用于限制扫描的网格数 */
+    private volatile int minRow = Integer.MAX_VALUE, maxRow = Integer.MIN_VALUE, minCol = Integer.MAX_VALUE, maxCol = Integer.MIN_VALUE;
+
+    @PostConstruct
+    public void init()
+    {
+        reload();
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+    }
+
+    /**
+     * 全量加载
+     */
+    public synchronized void reload()
+    {
+        cells.clear();
+        points.clear();
+        codes.clear();
+        minRow = Integer.MAX_VALUE;
+        maxRow = Integer.MIN_VALUE;
+        minCol = Integer.MAX_VALUE;
+        maxCol = Integer.MIN_VALUE;
+        vendingMachineMapper.streamVendingMachineList(new VendingMachine(), context -> add(context.getResultObject()));
+        log.info("售货机空间索引加载完成，共{}台", points.size());
+    }
+
+    /**
+     * 新增或更新售货机位置，在事务中调用时提交后生效
+     *
+     * @param vm 售货机，需含id、innerCode、longitudes、latitude
+     */
+    public void put(VendingMachine vm)
+    {
+        if (vm == null || vm.getId() == null)
+        {
+            return;
+        }
+        putAll(Collections.singletonList(vm));
+    }
+
+    /**
+     * 批量新增或更新售货机位置，在事务中调用时提交后生效，其他节点共收到一条通知
+     *
+     * @param vms 售货机，需含id、innerCode、longitudes、latitude
+     */
+    public void putAll(Collection<VendingMachine> vms)
+    {
+        List<Long> ids = new ArrayList<>(vms.size());
+        for (VendingMachine vm : vms)
+        {
+            if (vm != null && vm.getId() != null)
+            {
+                ids.add(vm.getId());
+            }
+        }
+        if (ids.isEmpty())
+        {
+            return;
+        }
+        afterCommit(() -> {
+            synchronized (this)
+            {
+                for (VendingMachine vm : vms)
+                {
+                    if (vm != null && vm.getId() != null)
+                    {
+                        removePoint(vm.getId());
+                        add(vm);
+                    }
+                }
+            }
+            send(PUT, ids);
+        });
+    }
+
+    /**
+     * 删除售货机，在事务中调用时提交后生效
+     *
+     * @param ids 售货机id
+     */
+    public void remove(Long... ids)
+    {
+        afterCommit(() -> {
+            synchronized (this)
+            {
+                for (Long id : ids)
+                {
+                    removePoint(id);
+                }
+            }
+            send(REMOVE, Arrays.asList(ids));
+        });
+    }
+
+    /**
+     * 其他节点发来的位置变更通知
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern)
+    {
+        String body = NodeMessage.unwrap(message);
+        if (body == null)
+        {
+            return;
+        }
+        try
+        {
+            if (body.startsWith(PUT))
+            {
+                Long[] ids = parseIds(body.substring(PUT.length()));
+                // 重新读取最新位置；已被删除的售货机查不到，同样移出索引
+                List<VendingMachine> vms = ids.length == 0 ? Collections.emptyList() : vendingMachineMapper.selectVendingMachineByIds(ids);
+                synchronized (this)
+                {
+                    for (Long id : ids)
+                    {
+                        removePoint(id);
+                    }
+                    for (VendingMachine vm : vms)
+                    {
+                        add(vm);
+                    }
+                }
+            }
+            else if (body.startsWith(REMOVE))
+            {
+                synchronized (this)
+                {
+                    for (Long id : parseIds(body.substring(REMOVE.length())))
+                    {
+                        removePoint(id);
+                    }
+                }
+            }
+        }
+        catch (Exception e)
+        {
+            log.error("售货机空间索引刷新失败，通知内容：{}", body, e);
+        }
+    }
+
+    /**
+     * 按售货机编号获取位置
+     *
+     * @param innerCode 售货机编号
+     * @return 位置，没有坐标时为空
+     */
+    public VmGeoDto get(String innerCode)
+    {
+        Point point = codes.get(innerCode);
+        return point == null ? null : point.toDto(null);
+    }
+
+    /**
+     * 距离最近的K台售货机
+     *
+     * @param lat 纬度
+     * @param lng 经度
+     * @param k 数量
+     * @return 按距离升序
+     */
+    public List<VmGeoDto> nearest(double lat, double lng, int k)
+    {
+        List<VmGeoDto> result = new ArrayList<>();
+        if (k <= 0 || points.isEmpty())
+        {
+            return result;
+        }
+        // 半径内的点已全部找到，半径外的点都比其中第K近的远
+        List<Candidate> candidates;
+        double radius = cellSize * METERS_PER_DEGREE;
+        while (true)
+        {
+            candidates = within(lat, lng, radius);
+            if (candidates.size() >= k || radius >= Math.PI * EARTH_RADIUS)
+            {
+                break;
+            }
+            radius *= 2;
+        }
+        candidates.sort(Comparator.comparingDouble(c -> c.distance));
+        for (Candidate candidate : candidates.subList(0, Math.min(k, candidates.size())))
+        {
+            result.add(candidate.point.toDto(candidate.distance));
+        }
+        return result;
+    }
+
+    /**
+     * 半径范围内的售货机
+     *
+     * @param lat 纬度
+     * @param lng 经度
+     * @param radius 半径（米）
+     * @return 按距离升序
+     */
+    public List<VmGeoDto> withinRadius(double lat, double lng, double radius)
+    {
+        List<Candidate> candidates = within(lat, lng, radius);
+        candidates.sort(Comparator.comparingDouble(c -> c.distance));
+        List<VmGeoDto> result = new ArrayList<>(candidates.size());
+        for (Candidate candidate : candidates)
+        {
+            result.add(candidate.point.toDto(candidate.distance));
+        }
+        return result;
+    }
+
+    /**
+     * 矩形范围内的售货机
+     *
+     * @param minLat 最小纬度
+     * @param minLng 最小经度
+     * @param maxLat 最大纬度
+     * @param maxLng 最大经度
+     * @return 售货机位置
+     */
+    public List<VmGeoDto> withinBox(double minLat, double minLng, double maxLat, double maxLng)
+    {
+        List<VmGeoDto> result = new ArrayList<>();
+        for (Point point : scan(minLat, minLng, maxLat, maxLng))
+        {
+            result.add(point.toDto(null));
+        }
+        return result;
+    }
+
+    /**
+     * 两点间的球面距离（米）
+     */
+    public static double distance(double lat1, double lng1, double lat2, double lng2)
+    {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    /**
+     * 矩形内的点；覆盖的网格数多于售货机数时直接遍历全部售货机
+     */
+    private List<Point> scan(double minLat, double minLng, double maxLat, double maxLng)
+    {
+        List<Point> result = new ArrayList<>();
+        int r1 = Math.max(row(minLat), minRow), r2 = Math.min(row(maxLat), maxRow);
+        int c1 = Math.max(col(minLng), minCol), c2 = Math.min(col(maxLng), maxCol);
+        if (r1 > r2 || c1 > c2)
+        {
+            return result;
+        }
+        Collection<Point> source;
+        if ((long) (r2 - r1 + 1) * (c2 - c1 + 1) > points.size())
+        {
+            source = points.values();
+        }
+        else
+        {
+            source = new ArrayList<>();
+            for (int r = r1; r <= r2; r++)
+            {
+                for (int c = c1; c <= c2; c++)
+                {
+                    Set<Point> cell = cells.get(cellKey(r, c));
+                    if (cell != null)
+                    {
+                        source.addAll(cell);
+                    }
+                }
+            }
+        }
+        for (Point point : source)
+        {
+            if (point.lat >= minLat && point.lat <= maxLat && point.lng >= minLng && point.lng <= maxLng)
+            {
+                result.add(point);
+            }
+        }
+        return result;
+    }
+
+    private void send(String op, List<Long> ids)
+    {
+        try
+        {
+            stringRedisTemplate.convertAndSend(CHANNEL, NodeMessage.wrap(op + StringUtils.join(ids, ",")));
+        }
+        catch (Exception e)
+        {
+            log.error("售货机位置变更通知发送失败，{}{}", op, ids, e);
+        }
+    }
+
+    private static Long[] parseIds(String text)
+    {
+        List<Long> ids = new ArrayList<>();
+        for (String id : text.split(","))
+        {
+            if (StringUtils.isNotEmpty(id))
+            {
+                ids.add(Long.valueOf(id.trim()));
+            }
+        }
+        return ids.toArray(new Long[0]);
+    }
+
+    /**
+     * 半径范围内的点及其距离（未排序）
+     */
+    private List<Candidate> within(double lat, double lng, double radius)
+    {
+        double angle = radius / EARTH_RADIUS;
+        double dLat = Math.toDegrees(angle) + BOUND_EPSILON;
+        double minLat = lat - dLat, maxLat = lat + dLat;
+        List<Point> source = new ArrayList<>();
+        if (maxLat >= 90 || minLat <= -90)
+        {
+            // 包含极点，任意经度都可能在范围内
+            source.addAll(scan(minLat, -180, maxLat, 180));
+        }
+        else
+        {
+            // 球冠的最大经度跨度：sin(dLng) = sin(半径对应的圆心角) / cos(纬度)
+            double dLng = Math.toDegrees(Math.asin(Math.min(1, Math.sin(angle) / Math.cos(Math.toRadians(lat))))) + BOUND_EPSILON;
+            double minLng = lng - dLng, maxLng = lng + dLng;
+            if (dLng >= 180)
+            {
+                source.addAll(scan(minLat, -180, maxLat, 180));
+            }
+            else if (minLng < -180)
+            {
+                source.addAll(scan(minLat, minLng + 360, maxLat, 180));
+                source.addAll(scan(minLat, -180, maxLat, maxLng));
+            }
+            else if (maxLng > 180)
+            {
+                source.addAll(scan(minLat, minLng, maxLat, 180));
+                source.addAll(scan(minLat, -180, maxLat, maxLng - 360));
+            }
+            else
+            {
+                source.addAll(scan(minLat, minLng, maxLat, maxLng));
+            }
+        }
+        List<Candidate> result = new ArrayList<>();
+        for (Point point : source)
+        {
+            double distance = distance(lat, lng, point.lat, point.lng);
+            if (distance <= radius)
+            {
+                result.add(new Candidate(point, distance));
+            }
+        }
+        return result;
+    }
+
+    private void add(VendingMachine vm)
+    {
+        if (vm.getLongitudes() == null || vm.getLatitude() == null
+                || (vm.getLongitudes() == 0 && vm.getLatitude() == 0))
+        {
+            return;
+        }
+        Point point = new Point(vm.getId(), vm.getInnerCode(), vm.getLatitude() / coordinateScale, vm.getLongitudes() / coordinateScale);
+        int row = row(point.lat), col = col(point.lng);
+        point.cellKey = cellKey(row, col);
+        cells.computeIfAbsent(point.cellKey, key -> ConcurrentHashMap.newKeySet()).add(point);
+        points.put(point.id, point);
+        if (point.innerCode != null)
+        {
+            codes.put(point.innerCode, point);
+        }
+        minRow = Math.min(minRow, row);
+        maxRow = Math.max(maxRow, row);
+        minCol = Math.min(minCol, col);
+        maxCol = Math.max(maxCol, col);
+    }
+
+    private void removePoint(Long id)
+    {
+        Point point = points.remove(id);
+        if (point == null)
+        {
+            return;
+        }
+        if (point.innerCode != null)
+        {
+            codes.remove(point.innerCode, point);
+        }
+        Set<Point> cell = cells.get(point.cellKey);
+        if (cell != null)
+        {
+            cell.remove(point);
+        }
+    }
+
+    private int row(double lat)
+    {
+        return (int) Math.floor(lat / cellSize);
+    }
+
+    private int col(double lng)
+    {
+        return (int) Math.floor(lng / cellSize);
+    }
+
+    private static long cellKey(int row, int col)
+    {
+        return ((long) row << 32) | (col & 0xFFFFFFFFL);
+    }
+
+    private static void afterCommit(Runnable action)
+    {
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+        {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization()
+            {
+                @Override
+                public void afterCommit()
+                {
+                    action.run();
+                }
+            });
+        }
+        else
+        {
+            action.run();
+        }
+    }
+
+    private static class Point
+    {
+        private final Long id;
+
+        private final String innerCode;
+
+        private final double lat;
+
+        private final double lng;
+
+        private long cellKey;
+
+        Point(Long id, String innerCode, double lat, double lng)
+        {
+            this.id = id;
+            this.innerCode = innerCode;
+            this.lat = lat;
+            this.lng = lng;
+        }
+
+        VmGeoDto toDto(Double distance)
+        {
+            VmGeoDto dto = new VmGeoDto();
+            dto.setId(id);
+            dto.setInnerCode(innerCode);
+            dto.setLatitude(lat);
+            dto.setLongitude(lng);
+            dto.setDistance(distance);
+            return dto;
+        }
+    }
+
+    private static class Candidate
+    {
+        private final Point point;
+
+        private final double distance;
+
+        Candidate(Point point, double distance)
+        {
+            this.point = point;
+            this.distance = distance;
+        }
+    }
+}
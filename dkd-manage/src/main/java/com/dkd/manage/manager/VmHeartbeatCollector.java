@@ -0,0 +1,379 @@
+package com.dkd.manage.manager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import com.dkd.common.exception.ServiceException;
+import com.dkd.common.utils.StringUtils;
+import com.dkd.framework.manager.ShutdownHook;
+import com.dkd.manage.domain.VendingMachine;
+import com.dkd.manage.domain.dto.VmHeartbeatDto;
+import com.dkd.manage.mapper.VendingMachineMapper;
+
+/**
+ * 售货机心跳收集
+ *
+ * 心跳按售货机编号合并在内存中（后到覆盖先到），后台线程定期取出，
+ * 只把运行状态有变化、或距上次落库超过persist-interval的售货机合并为一条update写入；
+ * 离线检测按数据库中的最后心跳时间执行，多节点部署时结果一致。
+ * 接口免登录，按售货机编号和clientId认证：认证通过的clientId缓存client-ttl，
+ * 不存在或没有clientId的编号在unknown-ttl内直接拒绝，不再查库。
+ * 售货机修改或删除的事务提交后清除本节点的缓存，并通过Redis频道通知其他节点清除。
+ *
+ * @author itheima
+ */
+@Component
+public class VmHeartbeatCollector implements ShutdownHook, MessageListener
+{
+    private static final Logger log = LoggerFactory.getLogger(VmHeartbeatCollector.class);
+
+    /** 认证缓存清除通知频道，消息内容为"节点标识|逗号分隔的售货机编号" */
+    private static final String CHANNEL = "dkd.heartbeat.evict";
+
+    @Autowired
+    private VendingMachineMapper vendingMachineMapper;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    /** 写入间隔（毫秒） */
+    @Value("${dkd.heartbeat.flush-interval:5000}")
+    private long flushInterval;
+
+    /** 运行状态未变化时最后心跳时间的落库间隔（秒） */
+    @Value("${dkd.heartbeat.persist-interval:60}")
+    private long persistInterval;
+
+    /** 超过该时长没有心跳视为离线（秒），应大于persist-interval */
+    @Value("${dkd.heartbeat.offline-timeout:180}")
+    private long offlineTimeout;
+
+    /** 每条update写入的售货机数 */
+    @Value("${dkd.heartbeat.batch-size:500}")
+    private int batchSize;
+
+    /** 待写入的心跳 */
+    private final Map<String, VendingMachine> pending = new ConcurrentHashMap<>();
+
+    /** 最近一次落库的心跳 */
+    private final Map<String, VendingMachine> persisted = new ConcurrentHashMap<>();
+
+    /** 认证失败的编号的缓存时间（秒） */
+    @Value("${dkd.heartbeat.unknown-ttl:60}")
+    private long unknownTtl;
+
+    /** 认证失败的编号最多缓存条数 */
+    @Value("${dkd.heartbeat.unknown-max-size:10000}")
+    private int unknownMaxSize;
+
+    /** 认证通过的clientId的缓存时间（秒） */
+    @Value("${dkd.heartbeat.client-ttl:600}")
+    private long clientTtl;
+
+    /** 售货机编号 -> clientId，过期后重新查库，过期条目由后台线程清理 */
+    private final Map<String, Client> clients = new ConcurrentHashMap<>();
+
+    /** 认证失败的售货机编号 -> 过期时间，超过上限时淘汰最早写入的 */
+    private final Map<String, Long> unknown = new LinkedHashMap<String, Long>()
+    {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest)
+        {
+            return size() > unknownMaxSize;
+        }
+    };
+
+    private Thread flusher;
+
+    private volatile boolean running;
+
+    @PostConstruct
+    public void init()
+    {
+        running = true;
+        flusher = new Thread(this::flushLoop, "vm-heartbeat-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+    }
+
+    /**
+     * 接收心跳
+     *
+     * @param heartbeat 心跳
+     */
+    public void receive(VmHeartbeatDto heartbeat)
+    {
+        String innerCode = heartbeat.getInnerCode();
+        if (StringUtils.isEmpty(innerCode) || StringUtils.isEmpty(heartbeat.getClientId()))
+        {
+            throw new ServiceException("设备编号和clientId不能为空");
+        }
+        if (!heartbeat.getClientId().equals(clientId(innerCode)))
+        {
+            throw new ServiceException("设备认证失败");
+        }
+        VendingMachine vm = new VendingMachine();
+        vm.setInnerCode(innerCode);
+        vm.setRunningStatus(heartbeat.getRunningStatus());
+        vm.setLastHeartbeatTime(new Date());
+        pending.put(innerCode, vm);
+    }
+
+    /**
+     * 写入有变化的心跳
+     *
+     * @return 写入的售货机数
+     */
+    public synchronized int flush()
+    {
+        long persistBefore = System.currentTimeMillis() - persistInterval * 1000;
+        List<VendingMachine> changed = new ArrayList<>();
+        for (String innerCode : pending.keySet())
+        {
+            VendingMachine vm = pending.remove(innerCode);
+            if (vm == null)
+            {
+                continue;
+            }
+            VendingMachine last = persisted.get(innerCode);
+            boolean statusChanged = vm.getRunningStatus() != null
+                    && (last == null || !Objects.equals(vm.getRunningStatus(), last.getRunningStatus()));
+            if (last == null || statusChanged || last.getLastHeartbeatTime().getTime() < persistBefore)
+            {
+                changed.add(vm);
+            }
+        }
+        for (int i = 0; i < changed.size(); i += batchSize)
+        {
+            List<VendingMachine> batch = changed.subList(i, Math.min(i + batchSize, changed.size()));
+            try
+            {
+                vendingMachineMapper.batchUpdateHeartbeat(batch);
+            }
+            catch (RuntimeException e)
+            {
+                // 写入失败时放回，已有更新的心跳不覆盖
+                for (VendingMachine vm : batch)
+                {
+                    pending.putIfAbsent(vm.getInnerCode(), vm);
+                }
+                throw e;
+            }
+            for (VendingMachine vm : batch)
+            {
+                VendingMachine last = persisted.get(vm.getInnerCode());
+                if (vm.getRunningStatus() == null && last != null)
+                {
+                    vm.setRunningStatus(last.getRunningStatus());
+                }
+                persisted.put(vm.getInnerCode(), vm);
+            }
+        }
+        return changed.size();
+    }
+
+    /**
+     * 将心跳超时的售货机标记为离线
+     *
+     * @return 标记离线的售货机数
+     */
+    public int detectOffline()
+    {
+        Date deadline = new Date(System.currentTimeMillis() - offlineTimeout * 1000);
+        int count = vendingMachineMapper.updateOfflineMachines(deadline);
+        if (count > 0)
+        {
+            log.info("{}台售货机心跳超时，已标记为离线", count);
+        }
+        return count;
+    }
+
+    /**
+     * 清除售货机的认证缓存（clientId修改、编号修改或售货机删除后），在事务中调用时提交后生效
+     *
+     * @param innerCodes 售货机编号
+     */
+    public void evict(Collection<String> innerCodes)
+    {
+        List<String> codes = new ArrayList<>();
+        for (String innerCode : innerCodes)
+        {
+            if (StringUtils.isNotEmpty(innerCode))
+            {
+                codes.add(innerCode);
+            }
+        }
+        if (codes.isEmpty())
+        {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+        {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization()
+            {
+                @Override
+                public void afterCommit()
+                {
+                    evictAndSend(codes);
+                }
+            });
+        }
+        else
+        {
+            evictAndSend(codes);
+        }
+    }
+
+    /**
+     * 其他节点发来的清除通知
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern)
+    {
+        String body = NodeMessage.unwrap(message);
+        if (body != null)
+        {
+            evictLocal(StringUtils.str2List(body, ",", true, true));
+        }
+    }
+
+    private void evictAndSend(List<String> innerCodes)
+    {
+        evictLocal(innerCodes);
+        try
+        {
+            stringRedisTemplate.convertAndSend(CHANNEL, NodeMessage.wrap(StringUtils.join(innerCodes, ",")));
+        }
+        catch (Exception e)
+        {
+            log.error("售货机认证缓存清除通知发送失败，{}", innerCodes, e);
+        }
+    }
+
+    private void evictLocal(Collection<String> innerCodes)
+    {
+        for (String innerCode : innerCodes)
+        {
+            clients.remove(innerCode);
+            synchronized (unknown)
+            {
+                unknown.remove(innerCode);
+            }
+        }
+    }
+
+    private String clientId(String innerCode)
+    {
+        long now = System.currentTimeMillis();
+        Client client = clients.get(innerCode);
+        if (client != null && client.expireAt > now)
+        {
+            return client.clientId;
+        }
+        synchronized (unknown)
+        {
+            Long expireAt = unknown.get(innerCode);
+            if (expireAt != null && expireAt > now)
+            {
+                throw new ServiceException("设备认证失败");
+            }
+        }
+        VendingMachine vm = vendingMachineMapper.selectVendingMachineByInnerCode(innerCode);
+        if (vm == null || StringUtils.isEmpty(vm.getClientId()))
+        {
+            synchronized (unknown)
+            {
+                unknown.remove(innerCode);
+                unknown.put(innerCode, now + unknownTtl * 1000);
+            }
+            throw new ServiceException("设备认证失败");
+        }
+        clients.put(innerCode, new Client(vm.getClientId(), now + clientTtl * 1000));
+        return vm.getClientId();
+    }
+
+    private void flushLoop()
+    {
+        while (running)
+        {
+            try
+            {
+                Thread.sleep(flushInterval);
+                flush();
+                long now = System.currentTimeMillis();
+                clients.values().removeIf(client -> client.expireAt <= now);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            catch (Exception e)
+            {
+                log.error("售货机心跳写入异常", e);
+            }
+        }
+    }
+
+    /**
+     * 停止后台线程并写入剩余心跳
+     */
+    @Override
+    public void shutdown()
+    {
+        running = false;
+        try
+        {
+            flusher.join(flushInterval * 2);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        try
+        {
+            flush();
+        }
+        catch (Exception e)
+        {
+            log.error("停机时售货机心跳写入失败", e);
+        }
+    }
+
+    private static class Client
+    {
+        private final String clientId;
+
+        private final long expireAt;
+
+        Client(String clientId, long expireAt)
+        {
+            this.clientId = clientId;
+            this.expireAt = expireAt;
+        }
+    }
+}
@@ -3,6 +3,8 @@ package com.dkd.manage.mapper;
 import java.util.List;
 import com.dkd.manage.domain.Channel;
 import com.dkd.manage.domain.ChannelVo;
+import com.dkd.manage.domain.dto.ChannelSkuDto;
+import com.dkd.manage.domain.dto.ChannelSupplyDto;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 
@@ -92,9 +94,41 @@ public interface ChannelMapper
     Channel getChannelInfo(@Param("innerCode") String innerCode, @Param("channelCode") String channelCode);
 
     /**
-     * 批量更新货道信息
-     * @param channelList
+     * 按货道id批量更新关联商品（单条update）
+     * @param channelList 货道列表，需含id、skuId
      * @return 更新结果
      */
-    int batchUpdateChannels(List<Channel> channelList);
+    int batchUpdateChannelSku(List<Channel> channelList);
+
+    /**
+     * 按售货机类型批量更新货道关联商品（单条update）
+     * @param vmTypeId 售货机类型id
+     * @param innerCodes 限定的售货机编号，为空时更新该类型的全部售货机
+     * @param channelList 货道编号和商品id
+     * @return 更新结果
+     */
+    int updateChannelSkuByVmType(@Param("vmTypeId") Long vmTypeId, @Param("innerCodes") List<String> innerCodes,
+                                 @Param("channelList") List<ChannelSkuDto> channelList);
+
+    /**
+     * 按售货机编号和货道编号批量更新当前库存（单条update）
+     * @param channelList 货道列表，需含innerCode、channelCode、currentCapacity
+     * @return 更新结果
+     */
+    int batchUpdateChannelCapacity(List<Channel> channelList);
+
+    /**
+     * 查询多台售货机的货道库存
+     * @param innerCodes 售货机编号集合
+     * @return 货道列表，仅含id、innerCode、channelCode、skuId、currentCapacity
+     */
+    List<Channel> selectChannelStockList(@Param("innerCodes") List<String> innerCodes);
+
+    /**
+     * 查询运营中售货机上低于补货警戒线、且没有未完成补货工单的货道
+     *
+     * @param alertValue 补货警戒线（剩余容量百分比）
+     * @return 待补货货道集合（按售货机编号排序）
+     */
+    List<ChannelSupplyDto> selectSupplyChannelList(@Param("alertValue") Long alertValue);
 }
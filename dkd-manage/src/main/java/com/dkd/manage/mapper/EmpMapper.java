@@ -2,8 +2,8 @@ package com.dkd.manage.mapper;
 
 import java.util.List;
 import com.dkd.manage.domain.Emp;
+import com.dkd.manage.domain.dto.EmpTaskLoadDto;
 import org.apache.ibatis.annotations.Param;
-import org.apache.ibatis.annotations.Update;
 
 /**
  * 人员列表Mapper接口
@@ -61,9 +61,51 @@ public interface EmpMapper
      */
     public int deleteEmpByIds(Long[] ids);
 
-    /*
-      根据区域id修改区域名称
+    /**
+     * 按主键顺序分批查询区域下的员工id
+     *
+     * @param regionId 区域id
+     * @param afterId 从该主键之后开始
+     * @param limit 条数
+     * @return 员工id集合
+     */
+    public List<Long> selectEmpIdListByRegionId(@Param("regionId") Long regionId, @Param("afterId") Long afterId, @Param("limit") int limit);
+
+    /**
+     * 按区域当前名称改写主键区间内员工的区域名称
+     *
+     * @param regionId 区域id
+     * @param fromId 主键下限（不含）
+     * @param toId 主键上限（含）
+     * @return 结果
+     */
+    public int updateEmpFromRegion(@Param("regionId") Long regionId, @Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    /**
+     * 按主键顺序分批查询角色下的员工id
+     *
+     * @param roleId 角色id
+     * @param afterId 从该主键之后开始
+     * @param limit 条数
+     * @return 员工id集合
+     */
+    public List<Long> selectEmpIdListByRoleId(@Param("roleId") Long roleId, @Param("afterId") Long afterId, @Param("limit") int limit);
+
+    /**
+     * 按角色当前信息改写主键区间内员工的角色编码和名称
+     *
+     * @param roleId 角色id
+     * @param fromId 主键下限（不含）
+     * @param toId 主键上限（含）
+     * @return 结果
+     */
+    public int updateEmpFromRole(@Param("roleId") Long roleId, @Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    /**
+     * 查询指定角色在职员工及其未完成工单数
+     *
+     * @param roleCode 角色编码
+     * @return 员工工单负载集合
      */
-    @Update("update tb_emp set region_name = #{regionName} where region_id = #{regionId}")
-    public int updateByRegionId(@Param("regionName") String regionName, @Param("regionId") Long regionId);
+    List<EmpTaskLoadDto> selectEmpTaskLoadList(@Param("roleCode") String roleCode);
 }
@@ -3,6 +3,7 @@ package com.dkd.manage.mapper;
 import java.util.List;
 import com.dkd.manage.domain.Node;
 import com.dkd.manage.domain.NodeVo;
+import com.dkd.manage.domain.dto.FleetCountDto;
 
 /**
  * 点位管理Mapper接口
@@ -20,6 +21,21 @@ public interface NodeMapper
      */
     public Node selectNodeById(Long id);
 
+    /**
+     * 批量查询点位管理
+     * 
+     * @param ids 点位管理主键集合
+     * @return 点位管理集合
+     */
+    public List<Node> selectNodeByIds(Long[] ids);
+
+    /**
+     * 按区域、合作商统计点位数
+     * 
+     * @return 统计结果
+     */
+    public List<FleetCountDto> selectFleetCountList();
+
     /**
      * 查询点位管理列表
      * 
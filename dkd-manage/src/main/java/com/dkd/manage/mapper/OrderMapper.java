@@ -1,6 +1,9 @@
 package com.dkd.manage.mapper;
 
+import java.util.Collection;
 import java.util.List;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
 import com.dkd.manage.domain.Order;
 
 /**
@@ -27,6 +30,37 @@ public interface OrderMapper
      */
     public List<Order> selectOrderList(Order order);
 
+    /**
+     * 流式查询订单管理列表
+     * 
+     * @param order 订单管理
+     * @param handler 逐行处理结果
+     */
+    public void streamOrderList(Order order, ResultHandler<Order> handler);
+
+    /**
+     * 批量查询订单管理
+     * 
+     * @param ids 订单管理主键集合
+     * @return 订单管理集合
+     */
+    public List<Order> selectOrderByIds(Long[] ids);
+
+    /**
+     * 查询已存在的订单号
+     * 
+     * @param orderNos 订单号集合
+     * @return 其中已落库的订单号
+     */
+    public List<String> selectExistingOrderNos(@Param("orderNos") Collection<String> orderNos);
+
+    /**
+     * 估算订单总数（取自表统计信息，忽略查询条件）
+     * 
+     * @return 估算总数
+     */
+    public Long estimateOrderCount();
+
     /**
      * 新增订单管理
      * 
@@ -35,6 +69,14 @@ public interface OrderMapper
      */
     public int insertOrder(Order order);
 
+    /**
+     * 批量新增订单管理
+     * 
+     * @param orderList 订单管理列表
+     * @return 结果
+     */
+    public int batchInsertOrder(List<Order> orderList);
+
     /**
      * 修改订单管理
      * 
@@ -0,0 +1,91 @@
+package com.dkd.manage.mapper;
+
+import java.util.Date;
+import java.util.List;
+import org.apache.ibatis.annotations.Param;
+import com.dkd.manage.domain.OrderStats;
+
+/**
+ * 订单汇总Mapper接口
+ * 
+ * @author itheima
+ * @date 2024-07-29
+ */
+public interface OrderStatsMapper 
+{
+    /**
+     * 按天查询订单汇总
+     * 
+     * @param orderStats 查询条件
+     * @return 订单汇总集合
+     */
+    public List<OrderStats> selectDayStatsList(OrderStats orderStats);
+
+    /**
+     * 按小时查询订单汇总
+     * 
+     * @param orderStats 查询条件
+     * @return 订单汇总集合
+     */
+    public List<OrderStats> selectHourStatsList(OrderStats orderStats);
+
+    /**
+     * 按商品查询订单汇总（按支付金额倒序）
+     * 
+     * @param orderStats 查询条件
+     * @return 订单汇总集合
+     */
+    public List<OrderStats> selectSkuStatsList(OrderStats orderStats);
+
+    /**
+     * 累加按天汇总（不存在则新增）
+     * 
+     * @param list 汇总增量
+     * @return 结果
+     */
+    public int upsertDayStats(List<OrderStats> list);
+
+    /**
+     * 累加按小时汇总（不存在则新增）
+     * 
+     * @param list 汇总增量
+     * @return 结果
+     */
+    public int upsertHourStats(List<OrderStats> list);
+
+    /**
+     * 删除时间范围内的按天汇总
+     * 
+     * @param beginTime 开始时间（含）
+     * @param endTime 结束时间（不含）
+     * @return 结果
+     */
+    public int deleteDayStats(@Param("beginTime") Date beginTime, @Param("endTime") Date endTime);
+
+    /**
+     * 删除时间范围内的按小时汇总
+     * 
+     * @param beginTime 开始时间（含）
+     * @param endTime 结束时间（不含）
+     * @return 结果
+     */
+    public int deleteHourStats(@Param("beginTime") Date beginTime, @Param("endTime") Date endTime);
+
+    /**
+     * 由按小时汇总合计时间范围内的按天数据
+     * 
+     * @param beginTime 开始时间（含）
+     * @param endTime 结束时间（不含）
+     * @return 结果
+     */
+    public int rebuildDayStats(@Param("beginTime") Date beginTime, @Param("endTime") Date endTime);
+
+    /**
+     * 从订单表重新汇总时间范围内的按小时数据
+     * 
+     * @param beginTime 开始时间（含）
+     * @param endTime 结束时间（不含）
+     * @return 结果
+     */
+    public int rebuildHourStats(@Param("beginTime") Date beginTime, @Param("endTime") Date endTime);
+}
@@ -0,0 +1,49 @@
+package com.dkd.manage.mapper;
+
+import java.util.Date;
+import java.util.List;
+import org.apache.ibatis.annotations.Param;
+import com.dkd.manage.domain.PartnerSettlement;
+
+/**
+ * 合作商分账结算Mapper接口
+ * 
+ * @author itheima
+ * @date 2024-07-29
+ */
+public interface PartnerSettlementMapper 
+{
+    /**
+     * 查询合作商分账结算列表
+     * 
+     * @param partnerSettlement 合作商分账结算
+     * @return 合作商分账结算集合
+     */
+    public List<PartnerSettlement> selectPartnerSettlementList(PartnerSettlement partnerSettlement);
+
+    /**
+     * 按合作商汇总时间范围内的已支付订单（读取按天汇总表）
+     * 
+     * @param partnerIds 合作商id集合
+     * @param beginTime 开始日期（含）
+     * @param endTime 结束日期（不含）
+     * @return 每个合作商一行，仅包含订单数与金额
+     */
+    public List<PartnerSettlement> sumPartnerSales(@Param("partnerIds") List<Long> partnerIds, @Param("beginTime") Date beginTime, @Param("endTime") Date endTime);
+
+    /**
+     * 删除结算周期的全部结算结果
+     * 
+     * @param period 结算周期
+     * @return 结果
+     */
+    public int deletePartnerSettlementByPeriod(String period);
+
+    /**
+     * 批量新增合作商分账结算
+     * 
+     * @param list 合作商分账结算列表
+     * @return 结果
+     */
+    public int batchInsertPartnerSettlement(List<PartnerSettlement> list);
+}
@@ -0,0 +1,84 @@
+package com.dkd.manage.mapper;
+
+import java.util.Date;
+import java.util.List;
+import org.apache.ibatis.annotations.Param;
+import com.dkd.manage.domain.PropagationJob;
+
+/**
+ * 冗余字段同步任务Mapper接口
+ * 
+ * @author itheima
+ */
+public interface PropagationJobMapper 
+{
+    /**
+     * 查询同步任务
+     * 
+     * @param id 同步任务主键
+     * @return 同步任务
+     */
+    public PropagationJob selectPropagationJobById(Long id);
+
+    /**
+     * 查询同步任务列表
+     * 
+     * @param propagationJob 同步任务
+     * @return 同步任务集合
+     */
+    public List<PropagationJob> selectPropagationJobList(PropagationJob propagationJob);
+
+    /**
+     * 查询可执行的同步任务：待执行、失败，以及执行中但超过staleBefore未更新进度的任务
+     * 
+     * @param staleBefore 进度更新时间早于该时间的执行中任务视为中断
+     * @return 同步任务主键集合
+     */
+    public List<Long> selectRunnablePropagationJobIds(@Param("staleBefore") Date staleBefore);
+
+    /**
+     * 登记同步任务：同一来源只保留一条，已存在时修订号加1并从头开始
+     * 
+     * @param propagationJob 同步任务
+     * @return 结果
+     */
+    public int upsertPropagationJob(PropagationJob propagationJob);
+
+    /**
+     * 认领可执行的同步任务（置为执行中）
+     * 
+     * @param id 同步任务主键
+     * @param staleBefore 进度更新时间早于该时间的执行中任务视为中断
+     * @return 认领成功为1
+     */
+    public int claimPropagationJob(@Param("id") Long id, @Param("staleBefore") Date staleBefore);
+
+    /**
+     * 记录断点，修订号已变化时不更新
+     * 
+     * @param id 同步任务主键
+     * @param revision 执行时的修订号
+     * @param lastId 已同步到的目标行主键
+     * @param count 本批同步行数
+     * @return 结果
+     */
+    public int updatePropagationJobProgress(@Param("id") Long id, @Param("revision") Long revision, @Param("lastId") Long lastId, @Param("count") int count);
+
+    /**
+     * 标记完成，修订号已变化时不更新
+     * 
+     * @param id 同步任务主键
+     * @param revision 执行时的修订号
+     * @return 结果
+     */
+    public int finishPropagationJob(@Param("id") Long id, @Param("revision") Long revision);
+
+    /**
+     * 标记失败，保留断点
+     * 
+     * @param id 同步任务主键
+     * @param errorMsg 失败原因
+     * @return 结果
+     */
+    public int failPropagationJob(@Param("id") Long id, @Param("errorMsg") String errorMsg);
+}
@@ -1,7 +1,9 @@
 package com.dkd.manage.mapper;
 
+import java.util.Collection;
 import java.util.List;
 import com.dkd.manage.domain.Sku;
+import org.apache.ibatis.annotations.Param;
 
 /**
  * 商品管理Mapper接口
@@ -19,6 +21,14 @@ public interface SkuMapper
      */
     public Sku selectSkuBySkuId(Long skuId);
 
+    /**
+     * 批量查询商品管理
+     * 
+     * @param skuIds 商品管理主键集合
+     * @return 商品管理集合
+     */
+    public List<Sku> selectSkuBySkuIds(Long[] skuIds);
+
     /**
      * 查询商品管理列表
      * 
@@ -68,4 +78,11 @@ public interface SkuMapper
      */
    public int insertSkus(List<Sku> skuList);
 
+    /**
+     * 按商品名称查询已有商品的名称和品牌（导入去重）
+     *
+     * @param skuNames 商品名称集合
+     * @return 商品集合，仅包含名称和品牌
+     */
+    public List<Sku> selectSkuNameBrandList(@Param("skuNames") Collection<String> skuNames);
 }
@@ -1,6 +1,10 @@
 package com.dkd.manage.mapper;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
 import com.dkd.manage.domain.Task;
 import com.dkd.manage.domain.vo.TaskVo;
 
@@ -20,6 +24,29 @@ public interface TaskMapper
      */
     public Task selectTaskByTaskId(Long taskId);
 
+    /**
+     * 批量查询工单
+     * 
+     * @param taskIds 工单主键集合
+     * @return 工单集合
+     */
+    public List<Task> selectTaskByTaskIds(Long[] taskIds);
+
+    /**
+     * 查询存在未完成工单（待办、进行中）的售货机编号和工单类型
+     * 
+     * @return 工单集合，仅含innerCode、productTypeId
+     */
+    public List<Task> selectOpenTaskList();
+
+    /**
+     * 查询运营员的未完成工单（待办、进行中）
+     * 
+     * @param userIds 执行人id
+     * @return 工单集合，按创建时间升序
+     */
+    public List<Task> selectOpenTaskListByUserIds(@Param("userIds") Collection<Long> userIds);
+
     /**
      * 查询工单列表
      * 
@@ -28,6 +55,14 @@ public interface TaskMapper
      */
     public List<Task> selectTaskList(Task task);
 
+    /**
+     * 流式查询工单列表
+     * 
+     * @param task 工单
+     * @param handler 逐行处理结果
+     */
+    public void streamTaskList(Task task, ResultHandler<Task> handler);
+
     /**
      * 新增工单
      * 
@@ -44,6 +79,21 @@ public interface TaskMapper
      */
     public int updateTask(Task task);
 
+    /**
+     * 按状态和版本号条件更新工单状态
+     * 
+     * @param taskId 工单主键
+     * @param fromStatus 期望的当前状态
+     * @param toStatus 目标状态
+     * @param version 期望的当前版本号
+     * @param desc 备注，为空时不修改
+     * @param updateTime 更新时间
+     * @return 结果，0表示工单已被他人修改
+     */
+    public int updateTaskStatus(@Param("taskId") Long taskId, @Param("fromStatus") Long fromStatus,
+            @Param("toStatus") Long toStatus, @Param("version") Long version,
+            @Param("desc") String desc, @Param("updateTime") Date updateTime);
+
     /**
      * 删除工单
      * 
@@ -67,4 +117,29 @@ public interface TaskMapper
      * @return 工单TaskVo集合
      */
     List<TaskVo> selectTaskVoList(Task task);
+
+    /**
+     * 估算工单总数（取自表统计信息，忽略查询条件）
+     *
+     * @return 估算总数
+     */
+    Long estimateTaskCount();
+
+    /**
+     * 批量新增工单（回填主键）
+     *
+     * @param list 工单集合
+     * @return 结果
+     */
+    int batchInsertTask(List<Task> list);
+
+    /**
+     * 按设备当前信息改写点位下主键区间内设备的未完成工单的区域和地址
+     *
+     * @param nodeId 点位id
+     * @param fromId 设备主键下限（不含）
+     * @param toId 设备主键上限（含）
+     * @return 结果
+     */
+    int updateOpenTaskFromVendingMachine(@Param("nodeId") Long nodeId, @Param("fromId") Long fromId, @Param("toId") Long toId);
 }
@@ -1,7 +1,10 @@
 package com.dkd.manage.mapper;
 
+import java.util.Date;
 import java.util.List;
+import org.apache.ibatis.session.ResultHandler;
 import com.dkd.manage.domain.VendingMachine;
+import com.dkd.manage.domain.dto.FleetCountDto;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 
@@ -21,6 +24,21 @@ public interface VendingMachineMapper
      */
     public VendingMachine selectVendingMachineById(Long id);
 
+    /**
+     * 查询设备管理集合
+     * 
+     * @param ids 设备管理主键集合
+     * @return 设备管理集合
+     */
+    public List<VendingMachine> selectVendingMachineByIds(Long[] ids);
+
+    /**
+     * 按区域、点位、合作商、设备状态统计设备数
+     * 
+     * @return 统计结果
+     */
+    public List<FleetCountDto> selectFleetCountList();
+
     /**
      * 查询设备管理列表
      * 
@@ -29,6 +47,14 @@ public interface VendingMachineMapper
      */
     public List<VendingMachine> selectVendingMachineList(VendingMachine vendingMachine);
 
+    /**
+     * 流式查询设备管理列表
+     * 
+     * @param vendingMachine 设备管理
+     * @param handler 逐行处理结果
+     */
+    public void streamVendingMachineList(VendingMachine vendingMachine, ResultHandler<VendingMachine> handler);
+
     /**
      * 新增设备管理
      * 
@@ -37,6 +63,40 @@ public interface VendingMachineMapper
      */
     public int insertVendingMachine(VendingMachine vendingMachine);
 
+    /**
+     * 批量新增设备管理（多行insert，回填主键）
+     * 
+     * @param list 设备管理集合
+     * @return 结果
+     */
+    public int batchInsertVendingMachine(List<VendingMachine> list);
+
+    /**
+     * 批量写入心跳（运行状态、最后心跳时间，并置为在线）
+     * 
+     * @param list 设备管理集合，需含innerCode、lastHeartbeatTime，runningStatus为空时不修改
+     * @return 结果
+     */
+    public int batchUpdateHeartbeat(List<VendingMachine> list);
+
+    /**
+     * 将最后心跳时间早于截止时间的在线设备标记为离线
+     * 
+     * @param deadline 截止时间
+     * @return 标记离线的设备数
+     */
+    public int updateOfflineMachines(@Param("deadline") Date deadline);
+
+    /**
+     * 批量设置设备的策略
+     * 
+     * @param policyId 策略id，为空时取消策略
+     * @param innerCodes 设备编号
+     * @param updateTime 更新时间
+     * @return 修改的设备数
+     */
+    public int updatePolicyByInnerCodes(@Param("policyId") Long policyId, @Param("innerCodes") List<String> innerCodes, @Param("updateTime") Date updateTime);
+
     /**
      * 修改设备管理
      * 
@@ -68,4 +128,24 @@ public interface VendingMachineMapper
      */
     @Select("select * from tb_vending_machine where inner_code = #{innerCode}")
     VendingMachine selectVendingMachineByInnerCode( String innerCode);
+
+    /**
+     * 按主键顺序分批查询点位下的设备
+     *
+     * @param nodeId 点位id
+     * @param afterId 从该主键之后开始
+     * @param limit 条数
+     * @return 设备集合
+     */
+    public List<VendingMachine> selectVendingMachineListByNodeId(@Param("nodeId") Long nodeId, @Param("afterId") Long afterId, @Param("limit") int limit);
+
+    /**
+     * 按点位当前信息改写主键区间内设备的区域、合作商、商圈类型和地址
+     *
+     * @param nodeId 点位id
+     * @param fromId 主键下限（不含）
+     * @param toId 主键上限（含）
+     * @return 结果
+     */
+    public int updateVendingMachineFromNode(@Param("nodeId") Long nodeId, @Param("fromId") Long fromId, @Param("toId") Long toId);
 }
@@ -19,6 +19,14 @@ public interface VmTypeMapper
      */
     public VmType selectVmTypeById(Long id);
 
+    /**
+     * 批量查询设备类型
+     * 
+     * @param ids 设备类型主键集合
+     * @return 设备类型集合
+     */
+    public List<VmType> selectVmTypeByIds(Long[] ids);
+
     /**
      * 查询设备类型管理列表
      * 
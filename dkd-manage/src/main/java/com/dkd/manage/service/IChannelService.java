@@ -1,8 +1,10 @@
 package com.dkd.manage.service;
 
 import java.util.List;
+import java.util.Map;
 import com.dkd.manage.domain.Channel;
 import com.dkd.manage.domain.ChannelVo;
+import com.dkd.manage.domain.dto.ChannelBatchConfigDto;
 import com.dkd.manage.domain.dto.ChannelConfigDto;
 
 /**
@@ -89,4 +91,27 @@ public interface IChannelService
      * @return 结果
      */
     int setChannel(ChannelConfigDto channelConfigDto);
+
+    /**
+     * 按售货机类型批量配置货道商品
+     * @param batchConfigDto
+     * @return 更新的货道数
+     */
+    int setChannelByVmType(ChannelBatchConfigDto batchConfigDto);
+
+    /**
+     * 查询售货机实时库存
+     * @param innerCode 售货机编号
+     * @return 货道编号 -> 当前库存
+     */
+    Map<String, Long> selectChannelStock(String innerCode);
+
+    /**
+     * 出货扣减货道库存
+     * @param innerCode 售货机编号
+     * @param channelCode 货道编号
+     * @param quantity 数量
+     * @return 扣减后的库存
+     */
+    long vendChannel(String innerCode, String channelCode, long quantity);
 }
@@ -1,6 +1,7 @@
 package com.dkd.manage.service;
 
 import java.util.List;
+import java.util.function.Consumer;
 import com.dkd.manage.domain.Order;
 
 /**
@@ -27,6 +28,21 @@ public interface IOrderService
      */
     public List<Order> selectOrderList(Order order);
 
+    /**
+     * 流式查询订单管理列表（用于大数据量导出）
+     * 
+     * @param order 订单管理
+     * @param consumer 逐行处理
+     */
+    public void streamOrderList(Order order, Consumer<Order> consumer);
+
+    /**
+     * 估算订单总数
+     * 
+     * @return 估算总数
+     */
+    public long estimateOrderCount();
+
     /**
      * 新增订单管理
      * 
@@ -35,6 +51,14 @@ public interface IOrderService
      */
     public int insertOrder(Order order);
 
+    /**
+     * 批量提交订单（写缓冲合并落库）
+     * 
+     * @param orderList 订单管理列表
+     * @return 结果
+     */
+    public int submitOrders(List<Order> orderList);
+
     /**
      * 修改订单管理
      * 
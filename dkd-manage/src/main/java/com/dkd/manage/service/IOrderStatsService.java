@@ -0,0 +1,70 @@
+package com.dkd.manage.service;
+
+import java.util.Date;
+import java.util.List;
+import com.dkd.manage.domain.Order;
+import com.dkd.manage.domain.OrderStats;
+
+/**
+ * 订单汇总Service接口
+ * 
+ * @author itheima
+ * @date 2024-07-29
+ */
+public interface IOrderStatsService 
+{
+    /**
+     * 按天查询订单汇总
+     * 
+     * @param orderStats 查询条件
+     * @return 订单汇总集合
+     */
+    public List<OrderStats> selectDayStatsList(OrderStats orderStats);
+
+    /**
+     * 按小时查询订单汇总
+     * 
+     * @param orderStats 查询条件
+     * @return 订单汇总集合
+     */
+    public List<OrderStats> selectHourStatsList(OrderStats orderStats);
+
+    /**
+     * 按商品查询订单汇总
+     * 
+     * @param orderStats 查询条件
+     * @return 订单汇总集合
+     */
+    public List<OrderStats> selectSkuStatsList(OrderStats orderStats);
+
+    /**
+     * 新增订单后累加汇总
+     * 
+     * @param orderList 新增的订单
+     */
+    public void recordOrders(List<Order> orderList);
+
+    /**
+     * 订单状态变化后修正汇总
+     * 
+     * @param before 修改前的订单
+     * @param after 修改后的订单
+     */
+    public void recordChange(Order before, Order after);
+
+    /**
+     * 删除订单后扣减汇总
+     * 
+     * @param orderList 删除的订单
+     */
+    public void removeOrders(List<Order> orderList);
+
+    /**
+     * 从订单表重建时间范围内的汇总（按天对齐）
+     * 
+     * @param beginTime 开始日期（含）
+     * @param endTime 结束日期（含）
+     * @return 重建的按天汇总行数
+     */
+    public int rebuildStats(Date beginTime, Date endTime);
+}
@@ -0,0 +1,29 @@
+package com.dkd.manage.service;
+
+import java.util.List;
+import com.dkd.manage.domain.PartnerSettlement;
+
+/**
+ * 合作商分账结算Service接口
+ * 
+ * @author itheima
+ * @date 2024-07-29
+ */
+public interface IPartnerSettlementService 
+{
+    /**
+     * 查询合作商分账结算列表
+     * 
+     * @param partnerSettlement 合作商分账结算
+     * @return 合作商分账结算集合
+     */
+    public List<PartnerSettlement> selectPartnerSettlementList(PartnerSettlement partnerSettlement);
+
+    /**
+     * 结算指定周期的合作商分成，重复执行会覆盖该周期之前的结果
+     * 
+     * @param period 结算周期（yyyy-MM）
+     * @return 结算的合作商数
+     */
+    public int settle(String period);
+}
@@ -1,7 +1,9 @@
 package com.dkd.manage.service;
 
 import java.util.List;
+import java.util.Map;
 import com.dkd.manage.domain.Policy;
+import com.dkd.manage.domain.dto.PolicyApplyDto;
 
 /**
  * 策略管理Service接口
@@ -58,4 +60,21 @@ public interface IPolicyService
      * @return 结果
      */
     public int deletePolicyByPolicyId(Long policyId);
+
+    /**
+     * 批量为设备设置策略
+     * 
+     * @param policyApplyDto 策略id和设备编号
+     * @return 修改的设备数
+     */
+    public int applyPolicy(PolicyApplyDto policyApplyDto);
+
+    /**
+     * 查询设备上商品的售价
+     * 
+     * @param innerCode 设备编号
+     * @param skuIds 商品id
+     * @return 商品id -> 售价（分）
+     */
+    public Map<Long, Long> selectSkuPrices(String innerCode, List<Long> skuIds);
 }
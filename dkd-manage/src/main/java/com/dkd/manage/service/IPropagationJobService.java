@@ -0,0 +1,27 @@
+package com.dkd.manage.service;
+
+import java.util.List;
+import com.dkd.manage.domain.PropagationJob;
+
+/**
+ * 冗余字段同步任务Service接口
+ * 
+ * @author itheima
+ */
+public interface IPropagationJobService 
+{
+    /**
+     * 查询同步任务列表
+     * 
+     * @param propagationJob 同步任务
+     * @return 同步任务集合
+     */
+    public List<PropagationJob> selectPropagationJobList(PropagationJob propagationJob);
+
+    /**
+     * 立即执行待执行、失败和中断的同步任务（从断点继续）
+     * 
+     * @return 执行完成的任务数
+     */
+    public int resume();
+}
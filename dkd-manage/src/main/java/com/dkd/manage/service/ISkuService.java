@@ -1,7 +1,10 @@
 package com.dkd.manage.service;
 
+import java.io.InputStream;
 import java.util.List;
+import java.util.Map;
 import com.dkd.manage.domain.Sku;
+import com.dkd.manage.domain.dto.SkuImportResultDto;
 
 /**
  * 商品管理Service接口
@@ -66,4 +69,19 @@ public interface ISkuService
      * @return 结果
      */
     public int insertSkus(List<Sku> skuList);
+
+    /**
+     * 逐行读取Excel导入商品，校验、去重后分批写入
+     *
+     * @param is Excel输入流
+     * @return 导入结果及逐行错误明细
+     */
+    public SkuImportResultDto importSkus(InputStream is) throws Exception;
+
+    /**
+     * 查询商品缓存统计
+     *
+     * @return 缓存条目数、命中数、未命中数、命中率等
+     */
+    public Map<String, Object> selectSkuCacheStats();
 }
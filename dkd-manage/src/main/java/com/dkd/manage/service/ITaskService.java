@@ -1,6 +1,7 @@
 package com.dkd.manage.service;
 
 import java.util.List;
+import java.util.function.Consumer;
 import com.dkd.manage.domain.Task;
 import com.dkd.manage.domain.dto.TaskDto;
 import com.dkd.manage.domain.vo.TaskVo;
@@ -29,6 +30,14 @@ public interface ITaskService
      */
     public List<Task> selectTaskList(Task task);
 
+    /**
+     * 流式查询工单列表（用于大数据量导出）
+     * 
+     * @param task 工单
+     * @param consumer 逐行处理
+     */
+    public void streamTaskList(Task task, Consumer<Task> consumer);
+
     /**
      * 新增工单
      * 
@@ -69,6 +78,13 @@ public interface ITaskService
      */
     List<TaskVo> selectTaskVoList(Task task);
 
+    /**
+     * 估算工单总数
+     *
+     * @return 估算总数
+     */
+    long estimateTaskCount();
+
     /**
      * 新增运营 运维工单
      * @param taskDto
@@ -82,4 +98,18 @@ public interface ITaskService
      * @return 结果
      */
     int cancelTask(Task task);
+
+    /**
+     * 接受工单
+     * @param taskId 工单主键
+     * @return 结果
+     */
+    int acceptTask(Long taskId);
+
+    /**
+     * 完成工单
+     * @param taskId 工单主键
+     * @return 结果
+     */
+    int finishTask(Long taskId);
 }
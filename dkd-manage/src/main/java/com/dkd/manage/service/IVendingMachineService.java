@@ -1,7 +1,9 @@
 package com.dkd.manage.service;
 
 import java.util.List;
+import java.util.function.Consumer;
 import com.dkd.manage.domain.VendingMachine;
+import com.dkd.manage.domain.dto.VmProvisionResultDto;
 import org.apache.ibatis.annotations.Select;
 
 /**
@@ -28,6 +30,14 @@ public interface IVendingMachineService
      */
     public List<VendingMachine> selectVendingMachineList(VendingMachine vendingMachine);
 
+    /**
+     * 流式查询设备管理列表（用于大数据量导出）
+     * 
+     * @param vendingMachine 设备管理
+     * @param consumer 逐行处理
+     */
+    public void streamVendingMachineList(VendingMachine vendingMachine, Consumer<VendingMachine> consumer);
+
     /**
      * 新增设备管理
      * 
@@ -36,6 +46,14 @@ public interface IVendingMachineService
      */
     public int insertVendingMachine(VendingMachine vendingMachine);
 
+    /**
+     * 批量新增设备管理
+     * 
+     * @param vendingMachineList 设备管理集合
+     * @return 每台设备的新增结果
+     */
+    public List<VmProvisionResultDto> batchInsertVendingMachine(List<VendingMachine> vendingMachineList);
+
     /**
      * 修改设备管理
      * 
@@ -1,12 +1,25 @@
 package com.dkd.manage.service.impl;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
+import com.dkd.common.exception.ServiceException;
 import com.dkd.common.utils.DateUtils;
 import com.dkd.manage.domain.ChannelVo;
+import com.dkd.manage.domain.Sku;
+import com.dkd.manage.domain.dto.ChannelBatchConfigDto;
 import com.dkd.manage.domain.dto.ChannelConfigDto;
+import com.dkd.manage.domain.dto.ChannelSkuDto;
+import com.dkd.manage.manager.ChannelStockStore;
+import com.dkd.manage.manager.SkuCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import com.dkd.manage.mapper.ChannelMapper;
@@ -25,6 +38,12 @@ public class ChannelServiceImpl implements IChannelService
     @Autowired
     private ChannelMapper channelMapper;
 
+    @Autowired
+    private ChannelStockStore channelStockStore;
+
+    @Autowired
+    private SkuCache skuCache;
+
     /**
      * 查询售货机货道
      * 
@@ -72,7 +91,17 @@ public class ChannelServiceImpl implements IChannelService
     public int updateChannel(Channel channel)
     {
         channel.setUpdateTime(DateUtils.getNowDate());
-        return channelMapper.updateChannel(channel);
+        int rows = channelMapper.updateChannel(channel);
+        // 直接修改库存时同步实时库存缓存
+        if (channel.getCurrentCapacity() != null)
+        {
+            Channel channelDb = channelMapper.selectChannelById(channel.getId());
+            if (channelDb != null)
+            {
+                channelStockStore.reset(channelDb.getInnerCode(), channelDb.getChannelCode(), channel.getCurrentCapacity());
+            }
+        }
+        return rows;
     }
 
     /**
@@ -127,7 +156,45 @@ public class ChannelServiceImpl implements IChannelService
      */
     @Override
     public List<ChannelVo> selectChannelVoListByInnerCode(String innerCode) {
-        return channelMapper.selectChannelVoListByInnerCode(innerCode);
+        List<ChannelVo> voList = channelMapper.selectChannelVoListByInnerCode(innerCode);
+        // 商品从本地缓存批量获取，未命中的合并为一次查询
+        Map<Long, Sku> skuMap = skuCache.getAll(voList.stream().map(ChannelVo::getSkuId).collect(Collectors.toList()));
+        // 当前库存以实时库存为准
+        Map<String, Long> stock = channelStockStore.getStock(innerCode);
+        for (ChannelVo vo : voList) {
+            vo.setSku(skuMap.get(vo.getSkuId()));
+            Long currentCapacity = stock.get(vo.getChannelCode());
+            if (currentCapacity != null) {
+                vo.setCurrentCapacity(currentCapacity);
+            }
+        }
+        return voList;
+    }
+
+    /**
+     * 查询售货机实时库存
+     * @param innerCode 售货机编号
+     * @return 货道编号 -> 当前库存
+     */
+    @Override
+    public Map<String, Long> selectChannelStock(String innerCode) {
+        return channelStockStore.getStock(innerCode);
+    }
+
+    /**
+     * 出货扣减货道库存
+     * @param innerCode 售货机编号
+     * @param channelCode 货道编号
+     * @param quantity 数量
+     * @return 扣减后的库存
+     */
+    @Override
+    public long vendChannel(String innerCode, String channelCode, long quantity) {
+        long stock = channelStockStore.vend(innerCode, channelCode, quantity);
+        if (stock < 0) {
+            throw new ServiceException("货道库存不足");
+        }
+        return stock;
     }
 
     /**
@@ -137,19 +204,66 @@ public class ChannelServiceImpl implements IChannelService
      */
     @Override
     public int setChannel(ChannelConfigDto channelConfigDto) {
-        //将dto转为po对象
-       List<Channel> channelList =channelConfigDto.getChannelList().stream().map(dto->{
-                   //根据售货机和货道编号查询货道信息
-                   Channel channel = channelMapper.getChannelInfo(dto.getInnerCode(),dto.getChannelCode());
-                   if(channel != null){
-                       //关联最新的商品id
-                       channel.setSkuId(dto.getSkuId());
-                       //更新货道修改时间
-                       channel.setUpdateTime(DateUtils.getNowDate());
-                   }
-                   return channel;
-               }).collect(Collectors.toList());
-        //批量更新货道
-        return channelMapper.batchUpdateChannels(channelList);
+        List<ChannelSkuDto> dtoList = channelConfigDto.getChannelList();
+        if (dtoList == null || dtoList.isEmpty()) {
+            throw new ServiceException("货道列表不能为空");
+        }
+        //1.一次查出涉及售货机的全部货道，按 售货机编号:货道编号 匹配
+        Set<String> innerCodes = new LinkedHashSet<>();
+        for (ChannelSkuDto dto : dtoList) {
+            innerCodes.add(dto.getInnerCode() != null ? dto.getInnerCode() : channelConfigDto.getInnerCode());
+        }
+        Map<String, Channel> channelMap = new HashMap<>();
+        for (Channel channel : channelMapper.selectChannelStockList(new ArrayList<>(innerCodes))) {
+            channelMap.put(channel.getInnerCode() + ":" + channel.getChannelCode(), channel);
+        }
+        //2.关联最新的商品id，未变化的货道不更新
+        List<Channel> channelList = new ArrayList<>();
+        for (ChannelSkuDto dto : dtoList) {
+            String innerCode = dto.getInnerCode() != null ? dto.getInnerCode() : channelConfigDto.getInnerCode();
+            Channel channel = channelMap.get(innerCode + ":" + dto.getChannelCode());
+            if (channel == null) {
+                throw new ServiceException("货道不存在：" + innerCode + " " + dto.getChannelCode());
+            }
+            if (!Objects.equals(channel.getSkuId(), dto.getSkuId())) {
+                channel.setSkuId(dto.getSkuId());
+                channelList.add(channel);
+            }
+        }
+        //3.单条update批量更新货道
+        if (channelList.isEmpty()) {
+            return dtoList.size();
+        }
+        channelMapper.batchUpdateChannelSku(channelList);
+        return dtoList.size();
+    }
+
+    /**
+     * 按售货机类型批量配置货道商品
+     * @param batchConfigDto
+     * @return 更新的货道数
+     */
+    @Override
+    public int setChannelByVmType(ChannelBatchConfigDto batchConfigDto) {
+        if (batchConfigDto.getVmTypeId() == null) {
+            throw new ServiceException("售货机类型不能为空");
+        }
+        List<ChannelSkuDto> dtoList = batchConfigDto.getChannelList();
+        if (dtoList == null || dtoList.isEmpty()) {
+            throw new ServiceException("货道列表不能为空");
+        }
+        //校验商品是否存在
+        Map<Long, Sku> skuMap = skuCache.getAll(dtoList.stream().map(ChannelSkuDto::getSkuId).collect(Collectors.toList()));
+        Set<String> channelCodes = new HashSet<>();
+        for (ChannelSkuDto dto : dtoList) {
+            if (!channelCodes.add(dto.getChannelCode())) {
+                throw new ServiceException("货道编号重复：" + dto.getChannelCode());
+            }
+            if (dto.getSkuId() != null && !skuMap.containsKey(dto.getSkuId())) {
+                throw new ServiceException("商品不存在：" + dto.getSkuId());
+            }
+        }
+        //一条update完成同类型所有售货机的货道配置
+        return channelMapper.updateChannelSkuByVmType(batchConfigDto.getVmTypeId(), batchConfigDto.getInnerCodes(), dtoList);
     }
 }
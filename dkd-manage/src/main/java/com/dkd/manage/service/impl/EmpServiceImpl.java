@@ -1,10 +1,12 @@
 package com.dkd.manage.service.impl;
 
 import java.util.List;
+import com.dkd.common.exception.ServiceException;
 import com.dkd.common.utils.DateUtils;
+import com.dkd.manage.domain.Region;
 import com.dkd.manage.domain.Role;
-import com.dkd.manage.mapper.RegionMapper;
-import com.dkd.manage.mapper.RoleMapper;
+import com.dkd.manage.manager.EmpDirectory;
+import com.dkd.manage.manager.ReferenceData;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import com.dkd.manage.mapper.EmpMapper;
@@ -24,10 +26,11 @@ public class EmpServiceImpl implements IEmpService
     private EmpMapper empMapper;
 
     @Autowired
-    private RegionMapper regionMapper;
+    private ReferenceData referenceData;
 
     @Autowired
-    private RoleMapper roleMapper;
+    private EmpDirectory empDirectory;
+
     /**
      * 查询人员列表
      * 
@@ -62,13 +65,24 @@ public class EmpServiceImpl implements IEmpService
     public int insertEmp(Emp emp)
     {
         //补充区域名称
-        emp.setRegionName(regionMapper.selectRegionById(emp.getRegionId()).getRegionName());
+        Region region = referenceData.regions().get(emp.getRegionId());
+        if (region == null)
+        {
+            throw new ServiceException("区域不存在");
+        }
+        emp.setRegionName(region.getRegionName());
         //补充角色信息
-        Role role =roleMapper.selectRoleByRoleId(emp.getRoleId());
+        Role role = referenceData.roles().get(emp.getRoleId());
+        if (role == null)
+        {
+            throw new ServiceException("角色不存在");
+        }
         emp.setRoleName(role.getRoleName());
         emp.setRoleCode(role.getRoleCode());
         emp.setCreateTime(DateUtils.getNowDate());
-        return empMapper.insertEmp(emp);
+        int rows = empMapper.insertEmp(emp);
+        empDirectory.changed(emp.getId());
+        return rows;
     }
 
     /**
@@ -81,13 +95,24 @@ public class EmpServiceImpl implements IEmpService
     public int updateEmp(Emp emp)
     {
         //补充区域名称
-        emp.setRegionName(regionMapper.selectRegionById(emp.getRegionId()).getRegionName());
+        Region region = referenceData.regions().get(emp.getRegionId());
+        if (region == null)
+        {
+            throw new ServiceException("区域不存在");
+        }
+        emp.setRegionName(region.getRegionName());
         //补充角色信息
-        Role role =roleMapper.selectRoleByRoleId(emp.getRoleId());
+        Role role = referenceData.roles().get(emp.getRoleId());
+        if (role == null)
+        {
+            throw new ServiceException("角色不存在");
+        }
         emp.setRoleName(role.getRoleName());
         emp.setRoleCode(role.getRoleCode());
         emp.setUpdateTime(DateUtils.getNowDate());
-        return empMapper.updateEmp(emp);
+        int rows = empMapper.updateEmp(emp);
+        empDirectory.changed(emp.getId());
+        return rows;
     }
 
     /**
@@ -99,7 +124,9 @@ public class EmpServiceImpl implements IEmpService
     @Override
     public int deleteEmpByIds(Long[] ids)
     {
-        return empMapper.deleteEmpByIds(ids);
+        int rows = empMapper.deleteEmpByIds(ids);
+        empDirectory.changed(ids);
+        return rows;
     }
 
     /**
@@ -111,6 +138,8 @@ public class EmpServiceImpl implements IEmpService
     @Override
     public int deleteEmpById(Long id)
     {
-        return empMapper.deleteEmpById(id);
+        int rows = empMapper.deleteEmpById(id);
+        empDirectory.changed(id);
+        return rows;
     }
 }
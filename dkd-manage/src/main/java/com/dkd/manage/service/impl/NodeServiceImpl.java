@@ -2,10 +2,15 @@ package com.dkd.manage.service.impl;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 import com.dkd.common.utils.DateUtils;
 import com.dkd.manage.domain.NodeVo;
+import com.dkd.manage.manager.FleetCounters;
+import com.dkd.manage.manager.PropagationJobRunner;
+import com.dkd.manage.manager.ReferenceData;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import com.dkd.manage.mapper.NodeMapper;
 import com.dkd.manage.domain.Node;
 import com.dkd.manage.service.INodeService;
@@ -22,6 +27,15 @@ public class NodeServiceImpl implements INodeService
     @Autowired
     private NodeMapper nodeMapper;
 
+    @Autowired
+    private FleetCounters fleetCounters;
+
+    @Autowired
+    private ReferenceData referenceData;
+
+    @Autowired
+    private PropagationJobRunner propagationJobRunner;
+
     /**
      * 查询点位管理
      * 
@@ -56,7 +70,10 @@ public class NodeServiceImpl implements INodeService
     public int insertNode(Node node)
     {
         node.setCreateTime(DateUtils.getNowDate());
-        return nodeMapper.insertNode(node);
+        int result = nodeMapper.insertNode(node);
+        fleetCounters.nodeAdded(node);
+        referenceData.changed(ReferenceData.NODE);
+        return result;
     }
 
     /**
@@ -65,11 +82,25 @@ public class NodeServiceImpl implements INodeService
      * @param node 点位管理
      * @return 结果
      */
+    @Transactional
     @Override
     public int updateNode(Node node)
     {
         node.setUpdateTime(DateUtils.getNowDate());
-        return nodeMapper.updateNode(node);
+        Node before = nodeMapper.selectNodeById(node.getId());
+        int result = nodeMapper.updateNode(node);
+        Node after = nodeMapper.selectNodeById(node.getId());
+        fleetCounters.nodeChanged(before, after);
+        //设备冗余的点位信息变化时登记同步任务，提交后分批更新设备和未完成工单
+        if (before != null && after != null && (!Objects.equals(before.getRegionId(), after.getRegionId())
+                || !Objects.equals(before.getPartnerId(), after.getPartnerId())
+                || !Objects.equals(before.getBusinessType(), after.getBusinessType())
+                || !Objects.equals(before.getAddress(), after.getAddress())))
+        {
+            propagationJobRunner.enqueue(PropagationJobRunner.JOB_TYPE_NODE, node.getId());
+        }
+        referenceData.changed(ReferenceData.NODE);
+        return result;
     }
 
     /**
@@ -78,10 +109,14 @@ public class NodeServiceImpl implements INodeService
      * @param ids 需要删除的点位管理主键
      * @return 结果
      */
+    @Transactional
     @Override
     public int deleteNodeByIds(Long[] ids)
     {
-        return nodeMapper.deleteNodeByIds(ids);
+        fleetCounters.nodeRemoved(nodeMapper.selectNodeByIds(ids));
+        int rows = nodeMapper.deleteNodeByIds(ids);
+        referenceData.changed(ReferenceData.NODE);
+        return rows;
     }
 
     /**
@@ -90,10 +125,14 @@ public class NodeServiceImpl implements INodeService
      * @param id 点位管理主键
      * @return 结果
      */
+    @Transactional
     @Override
     public int deleteNodeById(Long id)
     {
-        return nodeMapper.deleteNodeById(id);
+        fleetCounters.nodeRemoved(nodeMapper.selectNodeByIds(new Long[] { id }));
+        int rows = nodeMapper.deleteNodeById(id);
+        referenceData.changed(ReferenceData.NODE);
+        return rows;
     }
     
     /**
@@ -104,6 +143,11 @@ public class NodeServiceImpl implements INodeService
      */
     @Override
     public List<NodeVo> selectNodeVoList(Node node) {
-        return nodeMapper.selectNodeVoList(node);
+        List<NodeVo> list = nodeMapper.selectNodeVoList(node);
+        //设备数量取自计数器，不再关联设备表统计
+        for (NodeVo nodeVo : list) {
+            nodeVo.setVmCount(fleetCounters.nodeVmCount(nodeVo.getId()));
+        }
+        return list;
     }
 }
@@ -1,12 +1,26 @@
 package com.dkd.manage.service.impl;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import com.dkd.common.exception.ServiceException;
 import com.dkd.common.utils.DateUtils;
+import com.dkd.common.utils.StringUtils;
+import com.dkd.manage.manager.OrderWriteBehindBuffer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import com.dkd.manage.mapper.OrderMapper;
 import com.dkd.manage.domain.Order;
 import com.dkd.manage.service.IOrderService;
+import com.dkd.manage.service.IOrderStatsService;
 
 /**
  * 订单管理Service业务层处理
@@ -20,6 +34,16 @@ public class OrderServiceImpl implements IOrderService
     @Autowired
     private OrderMapper orderMapper;
 
+    @Autowired
+    private IOrderStatsService orderStatsService;
+
+    @Autowired
+    private OrderWriteBehindBuffer orderWriteBehindBuffer;
+
+    /** 等待订单落库确认的超时时间（毫秒） */
+    @Value("${dkd.order.buffer.ack-timeout:5000}")
+    private long ackTimeout;
+
     /**
      * 查询订单管理
      * 
@@ -45,16 +69,94 @@ public class OrderServiceImpl implements IOrderService
     }
 
     /**
-     * 新增订单管理
+     * 流式查询订单管理列表（用于大数据量导出）
+     * 
+     * @param order 订单管理
+     * @param consumer 逐行处理
+     */
+    @Override
+    public void streamOrderList(Order order, Consumer<Order> consumer)
+    {
+        orderMapper.streamOrderList(order, context -> consumer.accept(context.getResultObject()));
+    }
+
+    /**
+     * 估算订单总数
+     * 
+     * @return 估算总数
+     */
+    @Override
+    public long estimateOrderCount()
+    {
+        return StringUtils.nvl(orderMapper.estimateOrderCount(), 0L);
+    }
+
+    /**
+     * 新增订单管理（按订单号幂等，订单号已存在时视为已受理，与批量提交一致）
      * 
      * @param order 订单管理
      * @return 结果
      */
     @Override
+    @Transactional
     public int insertOrder(Order order)
     {
         order.setCreateTime(DateUtils.getNowDate());
-        return orderMapper.insertOrder(order);
+        int rows;
+        try
+        {
+            rows = orderMapper.insertOrder(order);
+        }
+        catch (DuplicateKeyException e)
+        {
+            // 重复提交：订单和汇总已在首次提交时写入
+            return 1;
+        }
+        orderStatsService.recordOrders(Collections.singletonList(order));
+        return rows;
+    }
+
+    /**
+     * 批量提交订单（写缓冲合并落库，按订单号幂等，失败或超时后可整批重试）
+     * 
+     * @param orderList 订单管理列表
+     * @return 结果
+     */
+    @Override
+    public int submitOrders(List<Order> orderList)
+    {
+        for (Order order : orderList)
+        {
+            if (StringUtils.isEmpty(order.getOrderNo()))
+            {
+                throw new ServiceException("订单编号不能为空");
+            }
+        }
+        List<CompletableFuture<Order>> futures = new ArrayList<>(orderList.size());
+        for (Order order : orderList)
+        {
+            order.setCreateTime(DateUtils.getNowDate());
+            futures.add(orderWriteBehindBuffer.submit(order));
+        }
+        // 全部订单落库后才返回，保证调用方收到成功即已持久化
+        try
+        {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(ackTimeout, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new ServiceException("订单写入被中断");
+        }
+        catch (ExecutionException e)
+        {
+            throw new ServiceException("订单写入失败，可按原订单编号重试：" + e.getCause().getMessage());
+        }
+        catch (TimeoutException e)
+        {
+            throw new ServiceException("订单写入确认超时，可按原订单编号重试");
+        }
+        return orderList.size();
     }
 
     /**
@@ -64,10 +166,15 @@ public class OrderServiceImpl implements IOrderService
      * @return 结果
      */
     @Override
+    @Transactional
     public int updateOrder(Order order)
     {
+        Order before = orderMapper.selectOrderById(order.getId());
         order.setUpdateTime(DateUtils.getNowDate());
-        return orderMapper.updateOrder(order);
+        int rows = orderMapper.updateOrder(order);
+        // 按修改前后的完整订单计算汇总差量
+        orderStatsService.recordChange(before, orderMapper.selectOrderById(order.getId()));
+        return rows;
     }
 
     /**
@@ -77,8 +184,10 @@ public class OrderServiceImpl implements IOrderService
      * @return 结果
      */
     @Override
+    @Transactional
     public int deleteOrderByIds(Long[] ids)
     {
+        orderStatsService.removeOrders(orderMapper.selectOrderByIds(ids));
         return orderMapper.deleteOrderByIds(ids);
     }
 
@@ -89,8 +198,10 @@ public class OrderServiceImpl implements IOrderService
      * @return 结果
      */
     @Override
+    @Transactional
     public int deleteOrderById(Long id)
     {
+        orderStatsService.removeOrders(orderMapper.selectOrderByIds(new Long[] { id }));
         return orderMapper.deleteOrderById(id);
     }
 }
@@ -0,0 +1,230 @@
+package com.dkd.manage.service.impl;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import com.dkd.common.utils.DateUtils;
+import com.dkd.common.utils.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import com.dkd.manage.domain.Order;
+import com.dkd.manage.domain.OrderStats;
+import com.dkd.manage.mapper.OrderStatsMapper;
+import com.dkd.manage.service.IOrderStatsService;
+
+/**
+ * 订单汇总Service业务层处理
+ * 
+ * 订单写入、状态变化、删除时按差量累加到按天/按小时汇总表，
+ * 差量异常或历史数据补录时由重建任务从订单表重新汇总。
+ * 
+ * @author itheima
+ * @date 2024-07-29
+ */
+@Service
+public class OrderStatsServiceImpl implements IOrderStatsService 
+{
+    @Autowired
+    private OrderStatsMapper orderStatsMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * 按天查询订单汇总
+     * 
+     * @param orderStats 查询条件
+     * @return 订单汇总集合
+     */
+    @Override
+    public List<OrderStats> selectDayStatsList(OrderStats orderStats)
+    {
+        return orderStatsMapper.selectDayStatsList(orderStats);
+    }
+
+    /**
+     * 按小时查询订单汇总
+     * 
+     * @param orderStats 查询条件
+     * @return 订单汇总集合
+     */
+    @Override
+    public List<OrderStats> selectHourStatsList(OrderStats orderStats)
+    {
+        return orderStatsMapper.selectHourStatsList(orderStats);
+    }
+
+    /**
+     * 按商品查询订单汇总
+     * 
+     * @param orderStats 查询条件
+     * @return 订单汇总集合
+     */
+    @Override
+    public List<OrderStats> selectSkuStatsList(OrderStats orderStats)
+    {
+        return orderStatsMapper.selectSkuStatsList(orderStats);
+    }
+
+    /**
+     * 新增订单后累加汇总
+     * 
+     * @param orderList 新增的订单
+     */
+    @Override
+    public void recordOrders(List<Order> orderList)
+    {
+        applyDelta(Collections.<Order>emptyList(), orderList);
+    }
+
+    /**
+     * 订单状态变化后修正汇总
+     * 
+     * @param before 修改前的订单
+     * @param after 修改后的订单
+     */
+    @Override
+    public void recordChange(Order before, Order after)
+    {
+        applyDelta(Collections.singletonList(before), Collections.singletonList(after));
+    }
+
+    /**
+     * 删除订单后扣减汇总
+     * 
+     * @param orderList 删除的订单
+     */
+    @Override
+    public void removeOrders(List<Order> orderList)
+    {
+        applyDelta(orderList, Collections.<Order>emptyList());
+    }
+
+    /**
+     * 从订单表重建时间范围内的汇总（按天对齐）
+     * 
+     * 每小时一个短事务从订单表重建按小时汇总，再每天一个短事务由按小时汇总合计出按天汇总。
+     * 重建时锁住的订单时间范围只有一小时，不会在整个重建期间阻塞订单写入。
+     * 
+     * @param beginTime 开始日期（含）
+     * @param endTime 结束日期（含）
+     * @return 重建的按天汇总行数
+     */
+    @Override
+    public int rebuildStats(Date beginTime, Date endTime)
+    {
+        Date end = DateUtils.addDays(DateUtils.truncate(endTime, Calendar.DAY_OF_MONTH), 1);
+        int rows = 0;
+        for (Date day = DateUtils.truncate(beginTime, Calendar.DAY_OF_MONTH); day.before(end); day = DateUtils.addDays(day, 1))
+        {
+            Date nextDay = DateUtils.addDays(day, 1);
+            for (Date hour = day; hour.before(nextDay); hour = DateUtils.addHours(hour, 1))
+            {
+                Date from = hour, to = DateUtils.addHours(hour, 1);
+                transactionTemplate.executeWithoutResult(status -> {
+                    orderStatsMapper.deleteHourStats(from, to);
+                    orderStatsMapper.rebuildHourStats(from, to);
+                });
+            }
+            Date from = day;
+            rows += transactionTemplate.execute(status -> {
+                orderStatsMapper.deleteDayStats(from, nextDay);
+                return orderStatsMapper.rebuildDayStats(from, nextDay);
+            });
+        }
+        return rows;
+    }
+
+    /**
+     * 计算差量（新值减旧值）并累加到汇总表
+     */
+    private void applyDelta(List<Order> removed, List<Order> added)
+    {
+        Map<String, OrderStats> dayDelta = new LinkedHashMap<>();
+        Map<String, OrderStats> hourDelta = new LinkedHashMap<>();
+        for (Order order : removed)
+        {
+            accumulate(dayDelta, order, Calendar.DAY_OF_MONTH, -1);
+            accumulate(hourDelta, order, Calendar.HOUR_OF_DAY, -1);
+        }
+        for (Order order : added)
+        {
+            accumulate(dayDelta, order, Calendar.DAY_OF_MONTH, 1);
+            accumulate(hourDelta, order, Calendar.HOUR_OF_DAY, 1);
+        }
+        List<OrderStats> dayList = nonZero(dayDelta);
+        if (!dayList.isEmpty())
+        {
+            orderStatsMapper.upsertDayStats(dayList);
+        }
+        List<OrderStats> hourList = nonZero(hourDelta);
+        if (!hourList.isEmpty())
+        {
+            orderStatsMapper.upsertHourStats(hourList);
+        }
+    }
+
+    private void accumulate(Map<String, OrderStats> delta, Order order, int field, int sign)
+    {
+        if (order == null || order.getCreateTime() == null)
+        {
+            return;
+        }
+        Date statTime = DateUtils.truncate(order.getCreateTime(), field);
+        String innerCode = StringUtils.nvl(order.getInnerCode(), "");
+        Long skuId = StringUtils.nvl(order.getSkuId(), 0L);
+        Long nodeId = StringUtils.nvl(order.getNodeId(), 0L);
+        Long regionId = StringUtils.nvl(order.getRegionId(), 0L);
+        Long partnerId = StringUtils.nvl(order.getPartnerId(), 0L);
+        String key = statTime.getTime() + ":" + innerCode + ":" + skuId + ":" + nodeId + ":" + regionId + ":" + partnerId;
+        OrderStats stats = delta.get(key);
+        if (stats == null)
+        {
+            stats = new OrderStats();
+            stats.setStatTime(statTime);
+            stats.setInnerCode(innerCode);
+            stats.setSkuId(skuId);
+            stats.setNodeId(nodeId);
+            stats.setRegionId(regionId);
+            stats.setPartnerId(partnerId);
+            stats.setOrderCount(0L);
+            stats.setPaidCount(0L);
+            stats.setSuccessCount(0L);
+            stats.setPaidAmount(0L);
+            stats.setBill(0L);
+            delta.put(key, stats);
+        }
+        boolean paid = Long.valueOf(1L).equals(order.getPayStatus());
+        boolean success = Long.valueOf(2L).equals(order.getStatus());
+        stats.setOrderCount(stats.getOrderCount() + sign);
+        if (paid)
+        {
+            stats.setPaidCount(stats.getPaidCount() + sign);
+            stats.setPaidAmount(stats.getPaidAmount() + sign * StringUtils.nvl(order.getAmount(), 0L));
+            stats.setBill(stats.getBill() + sign * StringUtils.nvl(order.getBill(), 0L));
+        }
+        if (success)
+        {
+            stats.setSuccessCount(stats.getSuccessCount() + sign);
+        }
+    }
+
+    private List<OrderStats> nonZero(Map<String, OrderStats> delta)
+    {
+        List<OrderStats> list = new ArrayList<>(delta.size());
+        for (OrderStats stats : delta.values())
+        {
+            if (stats.getOrderCount() != 0 || stats.getPaidCount() != 0 || stats.getSuccessCount() != 0
+                    || stats.getPaidAmount() != 0 || stats.getBill() != 0)
+            {
+                list.add(stats);
+            }
+        }
+        return list;
+    }
+}
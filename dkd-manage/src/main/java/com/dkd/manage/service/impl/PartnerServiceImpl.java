@@ -4,6 +4,8 @@ import java.util.List;
 import com.dkd.common.utils.DateUtils;
 import com.dkd.common.utils.SecurityUtils;
 import com.dkd.manage.domain.PartnerVo;
+import com.dkd.manage.manager.FleetCounters;
+import com.dkd.manage.manager.ReferenceData;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import com.dkd.manage.mapper.PartnerMapper;
@@ -22,6 +24,12 @@ public class PartnerServiceImpl implements IPartnerService
     @Autowired
     private PartnerMapper partnerMapper;
 
+    @Autowired
+    private FleetCounters fleetCounters;
+
+    @Autowired
+    private ReferenceData referenceData;
+
     /**
      * 查询合作商管理
      * 
@@ -58,7 +66,9 @@ public class PartnerServiceImpl implements IPartnerService
         //使用sprngSecurity工具类对前端传入的代码加密
         partner.setPassword(SecurityUtils.encryptPassword(partner.getPassword()));
         partner.setCreateTime(DateUtils.getNowDate());
-        return partnerMapper.insertPartner(partner);
+        int rows = partnerMapper.insertPartner(partner);
+        referenceData.changed(ReferenceData.PARTNER);
+        return rows;
     }
 
     /**
@@ -71,7 +81,9 @@ public class PartnerServiceImpl implements IPartnerService
     public int updatePartner(Partner partner)
     {
         partner.setUpdateTime(DateUtils.getNowDate());
-        return partnerMapper.updatePartner(partner);
+        int rows = partnerMapper.updatePartner(partner);
+        referenceData.changed(ReferenceData.PARTNER);
+        return rows;
     }
 
     /**
@@ -83,7 +95,9 @@ public class PartnerServiceImpl implements IPartnerService
     @Override
     public int deletePartnerByIds(Long[] ids)
     {
-        return partnerMapper.deletePartnerByIds(ids);
+        int rows = partnerMapper.deletePartnerByIds(ids);
+        referenceData.changed(ReferenceData.PARTNER);
+        return rows;
     }
 
     /**
@@ -95,7 +109,9 @@ public class PartnerServiceImpl implements IPartnerService
     @Override
     public int deletePartnerById(Long id)
     {
-        return partnerMapper.deletePartnerById(id);
+        int rows = partnerMapper.deletePartnerById(id);
+        referenceData.changed(ReferenceData.PARTNER);
+        return rows;
     }
 
     /**
@@ -104,6 +120,11 @@ public class PartnerServiceImpl implements IPartnerService
      * @return 结果
      */
     public List<PartnerVo> selectPartnerVoList(Partner partner){
-        return partnerMapper.selectPartnerVoList(partner);
+        List<PartnerVo> list = partnerMapper.selectPartnerVoList(partner);
+        //点位数量取自计数器，不再关联点位表统计
+        for (PartnerVo partnerVo : list) {
+            partnerVo.setNodeCount(fleetCounters.partnerNodeCount(partnerVo.getId()));
+        }
+        return list;
     }
 }
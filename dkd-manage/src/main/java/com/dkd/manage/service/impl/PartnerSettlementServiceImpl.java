@@ -0,0 +1,82 @@
+package com.dkd.manage.service.impl;
+
+import java.util.Date;
+import java.util.List;
+import com.dkd.common.exception.ServiceException;
+import com.dkd.common.utils.DateUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import com.dkd.manage.domain.Partner;
+import com.dkd.manage.domain.PartnerSettlement;
+import com.dkd.manage.manager.PartnerSettlementCalculator;
+import com.dkd.manage.mapper.PartnerMapper;
+import com.dkd.manage.mapper.PartnerSettlementMapper;
+import com.dkd.manage.service.IPartnerSettlementService;
+
+/**
+ * 合作商分账结算Service业务层处理
+ * 
+ * @author itheima
+ * @date 2024-07-29
+ */
+@Service
+public class PartnerSettlementServiceImpl implements IPartnerSettlementService 
+{
+    /** 单次批量写入条数 */
+    private static final int BATCH_SIZE = 500;
+
+    @Autowired
+    private PartnerSettlementMapper partnerSettlementMapper;
+
+    @Autowired
+    private PartnerMapper partnerMapper;
+
+    @Autowired
+    private PartnerSettlementCalculator partnerSettlementCalculator;
+
+    /**
+     * 查询合作商分账结算列表
+     * 
+     * @param partnerSettlement 合作商分账结算
+     * @return 合作商分账结算
+     */
+    @Override
+    public List<PartnerSettlement> selectPartnerSettlementList(PartnerSettlement partnerSettlement)
+    {
+        return partnerSettlementMapper.selectPartnerSettlementList(partnerSettlement);
+    }
+
+    /**
+     * 结算指定周期的合作商分成，重复执行会覆盖该周期之前的结果
+     * 
+     * @param period 结算周期（yyyy-MM）
+     * @return 结算的合作商数
+     */
+    @Override
+    @Transactional
+    public int settle(String period)
+    {
+        if (period == null || !period.matches("\\d{4}-(0[1-9]|1[0-2])"))
+        {
+            throw new ServiceException("结算周期格式应为yyyy-MM");
+        }
+        Date beginTime = DateUtils.dateTime("yyyy-MM", period);
+        Date endTime = DateUtils.addMonths(beginTime, 1);
+        List<Partner> partners = partnerMapper.selectPartnerList(new Partner());
+        List<PartnerSettlement> list = partnerSettlementCalculator.calculate(partners, period, beginTime, endTime);
+
+        // 先删后插，同一周期可重复结算
+        partnerSettlementMapper.deletePartnerSettlementByPeriod(period);
+        Date now = DateUtils.getNowDate();
+        for (PartnerSettlement settlement : list)
+        {
+            settlement.setCreateTime(now);
+        }
+        for (int i = 0; i < list.size(); i += BATCH_SIZE)
+        {
+            partnerSettlementMapper.batchInsertPartnerSettlement(list.subList(i, Math.min(i + BATCH_SIZE, list.size())));
+        }
+        return list.size();
+    }
+}
@@ -1,9 +1,20 @@
 package com.dkd.manage.service.impl;
 
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import com.dkd.common.exception.ServiceException;
 import com.dkd.common.utils.DateUtils;
+import com.dkd.manage.domain.VendingMachine;
+import com.dkd.manage.domain.dto.PolicyApplyDto;
+import com.dkd.manage.manager.PolicyPriceTables;
+import com.dkd.manage.mapper.VendingMachineMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import com.dkd.manage.mapper.PolicyMapper;
 import com.dkd.manage.domain.Policy;
 import com.dkd.manage.service.IPolicyService;
@@ -20,6 +31,20 @@ public class PolicyServiceImpl implements IPolicyService
     @Autowired
     private PolicyMapper policyMapper;
 
+    @Autowired
+    private VendingMachineMapper vendingMachineMapper;
+
+    @Autowired
+    private PolicyPriceTables policyPriceTables;
+
+    /** 批量设置策略的最大设备数 */
+    @Value("${dkd.vm.batch.max-size:10000}")
+    private int batchMaxSize;
+
+    /** 每条update语句修改的设备数 */
+    @Value("${dkd.vm.batch.chunk-size:500}")
+    private int batchChunkSize;
+
     /**
      * 查询策略管理
      * 
@@ -54,7 +79,9 @@ public class PolicyServiceImpl implements IPolicyService
     public int insertPolicy(Policy policy)
     {
         policy.setCreateTime(DateUtils.getNowDate());
-        return policyMapper.insertPolicy(policy);
+        int rows = policyMapper.insertPolicy(policy);
+        policyPriceTables.changed();
+        return rows;
     }
 
     /**
@@ -67,7 +94,9 @@ public class PolicyServiceImpl implements IPolicyService
     public int updatePolicy(Policy policy)
     {
         policy.setUpdateTime(DateUtils.getNowDate());
-        return policyMapper.updatePolicy(policy);
+        int rows = policyMapper.updatePolicy(policy);
+        policyPriceTables.changed();
+        return rows;
     }
 
     /**
@@ -79,7 +108,9 @@ public class PolicyServiceImpl implements IPolicyService
     @Override
     public int deletePolicyByPolicyIds(Long[] policyIds)
     {
-        return policyMapper.deletePolicyByPolicyIds(policyIds);
+        int rows = policyMapper.deletePolicyByPolicyIds(policyIds);
+        policyPriceTables.changed();
+        return rows;
     }
 
     /**
@@ -91,6 +122,62 @@ public class PolicyServiceImpl implements IPolicyService
     @Override
     public int deletePolicyByPolicyId(Long policyId)
     {
-        return policyMapper.deletePolicyByPolicyId(policyId);
+        int rows = policyMapper.deletePolicyByPolicyId(policyId);
+        policyPriceTables.changed();
+        return rows;
+    }
+
+    /**
+     * 批量为设备设置策略
+     * 
+     * 设备编号去重后按chunk-size分批update，全部在一个事务内完成
+     * 
+     * @param policyApplyDto 策略id和设备编号
+     * @return 修改的设备数
+     */
+    @Transactional
+    @Override
+    public int applyPolicy(PolicyApplyDto policyApplyDto)
+    {
+        List<String> innerCodes = policyApplyDto.getInnerCodes();
+        if (innerCodes == null || innerCodes.isEmpty())
+        {
+            throw new ServiceException("设备编号不能为空");
+        }
+        if (innerCodes.size() > batchMaxSize)
+        {
+            throw new ServiceException("单次最多设置" + batchMaxSize + "台设备");
+        }
+        if (policyApplyDto.getPolicyId() != null && policyMapper.selectPolicyByPolicyId(policyApplyDto.getPolicyId()) == null)
+        {
+            throw new ServiceException("策略不存在");
+        }
+        List<String> codes = new ArrayList<>(new LinkedHashSet<>(innerCodes));
+        Date now = DateUtils.getNowDate();
+        int rows = 0;
+        for (int from = 0; from < codes.size(); from += batchChunkSize)
+        {
+            List<String> chunk = codes.subList(from, Math.min(from + batchChunkSize, codes.size()));
+            rows += vendingMachineMapper.updatePolicyByInnerCodes(policyApplyDto.getPolicyId(), chunk, now);
+        }
+        return rows;
+    }
+
+    /**
+     * 查询设备上商品的售价
+     * 
+     * @param innerCode 设备编号
+     * @param skuIds 商品id
+     * @return 商品id -> 售价（分）
+     */
+    @Override
+    public Map<Long, Long> selectSkuPrices(String innerCode, List<Long> skuIds)
+    {
+        VendingMachine vm = vendingMachineMapper.selectVendingMachineByInnerCode(innerCode);
+        if (vm == null)
+        {
+            throw new ServiceException("设备不存在");
+        }
+        return policyPriceTables.prices(vm.getPolicyId(), skuIds);
     }
 }
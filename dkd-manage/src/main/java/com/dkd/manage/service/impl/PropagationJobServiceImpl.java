@@ -0,0 +1,47 @@
+package com.dkd.manage.service.impl;
+
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import com.dkd.manage.domain.PropagationJob;
+import com.dkd.manage.manager.PropagationJobRunner;
+import com.dkd.manage.mapper.PropagationJobMapper;
+import com.dkd.manage.service.IPropagationJobService;
+
+/**
+ * 冗余字段同步任务Service业务层处理
+ * 
+ * @author itheima
+ */
+@Service
+public class PropagationJobServiceImpl implements IPropagationJobService 
+{
+    @Autowired
+    private PropagationJobMapper propagationJobMapper;
+
+    @Autowired
+    private PropagationJobRunner propagationJobRunner;
+
+    /**
+     * 查询同步任务列表
+     * 
+     * @param propagationJob 同步任务
+     * @return 同步任务集合
+     */
+    @Override
+    public List<PropagationJob> selectPropagationJobList(PropagationJob propagationJob)
+    {
+        return propagationJobMapper.selectPropagationJobList(propagationJob);
+    }
+
+    /**
+     * 立即执行待执行、失败和中断的同步任务（从断点继续）
+     * 
+     * @return 执行完成的任务数
+     */
+    @Override
+    public int resume()
+    {
+        return propagationJobRunner.resume();
+    }
+}
@@ -5,7 +5,9 @@ import java.util.List;
 import com.dkd.common.utils.DateUtils;
 import com.dkd.manage.domain.Emp;
 import com.dkd.manage.domain.RegionVo;
-import com.dkd.manage.mapper.EmpMapper;
+import com.dkd.manage.manager.FleetCounters;
+import com.dkd.manage.manager.PropagationJobRunner;
+import com.dkd.manage.manager.ReferenceData;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import com.dkd.manage.mapper.RegionMapper;
@@ -26,7 +28,14 @@ public class RegionServiceImpl implements IRegionService
     private RegionMapper regionMapper;
 
     @Autowired
-    private EmpMapper empMapper;
+    private FleetCounters fleetCounters;
+
+    @Autowired
+    private ReferenceData referenceData;
+
+    @Autowired
+    private PropagationJobRunner propagationJobRunner;
+
     /**
      * 查询区域管理
      * 
@@ -61,7 +70,9 @@ public class RegionServiceImpl implements IRegionService
     public int insertRegion(Region region)
     {
         region.setCreateTime(DateUtils.getNowDate());
-        return regionMapper.insertRegion(region);
+        int rows = regionMapper.insertRegion(region);
+        referenceData.changed(ReferenceData.REGION);
+        return rows;
     }
 
     /**
@@ -74,12 +85,17 @@ public class RegionServiceImpl implements IRegionService
     @Override
     public int updateRegion(Region region)
     {
+        Region before = regionMapper.selectRegionById(region.getId());
         //先更新区域信息
         region.setUpdateTime(DateUtils.getNowDate());
         int result=regionMapper.updateRegion(region);
 
-        //同步更新员工表的区域名称
-        empMapper.updateByRegionId(region.getRegionName(), region.getId());
+        //区域名称变化时登记同步任务，提交后分批更新员工表的区域名称
+        if (before != null && region.getRegionName() != null && !region.getRegionName().equals(before.getRegionName()))
+        {
+            propagationJobRunner.enqueue(PropagationJobRunner.JOB_TYPE_REGION, region.getId());
+        }
+        referenceData.changed(ReferenceData.REGION);
         return result;
     }
 
@@ -92,7 +108,10 @@ public class RegionServiceImpl implements IRegionService
     @Override
     public int deleteRegionByIds(Long[] ids)
     {
-        return regionMapper.deleteRegionByIds(ids);
+        int result = regionMapper.deleteRegionByIds(ids);
+        fleetCounters.regionRemoved(ids);
+        referenceData.changed(ReferenceData.REGION);
+        return result;
     }
 
     /**
@@ -104,7 +123,10 @@ public class RegionServiceImpl implements IRegionService
     @Override
     public int deleteRegionById(Long id)
     {
-        return regionMapper.deleteRegionById(id);
+        int result = regionMapper.deleteRegionById(id);
+        fleetCounters.regionRemoved(id);
+        referenceData.changed(ReferenceData.REGION);
+        return result;
     }
 
     /**
@@ -114,6 +136,11 @@ public class RegionServiceImpl implements IRegionService
      */
     @Override
     public List<RegionVo> selectReionList(Region region) {
-        return regionMapper.selectReionList(region);
+        List<RegionVo> list = regionMapper.selectReionList(region);
+        //点位数量取自计数器，不再关联点位表统计
+        for (RegionVo regionVo : list) {
+            regionVo.setNodeCount(fleetCounters.regionNodeCount(regionVo.getId()));
+        }
+        return list;
     }
 }
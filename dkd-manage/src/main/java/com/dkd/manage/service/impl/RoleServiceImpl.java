@@ -1,10 +1,14 @@
 package com.dkd.manage.service.impl;
 
 import java.util.List;
+import java.util.Objects;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import com.dkd.manage.mapper.RoleMapper;
 import com.dkd.manage.domain.Role;
+import com.dkd.manage.manager.PropagationJobRunner;
+import com.dkd.manage.manager.ReferenceData;
 import com.dkd.manage.service.IRoleService;
 
 /**
@@ -19,6 +23,12 @@ public class RoleServiceImpl implements IRoleService
     @Autowired
     private RoleMapper roleMapper;
 
+    @Autowired
+    private ReferenceData referenceData;
+
+    @Autowired
+    private PropagationJobRunner propagationJobRunner;
+
     /**
      * 查询工单角色
      * 
@@ -52,7 +62,9 @@ public class RoleServiceImpl implements IRoleService
     @Override
     public int insertRole(Role role)
     {
-        return roleMapper.insertRole(role);
+        int rows = roleMapper.insertRole(role);
+        referenceData.changed(ReferenceData.ROLE);
+        return rows;
     }
 
     /**
@@ -61,10 +73,20 @@ public class RoleServiceImpl implements IRoleService
      * @param role 工单角色
      * @return 结果
      */
+    @Transactional
     @Override
     public int updateRole(Role role)
     {
-        return roleMapper.updateRole(role);
+        Role before = roleMapper.selectRoleByRoleId(role.getRoleId());
+        int rows = roleMapper.updateRole(role);
+        //角色编码或名称变化时登记同步任务，提交后分批更新员工表的角色信息
+        if (before != null && (role.getRoleCode() != null && !Objects.equals(role.getRoleCode(), before.getRoleCode())
+                || role.getRoleName() != null && !Objects.equals(role.getRoleName(), before.getRoleName())))
+        {
+            propagationJobRunner.enqueue(PropagationJobRunner.JOB_TYPE_ROLE, role.getRoleId());
+        }
+        referenceData.changed(ReferenceData.ROLE);
+        return rows;
     }
 
     /**
@@ -76,7 +98,9 @@ public class RoleServiceImpl implements IRoleService
     @Override
     public int deleteRoleByRoleIds(Long[] roleIds)
     {
-        return roleMapper.deleteRoleByRoleIds(roleIds);
+        int rows = roleMapper.deleteRoleByRoleIds(roleIds);
+        referenceData.changed(ReferenceData.ROLE);
+        return rows;
     }
 
     /**
@@ -88,6 +112,8 @@ public class RoleServiceImpl implements IRoleService
     @Override
     public int deleteRoleByRoleId(Long roleId)
     {
-        return roleMapper.deleteRoleByRoleId(roleId);
+        int rows = roleMapper.deleteRoleByRoleId(roleId);
+        referenceData.changed(ReferenceData.ROLE);
+        return rows;
     }
 }
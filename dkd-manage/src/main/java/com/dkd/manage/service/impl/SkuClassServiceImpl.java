@@ -5,6 +5,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import com.dkd.manage.mapper.SkuClassMapper;
 import com.dkd.manage.domain.SkuClass;
+import com.dkd.manage.manager.ReferenceData;
 import com.dkd.manage.service.ISkuClassService;
 
 /**
@@ -19,6 +20,9 @@ public class SkuClassServiceImpl implements ISkuClassService
     @Autowired
     private SkuClassMapper skuClassMapper;
 
+    @Autowired
+    private ReferenceData referenceData;
+
     /**
      * 查询商品类型
      * 
@@ -52,7 +56,9 @@ public class SkuClassServiceImpl implements ISkuClassService
     @Override
     public int insertSkuClass(SkuClass skuClass)
     {
-        return skuClassMapper.insertSkuClass(skuClass);
+        int rows = skuClassMapper.insertSkuClass(skuClass);
+        referenceData.changed(ReferenceData.SKU_CLASS);
+        return rows;
     }
 
     /**
@@ -64,7 +70,9 @@ public class SkuClassServiceImpl implements ISkuClassService
     @Override
     public int updateSkuClass(SkuClass skuClass)
     {
-        return skuClassMapper.updateSkuClass(skuClass);
+        int rows = skuClassMapper.updateSkuClass(skuClass);
+        referenceData.changed(ReferenceData.SKU_CLASS);
+        return rows;
     }
 
     /**
@@ -76,7 +84,9 @@ public class SkuClassServiceImpl implements ISkuClassService
     @Override
     public int deleteSkuClassByClassIds(Long[] classIds)
     {
-        return skuClassMapper.deleteSkuClassByClassIds(classIds);
+        int rows = skuClassMapper.deleteSkuClassByClassIds(classIds);
+        referenceData.changed(ReferenceData.SKU_CLASS);
+        return rows;
     }
 
     /**
@@ -88,6 +98,8 @@ public class SkuClassServiceImpl implements ISkuClassService
     @Override
     public int deleteSkuClassByClassId(Long classId)
     {
-        return skuClassMapper.deleteSkuClassByClassId(classId);
+        int rows = skuClassMapper.deleteSkuClassByClassId(classId);
+        referenceData.changed(ReferenceData.SKU_CLASS);
+        return rows;
     }
 }
@@ -1,11 +1,20 @@
 package com.dkd.manage.service.impl;
 
+import java.io.InputStream;
 import java.util.List;
+import java.util.Map;
 
 import com.dkd.common.exception.ServiceException;
 import com.dkd.common.utils.DateUtils;
+import com.dkd.common.utils.poi.ExcelUtil;
+import com.dkd.manage.domain.dto.SkuImportResultDto;
+import com.dkd.manage.manager.PolicyPriceTables;
+import com.dkd.manage.manager.ReferenceData;
+import com.dkd.manage.manager.SkuImportListener;
+import com.dkd.manage.manager.SkuCache;
 import com.dkd.manage.service.IChannelService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.web.PortResolverImpl;
 import org.springframework.stereotype.Service;
 import com.dkd.manage.mapper.SkuMapper;
@@ -29,6 +38,23 @@ public class SkuServiceImpl implements ISkuService
     @Autowired
     private IChannelService channelService;
 
+    @Autowired
+    private SkuCache skuCache;
+
+    @Autowired
+    private PolicyPriceTables policyPriceTables;
+
+    @Autowired
+    private ReferenceData referenceData;
+
+    /** 导入时每批写入的商品数 */
+    @Value("${dkd.sku.import.batch-size:1000}")
+    private int importBatchSize;
+
+    /** 导入结果中错误明细的上限 */
+    @Value("${dkd.sku.import.max-errors:1000}")
+    private int importMaxErrors;
+
     /**
      * 查询商品管理
      * 
@@ -63,7 +89,9 @@ public class SkuServiceImpl implements ISkuService
     public int insertSku(Sku sku)
     {
         sku.setCreateTime(DateUtils.getNowDate());
-        return skuMapper.insertSku(sku);
+        int rows = skuMapper.insertSku(sku);
+        policyPriceTables.changed();
+        return rows;
     }
 
     /**
@@ -76,7 +104,10 @@ public class SkuServiceImpl implements ISkuService
     public int updateSku(Sku sku)
     {
         sku.setUpdateTime(DateUtils.getNowDate());
-        return skuMapper.updateSku(sku);
+        int rows = skuMapper.updateSku(sku);
+        skuCache.invalidate(sku.getSkuId());
+        policyPriceTables.changed();
+        return rows;
     }
 
     /**
@@ -93,7 +124,10 @@ public class SkuServiceImpl implements ISkuService
         if(count>0) {
         throw new ServiceException("商品id关联货道，不能删除");
         }
-        return skuMapper.deleteSkuBySkuIds(skuIds);
+        int rows = skuMapper.deleteSkuBySkuIds(skuIds);
+        skuCache.invalidate(skuIds);
+        policyPriceTables.changed();
+        return rows;
     }
 
     /**
@@ -105,7 +139,10 @@ public class SkuServiceImpl implements ISkuService
     @Override
     public int deleteSkuBySkuId(Long skuId)
     {
-        return skuMapper.deleteSkuBySkuId(skuId);
+        int rows = skuMapper.deleteSkuBySkuId(skuId);
+        skuCache.invalidate(skuId);
+        policyPriceTables.changed();
+        return rows;
     }
 
     /**
@@ -116,6 +153,37 @@ public class SkuServiceImpl implements ISkuService
      */
     @Override
     public int insertSkus(List<Sku> skuList) {
-        return skuMapper.insertSkus(skuList);
+        int rows = skuMapper.insertSkus(skuList);
+        policyPriceTables.changed();
+        return rows;
+    }
+
+    /**
+     * 逐行读取Excel导入商品，校验、去重后分批写入
+     *
+     * @param is Excel输入流
+     * @return 导入结果及逐行错误明细
+     */
+    @Override
+    public SkuImportResultDto importSkus(InputStream is) throws Exception
+    {
+        SkuImportListener listener = new SkuImportListener(skuMapper, referenceData.skuClasses(), importBatchSize, importMaxErrors);
+        new ExcelUtil<Sku>(Sku.class).importEasyExcel(is, listener);
+        SkuImportResultDto result = listener.getResult();
+        if (result.getSuccessCount() > 0)
+        {
+            policyPriceTables.changed();
+        }
+        return result;
+    }
+
+    /**
+     * 查询商品缓存统计
+     *
+     * @return 缓存条目数、命中数、未命中数、命中率等
+     */
+    @Override
+    public Map<String, Object> selectSkuCacheStats() {
+        return skuCache.stats();
     }
 }
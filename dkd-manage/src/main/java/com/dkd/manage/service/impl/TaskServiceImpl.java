@@ -1,27 +1,32 @@
 package com.dkd.manage.service.impl;
 
-import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.collection.CollUtil;
-import cn.hutool.core.util.StrUtil;
 import com.dkd.common.constant.DkdContants;
 import com.dkd.common.exception.ServiceException;
 import com.dkd.common.utils.DateUtils;
+import com.dkd.common.utils.StringUtils;
 import com.dkd.manage.domain.Emp;
 import com.dkd.manage.domain.TaskDetails;
 import com.dkd.manage.domain.VendingMachine;
 import com.dkd.manage.domain.dto.TaskDetailsDto;
 import com.dkd.manage.domain.dto.TaskDto;
 import com.dkd.manage.domain.vo.TaskVo;
-import com.dkd.manage.service.IEmpService;
+import com.dkd.manage.manager.EmpDirectory;
+import com.dkd.manage.manager.ReferenceData;
+import com.dkd.manage.manager.TaskCodeAllocator;
+import com.dkd.manage.manager.TaskGuard;
+import com.dkd.manage.manager.TaskRoutePlanner;
+import com.dkd.manage.manager.TaskStateMachine;
 import com.dkd.manage.service.ITaskDetailsService;
 import com.dkd.manage.service.IVendingMachineService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 import com.dkd.manage.mapper.TaskMapper;
 import com.dkd.manage.domain.Task;
@@ -44,10 +49,22 @@ public class TaskServiceImpl implements ITaskService
     private IVendingMachineService vendingMachineService;
 
     @Autowired
-    private IEmpService empService;
+    private EmpDirectory empDirectory;
 
     @Autowired
-    private RedisTemplate redisTemplate;
+    private TaskCodeAllocator taskCodeAllocator;
+
+    @Autowired
+    private ReferenceData referenceData;
+
+    @Autowired
+    private TaskStateMachine taskStateMachine;
+
+    @Autowired
+    private TaskGuard taskGuard;
+
+    @Autowired
+    private TaskRoutePlanner taskRoutePlanner;
 
     @Autowired
     private ITaskDetailsService taskDetailsService;
@@ -76,6 +93,18 @@ public class TaskServiceImpl implements ITaskService
         return taskMapper.selectTaskList(task);
     }
 
+    /**
+     * 流式查询工单列表（用于大数据量导出）
+     * 
+     * @param task 工单
+     * @param consumer 逐行处理
+     */
+    @Override
+    public void streamTaskList(Task task, Consumer<Task> consumer)
+    {
+        taskMapper.streamTaskList(task, context -> consumer.accept(context.getResultObject()));
+    }
+
     /**
      * 新增工单
      * 
@@ -86,7 +115,7 @@ public class TaskServiceImpl implements ITaskService
     public int insertTask(Task task)
     {
         task.setCreateTime(DateUtils.getNowDate());
-        return taskMapper.insertTask(task);
+        return insertUniqueTask(task);
     }
 
     /**
@@ -96,10 +125,41 @@ public class TaskServiceImpl implements ITaskService
      * @return 结果
      */
     @Override
+    @Transactional
     public int updateTask(Task task)
     {
         task.setUpdateTime(DateUtils.getNowDate());
-        return taskMapper.updateTask(task);
+        Task taskDb = taskMapper.selectTaskByTaskId(task.getTaskId());
+        if (taskDb != null)
+        {
+            // 状态只能经状态机流转（校验来源状态和版本号，并发布状态事件）
+            if (task.getTaskStatus() != null && !task.getTaskStatus().equals(taskDb.getTaskStatus()))
+            {
+                throw new ServiceException("工单状态不能直接修改，请通过接单、完成或取消操作");
+            }
+            // 未完成工单更换售货机或工单类型时，防重名额随之转移
+            if (!TaskGuard.isClosed(taskDb.getTaskStatus()))
+            {
+                String innerCode = StringUtils.nvl(task.getInnerCode(), taskDb.getInnerCode());
+                Long productTypeId = StringUtils.nvl(task.getProductTypeId(), taskDb.getProductTypeId());
+                if (!innerCode.equals(taskDb.getInnerCode()) || !productTypeId.equals(taskDb.getProductTypeId()))
+                {
+                    taskGuard.acquire(innerCode, productTypeId);
+                    taskGuard.release(taskDb.getInnerCode(), taskDb.getProductTypeId());
+                }
+            }
+            // 原执行人和新执行人的路线都需要重新规划
+            taskRoutePlanner.invalidate(taskDb.getUserId(), task.getUserId());
+        }
+        task.setTaskStatus(null);
+        try
+        {
+            return taskMapper.updateTask(task);
+        }
+        catch (DuplicateKeyException e)
+        {
+            throw new ServiceException("设备已有未完成的同类型工单");
+        }
     }
 
     /**
@@ -109,8 +169,10 @@ public class TaskServiceImpl implements ITaskService
      * @return 结果
      */
     @Override
+    @Transactional
     public int deleteTaskByTaskIds(Long[] taskIds)
     {
+        releaseOpenTasks(taskMapper.selectTaskByTaskIds(taskIds));
         return taskMapper.deleteTaskByTaskIds(taskIds);
     }
 
@@ -121,8 +183,14 @@ public class TaskServiceImpl implements ITaskService
      * @return 结果
      */
     @Override
+    @Transactional
     public int deleteTaskByTaskId(Long taskId)
     {
+        Task task = taskMapper.selectTaskByTaskId(taskId);
+        if (task != null)
+        {
+            releaseOpenTasks(Collections.singletonList(task));
+        }
         return taskMapper.deleteTaskByTaskId(taskId);
     }
 
@@ -134,7 +202,23 @@ public class TaskServiceImpl implements ITaskService
      */
     @Override
     public List<TaskVo> selectTaskVoList(Task task) {
-        return taskMapper.selectTaskVoList(task);
+        List<TaskVo> voList = taskMapper.selectTaskVoList(task);
+        // 工单类型从本地缓存填充，避免每行一次嵌套查询
+        for (TaskVo vo : voList) {
+            vo.setTaskType(referenceData.taskTypes().get(vo.getProductTypeId()));
+        }
+        return voList;
+    }
+
+    /**
+     * 估算工单总数
+     *
+     * @return 估算总数
+     */
+    @Override
+    public long estimateTaskCount() {
+        Long count = taskMapper.estimateTaskCount();
+        return count == null ? 0L : count;
     }
 
     /**
@@ -153,10 +237,10 @@ public class TaskServiceImpl implements ITaskService
         }
         // 2. 校验售货机状态与工单类型是否相符
         checkCreateTask(vendingMachine.getVmStatus(),taskDto.getProductTypeId());
-        //3.检查是否有同类型未完成的工单
-        hasTask(taskDto);
-        //4.查询校验员工是否存在
-        Emp emp = empService.selectEmpById(taskDto.getUserId());
+        //3.检查是否有同类型未完成的工单，并占用名额（事务回滚时释放）
+        taskGuard.acquire(taskDto.getInnerCode(), taskDto.getProductTypeId());
+        //4.查询校验员工是否存在（员工目录，不访问数据库）
+        Emp emp = empDirectory.get(taskDto.getUserId());
         if (emp == null) {
             throw new ServiceException("员工不存在");
         }
@@ -173,8 +257,8 @@ public class TaskServiceImpl implements ITaskService
         task.setAddr(vendingMachine.getAddr());//执行人地址
         task.setCreateTime(DateUtils.getNowDate());//创建时间
         //生成并获取当天的工单编号
-        task.setTaskCode(generateTaskCode());//工单编号
-        int taskResult = taskMapper.insertTask(task);
+        task.setTaskCode(taskCodeAllocator.nextCode());//工单编号
+        int taskResult = insertUniqueTask(task);
         //7.如果是补货工单，则插入工单详情
         if (taskDto.getProductTypeId().equals(DkdContants.TASK_TYPE_SUPPLY)){
             List<TaskDetailsDto> details = taskDto.getDetails();
@@ -194,6 +278,7 @@ public class TaskServiceImpl implements ITaskService
            //批量新增
             taskDetailsService.batchInsertTaskDetails(taskDetailsList);
         }
+        taskStateMachine.created(task);
         return taskResult;
     }
 
@@ -204,48 +289,49 @@ public class TaskServiceImpl implements ITaskService
      */
     @Override
     public int cancelTask(Task task) {
-        //判断工单状态是否可以取消
-        Task taskDb = taskMapper.selectTaskByTaskId(task.getTaskId());
-        if (taskDb.getTaskStatus().equals(DkdContants.TASK_STATUS_CANCEL)){
-            throw new ServiceException("该工单已取消,不能再次取消");
-        }
-        //判断工单状态是否为已完成
-        if (taskDb.getTaskStatus().equals(DkdContants.TASK_STATUS_FINISH)){
-            throw new ServiceException("该工单已完成,不能取消");
-        }
-        task.setUpdateTime(DateUtils.getNowDate());
-        task.setTaskStatus(DkdContants.TASK_STATUS_CANCEL);
-        return taskMapper.updateTask(task);//task 当中含有desc备注说明
+        //待办和进行中的工单可以取消，task 当中含有desc备注说明
+        taskStateMachine.transit(task.getTaskId(), DkdContants.TASK_STATUS_CANCEL, task.getDesc());
+        return 1;
+    }
+
+    /**
+     * 接受工单
+     * @param taskId 工单主键
+     * @return 结果
+     */
+    @Override
+    public int acceptTask(Long taskId) {
+        taskStateMachine.transit(taskId, DkdContants.TASK_STATUS_PROGRESS, null);
+        return 1;
     }
 
-    //生成并获取当天的工单编号
-    private String generateTaskCode(){
-        //获取当前日期并格式化为yyyymmdd
-        String dateStr = DateUtils.getDate().replaceAll("-","");
-        //根据日期生成redis的键
-        String key = "dkd.task.code." + dateStr;
-        //判断key是否存在
-        if (!redisTemplate.hasKey(key)) {
-            //如果不存在，则初始化为1，并制定过期时间为1天
-            redisTemplate.opsForValue().set(key,1,Duration.ofDays(1));
-            return dateStr + "0001";
+    /**
+     * 完成工单
+     * @param taskId 工单主键
+     * @return 结果
+     */
+    @Override
+    public int finishTask(Long taskId) {
+        taskStateMachine.transit(taskId, DkdContants.TASK_STATUS_FINISH, null);
+        return 1;
+    }
+
+    // 插入工单，数据库唯一索引拦截同一设备的同类型未完成工单
+    private int insertUniqueTask(Task task) {
+        try {
+            return taskMapper.insertTask(task);
+        } catch (DuplicateKeyException e) {
+            throw new ServiceException("设备已有未完成的同类型工单");
         }
-        //如果存在，则获取当前值，并加1，然后更新到redis中
-        return dateStr+StrUtil.padPre(redisTemplate.opsForValue().increment(key).toString(),4, "0");
     }
-    // 检查设备是否有未完成的同类型工单
-    private void hasTask(TaskDto taskDto) {
-        // 创建task条件对象，并设置设备编号和工单类型，以及工单状态为进行中
-        Task taskParam = new Task();
-        taskParam.setInnerCode(taskDto.getInnerCode());
-        taskParam.setProductTypeId(taskDto.getProductTypeId());
-        taskParam.setTaskStatus(DkdContants.TASK_STATUS_PROGRESS);
 
-        // 调用taskMapper查询数据库查看是否有符合条件的工单列表
-        List<Task> taskList = taskMapper.selectTaskList(taskParam);
-        // 如果存在未完成的同类型工单，抛出异常
-        if (!taskList.isEmpty()) {
-            throw new RuntimeException("设备已有未完成的同类型工单");
+    // 删除未完成工单时释放防重名额
+    private void releaseOpenTasks(List<Task> tasks) {
+        for (Task task : tasks) {
+            if (!TaskGuard.isClosed(task.getTaskStatus())) {
+                taskGuard.release(task.getInnerCode(), task.getProductTypeId());
+                taskRoutePlanner.invalidate(task.getUserId());
+            }
         }
     }
 
@@ -5,6 +5,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import com.dkd.manage.mapper.TaskTypeMapper;
 import com.dkd.manage.domain.TaskType;
+import com.dkd.manage.manager.ReferenceData;
 import com.dkd.manage.service.ITaskTypeService;
 
 /**
@@ -19,6 +20,9 @@ public class TaskTypeServiceImpl implements ITaskTypeService
     @Autowired
     private TaskTypeMapper taskTypeMapper;
 
+    @Autowired
+    private ReferenceData referenceData;
+
     /**
      * 查询工单类型
      * 
@@ -52,7 +56,9 @@ public class TaskTypeServiceImpl implements ITaskTypeService
     @Override
     public int insertTaskType(TaskType taskType)
     {
-        return taskTypeMapper.insertTaskType(taskType);
+        int rows = taskTypeMapper.insertTaskType(taskType);
+        referenceData.changed(ReferenceData.TASK_TYPE);
+        return rows;
     }
 
     /**
@@ -64,7 +70,9 @@ public class TaskTypeServiceImpl implements ITaskTypeService
     @Override
     public int updateTaskType(TaskType taskType)
     {
-        return taskTypeMapper.updateTaskType(taskType);
+        int rows = taskTypeMapper.updateTaskType(taskType);
+        referenceData.changed(ReferenceData.TASK_TYPE);
+        return rows;
     }
 
     /**
@@ -76,7 +84,9 @@ public class TaskTypeServiceImpl implements ITaskTypeService
     @Override
     public int deleteTaskTypeByTypeIds(Long[] typeIds)
     {
-        return taskTypeMapper.deleteTaskTypeByTypeIds(typeIds);
+        int rows = taskTypeMapper.deleteTaskTypeByTypeIds(typeIds);
+        referenceData.changed(ReferenceData.TASK_TYPE);
+        return rows;
     }
 
     /**
@@ -88,6 +98,8 @@ public class TaskTypeServiceImpl implements ITaskTypeService
     @Override
     public int deleteTaskTypeByTypeId(Long typeId)
     {
-        return taskTypeMapper.deleteTaskTypeByTypeId(typeId);
+        int rows = taskTypeMapper.deleteTaskTypeByTypeId(typeId);
+        referenceData.changed(ReferenceData.TASK_TYPE);
+        return rows;
     }
 }
@@ -1,19 +1,32 @@
 package com.dkd.manage.service.impl;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import com.dkd.common.constant.DkdContants;
+import com.dkd.common.exception.ServiceException;
 import com.dkd.common.utils.DateUtils;
 import com.dkd.common.utils.bean.BeanUtils;
 import com.dkd.common.utils.uuid.UUIDUtils;
 import com.dkd.manage.domain.Channel;
 import com.dkd.manage.domain.Node;
 import com.dkd.manage.domain.VmType;
+import com.dkd.manage.domain.dto.VmProvisionResultDto;
+import com.dkd.manage.manager.FleetCounters;
+import com.dkd.manage.manager.InnerCodeGenerator;
+import com.dkd.manage.manager.ReferenceData;
+import com.dkd.manage.manager.VmGeoIndex;
+import com.dkd.manage.manager.VmHeartbeatCollector;
 import com.dkd.manage.service.IChannelService;
-import com.dkd.manage.service.INodeService;
-import com.dkd.manage.service.IVmTypeService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import com.dkd.manage.mapper.VendingMachineMapper;
 import com.dkd.manage.domain.VendingMachine;
@@ -33,13 +46,30 @@ public class VendingMachineServiceImpl implements IVendingMachineService
     private VendingMachineMapper vendingMachineMapper;
 
     @Autowired
-    private IVmTypeService vmTypeService;
+    private IChannelService  channelService;
 
     @Autowired
-    private INodeService nodeService;
+    private InnerCodeGenerator innerCodeGenerator;
 
     @Autowired
-    private IChannelService  channelService;
+    private ReferenceData referenceData;
+
+    @Autowired
+    private VmGeoIndex vmGeoIndex;
+
+    @Autowired
+    private FleetCounters fleetCounters;
+
+    @Autowired
+    private VmHeartbeatCollector vmHeartbeatCollector;
+
+    /** 批量新增设备的最大台数 */
+    @Value("${dkd.vm.batch.max-size:10000}")
+    private int batchMaxSize;
+
+    /** 每条insert语句写入的行数 */
+    @Value("${dkd.vm.batch.chunk-size:500}")
+    private int batchChunkSize;
 
     /**
      * 查询设备管理
@@ -65,6 +95,18 @@ public class VendingMachineServiceImpl implements IVendingMachineService
         return vendingMachineMapper.selectVendingMachineList(vendingMachine);
     }
 
+    /**
+     * 流式查询设备管理列表（用于大数据量导出）
+     * 
+     * @param vendingMachine 设备管理
+     * @param consumer 逐行处理
+     */
+    @Override
+    public void streamVendingMachineList(VendingMachine vendingMachine, Consumer<VendingMachine> consumer)
+    {
+        vendingMachineMapper.streamVendingMachineList(vendingMachine, context -> consumer.accept(context.getResultObject()));
+    }
+
     /**
      * 新增设备管理
      * 
@@ -77,13 +119,14 @@ public class VendingMachineServiceImpl implements IVendingMachineService
     {
         //1.新增设备
         //1-1 生成8位的唯一表示inner-code
-        String innerCode = UUIDUtils.getUUID();
+        String innerCode = innerCodeGenerator.nextCode();
         vendingMachine.setInnerCode(innerCode);
+        vendingMachine.setClientId(UUIDUtils.generateClientId(innerCode));//心跳和消息认证
         //1-2 查询售货机类型表
-        VmType vmType =vmTypeService.selectVmTypeById(vendingMachine.getVmTypeId());
+        VmType vmType =referenceData.vmTypes().get(vendingMachine.getVmTypeId());
         vendingMachine.setChannelMaxCapacity(vmType.getChannelMaxCapacity());
         //1-3 提交点位id相关信息 区域 点位 合作商 商圈类型
-        Node node =nodeService.selectNodeById(vendingMachine.getNodeId());
+        Node node =referenceData.nodes().get(vendingMachine.getNodeId());
         //使用工具类注入属性   减少操作
         BeanUtils.copyProperties(node,vendingMachine,"id");
         vendingMachine.setAddr(node.getAddress());
@@ -112,27 +155,171 @@ public class VendingMachineServiceImpl implements IVendingMachineService
         }
         //2--2 批量保存
         channelService.batchInsertChannel(channelList);
+        //3.提交后加入空间索引和设备计数
+        vmGeoIndex.put(vendingMachine);
+        fleetCounters.vmAdded(Collections.singletonList(vendingMachine));
 
         return result;
     }
 
+    /**
+     * 批量新增设备管理
+     * 
+     * 设备类型和点位各一次查询，设备和货道按chunk-size分批多行insert，全部在一个事务内完成；
+     * 类型或点位不存在的设备跳过并在结果中说明原因。
+     * 
+     * @param vendingMachineList 设备管理集合，每项需指定vmTypeId和nodeId
+     * @return 每台设备的新增结果，顺序与请求一致
+     */
+    @Transactional
+    @Override
+    public List<VmProvisionResultDto> batchInsertVendingMachine(List<VendingMachine> vendingMachineList)
+    {
+        if (vendingMachineList == null || vendingMachineList.isEmpty())
+        {
+            throw new ServiceException("设备列表不能为空");
+        }
+        if (vendingMachineList.size() > batchMaxSize)
+        {
+            throw new ServiceException("单次最多新增" + batchMaxSize + "台设备");
+        }
+        //1.一次查出涉及的设备类型和点位
+        Set<Long> vmTypeIds = new LinkedHashSet<>();
+        Set<Long> nodeIds = new LinkedHashSet<>();
+        for (VendingMachine vm : vendingMachineList)
+        {
+            if (vm.getVmTypeId() != null)
+            {
+                vmTypeIds.add(vm.getVmTypeId());
+            }
+            if (vm.getNodeId() != null)
+            {
+                nodeIds.add(vm.getNodeId());
+            }
+        }
+        Map<Long, VmType> vmTypeMap = referenceData.vmTypes().getAll(vmTypeIds);
+        Map<Long, Node> nodeMap = referenceData.nodes().getAll(nodeIds);
+
+        //2.逐台校验并补全设备信息
+        List<VmProvisionResultDto> results = new ArrayList<>(vendingMachineList.size());
+        List<VendingMachine> machines = new ArrayList<>(vendingMachineList.size());
+        List<VmProvisionResultDto> machineResults = new ArrayList<>(vendingMachineList.size());
+        Date now = DateUtils.getNowDate();
+        for (int i = 0; i < vendingMachineList.size(); i++)
+        {
+            VendingMachine vm = vendingMachineList.get(i);
+            VmProvisionResultDto result = new VmProvisionResultDto();
+            result.setIndex(i);
+            result.setVmTypeId(vm.getVmTypeId());
+            result.setNodeId(vm.getNodeId());
+            results.add(result);
+            VmType vmType = vmTypeMap.get(vm.getVmTypeId());
+            if (vmType == null)
+            {
+                result.setSuccess(false);
+                result.setMsg("设备类型不存在");
+                continue;
+            }
+            Node node = nodeMap.get(vm.getNodeId());
+            if (node == null)
+            {
+                result.setSuccess(false);
+                result.setMsg("点位不存在");
+                continue;
+            }
+            vm.setInnerCode(innerCodeGenerator.nextCode());
+            vm.setClientId(UUIDUtils.generateClientId(vm.getInnerCode()));
+            vm.setChannelMaxCapacity(vmType.getChannelMaxCapacity());
+            vm.setBusinessType(node.getBusinessType());
+            vm.setRegionId(node.getRegionId());
+            vm.setPartnerId(node.getPartnerId());
+            vm.setAddr(node.getAddress());
+            vm.setVmStatus(DkdContants.VM_STATUS_NODEPLOY);
+            vm.setCreateTime(now);
+            vm.setUpdateTime(now);
+            machines.add(vm);
+            machineResults.add(result);
+        }
+
+        //3.分批写入设备，回填主键后分批写入货道
+        List<Channel> channelList = new ArrayList<>();
+        for (int from = 0; from < machines.size(); from += batchChunkSize)
+        {
+            List<VendingMachine> chunk = machines.subList(from, Math.min(from + batchChunkSize, machines.size()));
+            vendingMachineMapper.batchInsertVendingMachine(chunk);
+            for (VendingMachine vm : chunk)
+            {
+                VmType vmType = vmTypeMap.get(vm.getVmTypeId());
+                for (int i = 1; i <= vmType.getVmRow(); i++)
+                {
+                    for (int j = 1; j <= vmType.getVmCol(); j++)
+                    {
+                        Channel channel = new Channel();
+                        channel.setChannelCode(i + "-" + j);
+                        channel.setVmId(vm.getId());
+                        channel.setInnerCode(vm.getInnerCode());
+                        channel.setMaxCapacity(vmType.getChannelMaxCapacity());
+                        channel.setCreateTime(now);
+                        channel.setUpdateTime(now);
+                        channelList.add(channel);
+                    }
+                }
+                if (channelList.size() >= batchChunkSize)
+                {
+                    channelService.batchInsertChannel(channelList);
+                    channelList = new ArrayList<>();
+                }
+            }
+        }
+        if (!channelList.isEmpty())
+        {
+            channelService.batchInsertChannel(channelList);
+        }
+
+        for (int i = 0; i < machines.size(); i++)
+        {
+            VmProvisionResultDto result = machineResults.get(i);
+            result.setId(machines.get(i).getId());
+            result.setInnerCode(machines.get(i).getInnerCode());
+            result.setSuccess(true);
+        }
+        vmGeoIndex.putAll(machines);
+        fleetCounters.vmAdded(machines);
+        return results;
+    }
+
     /**
      * 修改设备管理
      * 
      * @param vendingMachine 设备管理
      * @return 结果
      */
+    @Transactional
     @Override
     public int updateVendingMachine(VendingMachine vendingMachine)
     {
         if(vendingMachine.getNodeId()!=null){
             //查询点位表，补充：区域 点位 合作商信息
-            Node node =nodeService.selectNodeById(vendingMachine.getNodeId());
+            Node node =referenceData.nodes().get(vendingMachine.getNodeId());
             BeanUtils.copyProperties(node,vendingMachine,"id");//商圈类型 区域 合作商
             vendingMachine.setAddr(node.getAddress());//地址
         }
         vendingMachine.setUpdateTime(DateUtils.getNowDate());
-        return vendingMachineMapper.updateVendingMachine(vendingMachine);
+        VendingMachine before = vendingMachineMapper.selectVendingMachineById(vendingMachine.getId());
+        int result = vendingMachineMapper.updateVendingMachine(vendingMachine);
+        VendingMachine after = vendingMachineMapper.selectVendingMachineById(vendingMachine.getId());
+        if (vendingMachine.getLongitudes() != null || vendingMachine.getLatitude() != null)
+        {
+            //坐标有变化时提交后刷新空间索引
+            vmGeoIndex.put(after);
+        }
+        fleetCounters.vmChanged(before, after);
+        //编号或clientId可能变化，提交后清除心跳认证缓存
+        if (before != null && after != null)
+        {
+            vmHeartbeatCollector.evict(Arrays.asList(before.getInnerCode(), after.getInnerCode()));
+        }
+        return result;
     }
 
     /**
@@ -141,10 +328,16 @@ public class VendingMachineServiceImpl implements IVendingMachineService
      * @param ids 需要删除的设备管理主键
      * @return 结果
      */
+    @Transactional
     @Override
     public int deleteVendingMachineByIds(Long[] ids)
     {
-        return vendingMachineMapper.deleteVendingMachineByIds(ids);
+        List<VendingMachine> removed = vendingMachineMapper.selectVendingMachineByIds(ids);
+        fleetCounters.vmRemoved(removed);
+        int result = vendingMachineMapper.deleteVendingMachineByIds(ids);
+        vmGeoIndex.remove(ids);
+        evictHeartbeatClients(removed);
+        return result;
     }
 
     /**
@@ -153,10 +346,29 @@ public class VendingMachineServiceImpl implements IVendingMachineService
      * @param id 设备管理主键
      * @return 结果
      */
+    @Transactional
     @Override
     public int deleteVendingMachineById(Long id)
     {
-        return vendingMachineMapper.deleteVendingMachineById(id);
+        List<VendingMachine> removed = vendingMachineMapper.selectVendingMachineByIds(new Long[] { id });
+        fleetCounters.vmRemoved(removed);
+        int result = vendingMachineMapper.deleteVendingMachineById(id);
+        vmGeoIndex.remove(id);
+        evictHeartbeatClients(removed);
+        return result;
+    }
+
+    /**
+     * 删除的售货机提交后清除心跳认证缓存
+     */
+    private void evictHeartbeatClients(List<VendingMachine> removed)
+    {
+        List<String> innerCodes = new ArrayList<>(removed.size());
+        for (VendingMachine vm : removed)
+        {
+            innerCodes.add(vm.getInnerCode());
+        }
+        vmHeartbeatCollector.evict(innerCodes);
     }
 
     /**
@@ -5,6 +5,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import com.dkd.manage.mapper.VmTypeMapper;
 import com.dkd.manage.domain.VmType;
+import com.dkd.manage.manager.ReferenceData;
 import com.dkd.manage.service.IVmTypeService;
 
 /**
@@ -19,6 +20,9 @@ public class VmTypeServiceImpl implements IVmTypeService
     @Autowired
     private VmTypeMapper vmTypeMapper;
 
+    @Autowired
+    private ReferenceData referenceData;
+
     /**
      * 查询设备类型管理
      * 
@@ -52,7 +56,9 @@ public class VmTypeServiceImpl implements IVmTypeService
     @Override
     public int insertVmType(VmType vmType)
     {
-        return vmTypeMapper.insertVmType(vmType);
+        int rows = vmTypeMapper.insertVmType(vmType);
+        referenceData.changed(ReferenceData.VM_TYPE);
+        return rows;
     }
 
     /**
@@ -64,7 +70,9 @@ public class VmTypeServiceImpl implements IVmTypeService
     @Override
     public int updateVmType(VmType vmType)
     {
-        return vmTypeMapper.updateVmType(vmType);
+        int rows = vmTypeMapper.updateVmType(vmType);
+        referenceData.changed(ReferenceData.VM_TYPE);
+        return rows;
     }
 
     /**
@@ -76,7 +84,9 @@ public class VmTypeServiceImpl implements IVmTypeService
     @Override
     public int deleteVmTypeByIds(Long[] ids)
     {
-        return vmTypeMapper.deleteVmTypeByIds(ids);
+        int rows = vmTypeMapper.deleteVmTypeByIds(ids);
+        referenceData.changed(ReferenceData.VM_TYPE);
+        return rows;
     }
 
     /**
@@ -88,6 +98,8 @@ public class VmTypeServiceImpl implements IVmTypeService
     @Override
     public int deleteVmTypeById(Long id)
     {
-        return vmTypeMapper.deleteVmTypeById(id);
+        int rows = vmTypeMapper.deleteVmTypeById(id);
+        referenceData.changed(ReferenceData.VM_TYPE);
+        return rows;
     }
 }
@@ -0,0 +1,25 @@
+package com.dkd.manage.task;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import com.dkd.manage.manager.ChannelStockStore;
+
+/**
+ * 货道库存对账定时任务
+ * 
+ * @author itheima
+ */
+@Component("channelStockTask")
+public class ChannelStockTask
+{
+    @Autowired
+    private ChannelStockStore channelStockStore;
+
+    /**
+     * 写回全部库存变更，并清理与数据库不一致的实时库存缓存
+     */
+    public void reconcile()
+    {
+        channelStockStore.reconcile();
+    }
+}
@@ -0,0 +1,25 @@
+package com.dkd.manage.task;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import com.dkd.manage.manager.FleetCounters;
+
+/**
+ * 设备和点位计数对账定时任务
+ * 
+ * @author itheima
+ */
+@Component("fleetCounterTask")
+public class FleetCounterTask
+{
+    @Autowired
+    private FleetCounters fleetCounters;
+
+    /**
+     * 按数据库重新统计并修正计数
+     */
+    public void verify()
+    {
+        fleetCounters.verify();
+    }
+}
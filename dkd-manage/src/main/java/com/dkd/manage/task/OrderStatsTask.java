@@ -0,0 +1,50 @@
+package com.dkd.manage.task;
+
+import java.util.Date;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import com.dkd.common.utils.DateUtils;
+import com.dkd.manage.service.IOrderStatsService;
+
+/**
+ * 订单汇总重建定时任务
+ * 
+ * @author itheima
+ */
+@Component("orderStatsTask")
+public class OrderStatsTask
+{
+    private static final Logger log = LoggerFactory.getLogger(OrderStatsTask.class);
+
+    @Autowired
+    private IOrderStatsService orderStatsService;
+
+    /**
+     * 重建昨天和今天的汇总
+     */
+    public void rebuild()
+    {
+        Date today = DateUtils.getNowDate();
+        rebuild(DateUtils.addDays(today, -1), today);
+    }
+
+    /**
+     * 重建指定日期范围的汇总（用于历史数据补录）
+     * 
+     * @param beginDate 开始日期 yyyy-MM-dd
+     * @param endDate 结束日期 yyyy-MM-dd
+     */
+    public void rebuild(String beginDate, String endDate)
+    {
+        rebuild(DateUtils.parseDate(beginDate), DateUtils.parseDate(endDate));
+    }
+
+    private void rebuild(Date beginDate, Date endDate)
+    {
+        int rows = orderStatsService.rebuildStats(beginDate, endDate);
+        log.info("订单汇总重建完成，日期：{} ~ {}，按天汇总行数：{}", DateUtils.parseDateToStr(DateUtils.YYYY_MM_DD, beginDate),
+                DateUtils.parseDateToStr(DateUtils.YYYY_MM_DD, endDate), rows);
+    }
+}
@@ -0,0 +1,25 @@
+package com.dkd.manage.task;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import com.dkd.manage.manager.PropagationJobRunner;
+
+/**
+ * 冗余字段同步定时任务
+ * 
+ * @author itheima
+ */
+@Component("propagationTask")
+public class PropagationTask
+{
+    @Autowired
+    private PropagationJobRunner propagationJobRunner;
+
+    /**
+     * 从断点继续执行失败和中断的同步任务
+     */
+    public void resume()
+    {
+        propagationJobRunner.resume();
+    }
+}
@@ -0,0 +1,41 @@
+package com.dkd.manage.task;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import com.dkd.common.utils.DateUtils;
+import com.dkd.manage.service.IPartnerSettlementService;
+
+/**
+ * 合作商分账结算定时任务
+ * 
+ * @author itheima
+ */
+@Component("settlementTask")
+public class SettlementTask
+{
+    private static final Logger log = LoggerFactory.getLogger(SettlementTask.class);
+
+    @Autowired
+    private IPartnerSettlementService partnerSettlementService;
+
+    /**
+     * 结算上一个自然月
+     */
+    public void settle()
+    {
+        settle(DateUtils.parseDateToStr("yyyy-MM", DateUtils.addMonths(DateUtils.getNowDate(), -1)));
+    }
+
+    /**
+     * 结算指定周期（用于补结算或重算）
+     * 
+     * @param period 结算周期 yyyy-MM
+     */
+    public void settle(String period)
+    {
+        int count = partnerSettlementService.settle(period);
+        log.info("合作商分账结算完成，周期：{}，合作商数：{}", period, count);
+    }
+}
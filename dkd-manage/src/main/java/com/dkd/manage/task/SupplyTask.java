@@ -0,0 +1,25 @@
+package com.dkd.manage.task;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import com.dkd.manage.manager.SupplyTaskGenerator;
+
+/**
+ * 自动补货定时任务
+ * 
+ * @author itheima
+ */
+@Component("supplyTask")
+public class SupplyTask
+{
+    @Autowired
+    private SupplyTaskGenerator supplyTaskGenerator;
+
+    /**
+     * 扫描低于警戒线的货道并生成补货工单
+     */
+    public void generate()
+    {
+        supplyTaskGenerator.generate();
+    }
+}
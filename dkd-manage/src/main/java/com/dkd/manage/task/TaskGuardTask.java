@@ -0,0 +1,25 @@
+package com.dkd.manage.task;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import com.dkd.manage.manager.TaskGuard;
+
+/**
+ * 未完成工单防重对账定时任务
+ * 
+ * @author itheima
+ */
+@Component("taskGuardTask")
+public class TaskGuardTask
+{
+    @Autowired
+    private TaskGuard taskGuard;
+
+    /**
+     * 补充缺少的占位，清理已没有未完成工单的过期占位
+     */
+    public void reconcile()
+    {
+        taskGuard.reconcile();
+    }
+}
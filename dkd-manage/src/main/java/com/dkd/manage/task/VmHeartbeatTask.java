@@ -0,0 +1,25 @@
+package com.dkd.manage.task;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import com.dkd.manage.manager.VmHeartbeatCollector;
+
+/**
+ * 售货机离线检测定时任务
+ * 
+ * @author itheima
+ */
+@Component("vmHeartbeatTask")
+public class VmHeartbeatTask
+{
+    @Autowired
+    private VmHeartbeatCollector vmHeartbeatCollector;
+
+    /**
+     * 将心跳超时的售货机标记为离线
+     */
+    public void detectOffline()
+    {
+        vmHeartbeatCollector.detectOffline();
+    }
+}
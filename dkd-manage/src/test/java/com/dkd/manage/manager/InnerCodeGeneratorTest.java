@@ -0,0 +1,156 @@
+package com.dkd.manage.manager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * 售货机编号生成器并发压力测试
+ *
+ * Redis号段租借用内存计数器代替（INCRBY语义），多个生成器实例模拟多个节点共享同一序列，
+ * 多线程并发生成编号，校验格式并排序查重。号段取得很小，几千个编号已足以让续租在并发下频繁发生；
+ * 数百万个编号的长时间运行标记为stress，默认不执行，用-Pstress运行。
+ *
+ * @author itheima
+ */
+public class InnerCodeGeneratorTest
+{
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyz0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+
+    /** 节点数 */
+    private static final int NODES = 2;
+
+    /** 每个节点的线程数 */
+    private static final int THREADS_PER_NODE = 8;
+
+    @Test
+    public void concurrentCodesAreUnique() throws Exception
+    {
+        assertConcurrentCodesUnique(5_000);
+    }
+
+    @Test
+    @Tag("stress")
+    public void concurrentCodesAreUniqueAtScale() throws Exception
+    {
+        assertConcurrentCodesUnique(250_000);
+    }
+
+    /**
+     * @param codesPerThread 每个线程生成的编号数
+     */
+    private static void assertConcurrentCodesUnique(int codesPerThread) throws Exception
+    {
+        AtomicLong redisCounter = new AtomicLong();
+        // 号段取小一些，让续租在并发下频繁发生
+        InnerCodeGenerator[] nodes = new InnerCodeGenerator[NODES];
+        for (int i = 0; i < NODES; i++)
+        {
+            nodes[i] = generator(redisCounter, 97, 5381);
+        }
+
+        int threads = NODES * THREADS_PER_NODE;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<long[]>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++)
+        {
+            InnerCodeGenerator generator = nodes[t % NODES];
+            futures.add(executor.submit(() -> {
+                start.await();
+                long[] values = new long[codesPerThread];
+                for (int i = 0; i < codesPerThread; i++)
+                {
+                    values[i] = decode(generator.nextCode());
+                }
+                return values;
+            }));
+        }
+        start.countDown();
+        long[] all = new long[threads * codesPerThread];
+        int offset = 0;
+        for (Future<long[]> future : futures)
+        {
+            long[] values = future.get(5, TimeUnit.MINUTES);
+            System.arraycopy(values, 0, all, offset, values.length);
+            offset += values.length;
+        }
+        executor.shutdown();
+
+        Arrays.sort(all);
+        for (int i = 1; i < all.length; i++)
+        {
+            assertTrue(all[i] != all[i - 1], "编号重复：" + all[i]);
+        }
+        // 每个编号都来自已租出的号段
+        assertTrue(redisCounter.get() >= all.length);
+    }
+
+    @Test
+    public void codeFormat()
+    {
+        InnerCodeGenerator generator = generator(new AtomicLong(), 1000, 5381);
+        for (int i = 0; i < 10_000; i++)
+        {
+            String code = generator.nextCode();
+            assertEquals(8, code.length());
+            for (char c : code.toCharArray())
+            {
+                assertTrue(ALPHABET.indexOf(c) >= 0, "非法字符：" + code);
+            }
+        }
+    }
+
+    @Test
+    public void sameSequenceSameCodes()
+    {
+        InnerCodeGenerator first = generator(new AtomicLong(), 1000, 5381);
+        InnerCodeGenerator second = generator(new AtomicLong(), 1000, 5381);
+        for (int i = 0; i < 1000; i++)
+        {
+            assertEquals(first.nextCode(), second.nextCode());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static InnerCodeGenerator generator(AtomicLong redisCounter, int blockSize, long secret)
+    {
+        RedisTemplate<Object, Object> redisTemplate = mock(RedisTemplate.class);
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(), any()))
+                .thenAnswer(invocation -> redisCounter.addAndGet(((Number) invocation.getArgument(2)).longValue()));
+        InnerCodeGenerator generator = new InnerCodeGenerator();
+        ReflectionTestUtils.setField(generator, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(generator, "blockSize", blockSize);
+        ReflectionTestUtils.setField(generator, "secret", secret);
+        generator.init();
+        return generator;
+    }
+
+    private static long decode(String code)
+    {
+        long value = 0;
+        for (int i = 0; i < code.length(); i++)
+        {
+            value = value * ALPHABET.length() + ALPHABET.indexOf(code.charAt(i));
+        }
+        return value;
+    }
+}
@@ -0,0 +1,204 @@
+package com.dkd.manage.manager;
+
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import com.dkd.manage.domain.VendingMachine;
+import com.dkd.manage.domain.dto.VmGeoDto;
+
+/**
+ * 售货机空间索引基准测试
+ *
+ * 售货机随机分布在约60×45公里的城区范围内，对比网格索引与逐台计算距离的全量扫描：
+ * 最近K台、半径范围、矩形范围三种查询，查询点从预先随机生成的一组点中依次选取。
+ * 不随单元测试执行，用main方法或JMH命令行运行。
+ *
+ * @author itheima
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VmGeoIndexBenchmark
+{
+    private static final double MIN_LAT = 22.45, MAX_LAT = 22.85;
+
+    private static final double MIN_LNG = 113.75, MAX_LNG = 114.35;
+
+    private static final double SCALE = 1000000;
+
+    /** 最近K台的数量 */
+    private static final int K = 10;
+
+    /** 半径查询的半径（米） */
+    private static final double RADIUS = 2000;
+
+    /** 矩形查询的边长（度） */
+    private static final double BOX_SIZE = 0.03;
+
+    /** 查询点个数（2的幂） */
+    private static final int QUERIES = 1024;
+
+    /** 售货机数量 */
+    @Param({ "10000", "100000" })
+    private int size;
+
+    private VmGeoIndex index;
+
+    private double[] lats;
+
+    private double[] lngs;
+
+    /** 预先生成的查询点，按顺序循环使用 */
+    private final double[] queryLats = new double[QUERIES];
+
+    private final double[] queryLngs = new double[QUERIES];
+
+    private int query;
+
+    private double queryLat;
+
+    private double queryLng;
+
+    @Setup
+    public void setUp()
+    {
+        index = new VmGeoIndex();
+        ReflectionTestUtils.setField(index, "cellSize", 0.01);
+        ReflectionTestUtils.setField(index, "coordinateScale", SCALE);
+        ReflectionTestUtils.setField(index, "stringRedisTemplate", mock(StringRedisTemplate.class));
+        lats = new double[size];
+        lngs = new double[size];
+        List<VendingMachine> vms = new ArrayList<>(size);
+        Random data = new Random(7);
+        for (int i = 0; i < size; i++)
+        {
+            VendingMachine vm = new VendingMachine();
+            vm.setId((long) i + 1);
+            vm.setInnerCode("V" + i);
+            vm.setLatitude(Math.round((MIN_LAT + data.nextDouble() * (MAX_LAT - MIN_LAT)) * SCALE));
+            vm.setLongitudes(Math.round((MIN_LNG + data.nextDouble() * (MAX_LNG - MIN_LNG)) * SCALE));
+            lats[i] = vm.getLatitude() / SCALE;
+            lngs[i] = vm.getLongitudes() / SCALE;
+            vms.add(vm);
+        }
+        index.putAll(vms);
+        for (int i = 0; i < QUERIES; i++)
+        {
+            queryLats[i] = MIN_LAT + data.nextDouble() * (MAX_LAT - MIN_LAT);
+            queryLngs[i] = MIN_LNG + data.nextDouble() * (MAX_LNG - MIN_LNG);
+        }
+    }
+
+    private void nextQuery()
+    {
+        query = (query + 1) & (QUERIES - 1);
+        queryLat = queryLats[query];
+        queryLng = queryLngs[query];
+    }
+
+    @Benchmark
+    public List<VmGeoDto> nearestIndex()
+    {
+        nextQuery();
+        return index.nearest(queryLat, queryLng, K);
+    }
+
+    @Benchmark
+    public int[] nearestScan()
+    {
+        nextQuery();
+        PriorityQueue<double[]> heap = new PriorityQueue<>(K + 1, Comparator.comparingDouble((double[] c) -> c[1]).reversed());
+        for (int i = 0; i < size; i++)
+        {
+            double distance = VmGeoIndex.distance(queryLat, queryLng, lats[i], lngs[i]);
+            if (heap.size() < K)
+            {
+                heap.offer(new double[] { i, distance });
+            }
+            else if (distance < heap.peek()[1])
+            {
+                heap.poll();
+                heap.offer(new double[] { i, distance });
+            }
+        }
+        int[] result = new int[heap.size()];
+        for (int i = result.length - 1; i >= 0; i--)
+        {
+            result[i] = (int) heap.poll()[0];
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<VmGeoDto> radiusIndex()
+    {
+        nextQuery();
+        return index.withinRadius(queryLat, queryLng, RADIUS);
+    }
+
+    @Benchmark
+    public List<Integer> radiusScan()
+    {
+        nextQuery();
+        List<Integer> result = new ArrayList<>();
+        for (int i = 0; i < size; i++)
+        {
+            if (VmGeoIndex.distance(queryLat, queryLng, lats[i], lngs[i]) <= RADIUS)
+            {
+                result.add(i);
+            }
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<VmGeoDto> boxIndex()
+    {
+        nextQuery();
+        return index.withinBox(queryLat, queryLng, queryLat + BOX_SIZE, queryLng + BOX_SIZE);
+    }
+
+    @Benchmark
+    public List<Integer> boxScan()
+    {
+        nextQuery();
+        List<Integer> result = new ArrayList<>();
+        double maxLat = queryLat + BOX_SIZE, maxLng = queryLng + BOX_SIZE;
+        for (int i = 0; i < size; i++)
+        {
+            if (lats[i] >= queryLat && lats[i] <= maxLat && lngs[i] >= queryLng && lngs[i] <= maxLng)
+            {
+                result.add(i);
+            }
+        }
+        return result;
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        new Runner(new OptionsBuilder().include(VmGeoIndexBenchmark.class.getSimpleName()).build()).run();
+    }
+}
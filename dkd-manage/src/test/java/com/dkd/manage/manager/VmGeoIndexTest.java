@@ -0,0 +1,216 @@
+package com.dkd.manage.manager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import com.dkd.manage.domain.VendingMachine;
+import com.dkd.manage.domain.dto.VmGeoDto;
+
+/**
+ * 售货机空间索引正确性测试
+ *
+ * 随机生成售货机和查询点，最近K台、半径范围、矩形范围三种查询的结果与逐台计算距离的全量扫描逐一比对，
+ * 覆盖城区密集分布、全球分布、极点附近、±180°经线两侧以及K大于售货机数的情况。
+ *
+ * @author itheima
+ */
+public class VmGeoIndexTest
+{
+    private static final double SCALE = 1000000;
+
+    /** 每组查询点个数 */
+    private static final int QUERIES = 100;
+
+    @Test
+    public void cityCluster()
+    {
+        Random random = new Random(1);
+        List<VendingMachine> vms = new ArrayList<>();
+        for (int i = 0; i < 5000; i++)
+        {
+            vms.add(vm(i, 22.45 + random.nextDouble() * 0.4, 113.75 + random.nextDouble() * 0.6));
+        }
+        VmGeoIndex index = index(vms);
+        for (int i = 0; i < QUERIES; i++)
+        {
+            double lat = 22.4 + random.nextDouble() * 0.5, lng = 113.7 + random.nextDouble() * 0.7;
+            assertSameResults(index, vms, lat, lng, 10, 2000);
+            assertSameBox(index, vms, lat, lng, lat + 0.03, lng + 0.03);
+        }
+    }
+
+    @Test
+    public void global()
+    {
+        Random random = new Random(2);
+        List<VendingMachine> vms = new ArrayList<>();
+        for (int i = 0; i < 3000; i++)
+        {
+            // 球面均匀分布
+            vms.add(vm(i, Math.toDegrees(Math.asin(2 * random.nextDouble() - 1)), -180 + random.nextDouble() * 360));
+        }
+        VmGeoIndex index = index(vms);
+        double[] radii = { 1000, 100000, 2000000, 15000000 };
+        for (int i = 0; i < QUERIES; i++)
+        {
+            double lat = -90 + random.nextDouble() * 180, lng = -180 + random.nextDouble() * 360;
+            assertSameResults(index, vms, lat, lng, 1 + random.nextInt(20), radii[i % radii.length]);
+            assertSameBox(index, vms, lat - 5, lng - 10, lat + 5, lng + 10);
+        }
+    }
+
+    @Test
+    public void nearPoles()
+    {
+        Random random = new Random(3);
+        List<VendingMachine> vms = new ArrayList<>();
+        for (int i = 0; i < 2000; i++)
+        {
+            double lat = 89 + random.nextDouble();
+            vms.add(vm(i, i % 2 == 0 ? lat : -lat, -180 + random.nextDouble() * 360));
+        }
+        VmGeoIndex index = index(vms);
+        for (int i = 0; i < QUERIES; i++)
+        {
+            double lat = 88.5 + random.nextDouble() * 1.5;
+            lat = i % 2 == 0 ? lat : -lat;
+            double lng = -180 + random.nextDouble() * 360;
+            assertSameResults(index, vms, lat, lng, 10, 5000 + random.nextDouble() * 100000);
+        }
+        assertSameResults(index, vms, 90, 0, 10, 30000);
+        assertSameResults(index, vms, -90, 0, 10, 30000);
+    }
+
+    @Test
+    public void acrossAntimeridian()
+    {
+        Random random = new Random(4);
+        List<VendingMachine> vms = new ArrayList<>();
+        for (int i = 0; i < 2000; i++)
+        {
+            double offset = random.nextDouble() * 0.5;
+            vms.add(vm(i, -1 + random.nextDouble() * 2, i % 2 == 0 ? 180 - offset : -180 + offset));
+        }
+        VmGeoIndex index = index(vms);
+        for (int i = 0; i < QUERIES; i++)
+        {
+            double offset = random.nextDouble() * 0.3;
+            double lat = -1 + random.nextDouble() * 2, lng = i % 2 == 0 ? 180 - offset : -180 + offset;
+            assertSameResults(index, vms, lat, lng, 10, 1000 + random.nextDouble() * 30000);
+        }
+    }
+
+    @Test
+    public void moreThanAvailable()
+    {
+        Random random = new Random(5);
+        List<VendingMachine> vms = new ArrayList<>();
+        for (int i = 0; i < 50; i++)
+        {
+            vms.add(vm(i, -60 + random.nextDouble() * 120, -180 + random.nextDouble() * 360));
+        }
+        VmGeoIndex index = index(vms);
+        for (int i = 0; i < 20; i++)
+        {
+            double lat = -90 + random.nextDouble() * 180, lng = -180 + random.nextDouble() * 360;
+            List<VmGeoDto> nearest = index.nearest(lat, lng, 80);
+            assertEquals(vms.size(), nearest.size());
+            assertEquals(scanNearest(vms, lat, lng, 80), ids(nearest));
+        }
+        assertEquals(0, index.nearest(0, 0, 0).size());
+        assertEquals(0, index(new ArrayList<>()).nearest(0, 0, 5).size());
+    }
+
+    private static void assertSameResults(VmGeoIndex index, List<VendingMachine> vms, double lat, double lng, int k, double radius)
+    {
+        String query = "查询点(" + lat + ", " + lng + ")";
+        assertEquals(scanNearest(vms, lat, lng, k), ids(index.nearest(lat, lng, k)), query + "最近" + k + "台");
+        assertEquals(scanRadius(vms, lat, lng, radius), ids(index.withinRadius(lat, lng, radius)), query + "半径" + radius + "米");
+    }
+
+    private static void assertSameBox(VmGeoIndex index, List<VendingMachine> vms, double minLat, double minLng, double maxLat, double maxLng)
+    {
+        Set<Long> expected = new TreeSet<>();
+        for (VendingMachine vm : vms)
+        {
+            double lat = vm.getLatitude() / SCALE, lng = vm.getLongitudes() / SCALE;
+            if (lat >= minLat && lat <= maxLat && lng >= minLng && lng <= maxLng)
+            {
+                expected.add(vm.getId());
+            }
+        }
+        Set<Long> actual = new TreeSet<>(ids(index.withinBox(minLat, minLng, maxLat, maxLng)));
+        assertEquals(expected, actual, "矩形(" + minLat + ", " + minLng + ", " + maxLat + ", " + maxLng + ")");
+    }
+
+    private static List<Long> scanNearest(List<VendingMachine> vms, double lat, double lng, int k)
+    {
+        return scan(vms, lat, lng).stream()
+                .limit(k)
+                .map(d -> (long) d[0])
+                .collect(Collectors.toList());
+    }
+
+    private static List<Long> scanRadius(List<VendingMachine> vms, double lat, double lng, double radius)
+    {
+        return scan(vms, lat, lng).stream()
+                .filter(d -> d[1] <= radius)
+                .map(d -> (long) d[0])
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 全量扫描：逐台计算距离，按距离升序，每项为[id, 距离]
+     */
+    private static List<double[]> scan(List<VendingMachine> vms, double lat, double lng)
+    {
+        List<double[]> result = new ArrayList<>(vms.size());
+        for (VendingMachine vm : vms)
+        {
+            result.add(new double[] { vm.getId(), VmGeoIndex.distance(lat, lng, vm.getLatitude() / SCALE, vm.getLongitudes() / SCALE) });
+        }
+        result.sort(Comparator.comparingDouble(d -> d[1]));
+        return result;
+    }
+
+    private static List<Long> ids(List<VmGeoDto> dtos)
+    {
+        return dtos.stream().map(VmGeoDto::getId).collect(Collectors.toList());
+    }
+
+    private static VendingMachine vm(long id, double lat, double lng)
+    {
+        VendingMachine vm = new VendingMachine();
+        vm.setId(id + 1);
+        vm.setInnerCode("V" + id);
+        vm.setLatitude(Math.round(lat * SCALE));
+        vm.setLongitudes(Math.round(lng * SCALE));
+        return vm;
+    }
+
+    private static VmGeoIndex index(List<VendingMachine> vms)
+    {
+        VmGeoIndex index = new VmGeoIndex();
+        ReflectionTestUtils.setField(index, "cellSize", 0.01);
+        ReflectionTestUtils.setField(index, "coordinateScale", SCALE);
+        // 变更通知不发送
+        ReflectionTestUtils.setField(index, "stringRedisTemplate", new StringRedisTemplate()
+        {
+            @Override
+            public void convertAndSend(String channel, Object message)
+            {
+            }
+        });
+        index.putAll(vms);
+        return index;
+    }
+}
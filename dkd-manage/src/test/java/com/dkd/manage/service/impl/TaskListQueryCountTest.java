@@ -0,0 +1,184 @@
+package com.dkd.manage.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.ibatis.builder.xml.XMLMapperBuilder;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import com.github.pagehelper.PageHelper;
+import com.github.pagehelper.PageInterceptor;
+import com.dkd.manage.domain.Task;
+import com.dkd.manage.domain.vo.TaskVo;
+import com.dkd.manage.mapper.TaskMapper;
+
+/**
+ * 工单列表每页SQL语句数
+ *
+ * 用H2加载真实的TaskMapper.xml，按PageHelper分页（不查总数）取一页，拦截器统计实际发往数据库的语句数：
+ * 原来的嵌套查询映射每页为1 + 不同工单类型数，去掉嵌套查询后selectTaskVoList每页固定1条，与页大小和类型分布无关。
+ *
+ * @author itheima
+ */
+public class TaskListQueryCountTest
+{
+    /** 工单类型数 */
+    private static final int TYPE_COUNT = 4;
+
+    /** 工单数 */
+    private static final int TASK_COUNT = 200;
+
+    /** 原来的映射：每行按product_type_id嵌套查询工单类型 */
+    private static final String LEGACY_MAPPER = "<?xml version=\"1.0\" encoding=\"UTF-8\" ?>"
+            + "<!DOCTYPE mapper PUBLIC \"-//mybatis.org//DTD Mapper 3.0//EN\" \"http://mybatis.org/dtd/mybatis-3-mapper.dtd\">"
+            + "<mapper namespace=\"legacy.TaskMapper\">"
+            + "  <resultMap type=\"TaskVo\" id=\"TaskVoResult\" extends=\"com.dkd.manage.mapper.TaskMapper.TaskVoResult\">"
+            + "    <association property=\"taskType\" javaType=\"TaskType\" column=\"product_type_id\""
+            + "                 select=\"com.dkd.manage.mapper.TaskTypeMapper.selectTaskTypeByTypeId\"/>"
+            + "  </resultMap>"
+            + "  <select id=\"selectTaskVoList\" resultMap=\"TaskVoResult\">"
+            + "    <include refid=\"com.dkd.manage.mapper.TaskMapper.selectTaskVo\"/>"
+            + "  </select>"
+            + "</mapper>";
+
+    private static SqlSessionFactory sqlSessionFactory;
+
+    private static final AtomicInteger statements = new AtomicInteger();
+
+    @BeforeAll
+    public static void setUp() throws Exception
+    {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:task_list;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement())
+        {
+            stmt.execute("create table tb_task_type (type_id int primary key, type_name varchar(255), type int)");
+            stmt.execute("create table tb_task (task_id bigint auto_increment primary key, task_code varchar(17), task_status int,"
+                    + " create_type int, inner_code varchar(15), user_id int, user_name varchar(100), region_id bigint,"
+                    + " `desc` text, product_type_id int, assignor_id int, addr varchar(100), version int default 0,"
+                    + " create_time datetime, update_time datetime)");
+            for (int i = 1; i <= TYPE_COUNT; i++)
+            {
+                stmt.execute("insert into tb_task_type values (" + i + ", '类型" + i + "', " + (i <= 2 ? 1 : 2) + ")");
+            }
+            for (int i = 1; i <= TASK_COUNT; i++)
+            {
+                stmt.execute("insert into tb_task (task_code, task_status, create_type, inner_code, product_type_id, create_time)"
+                        + " values ('T" + i + "', 1, 1, 'A" + (i % 20) + "', " + (i % TYPE_COUNT + 1) + ", now())");
+            }
+        }
+
+        Configuration configuration = new Configuration(new Environment("test", new JdbcTransactionFactory(), dataSource));
+        configuration.setMapUnderscoreToCamelCase(true);
+        configuration.getTypeAliasRegistry().registerAliases("com.dkd.manage.domain");
+        configuration.getTypeAliasRegistry().registerAliases("com.dkd.manage.domain.vo");
+        Properties pageProperties = new Properties();
+        pageProperties.setProperty("helperDialect", "mysql");
+        PageInterceptor pageInterceptor = new PageInterceptor();
+        pageInterceptor.setProperties(pageProperties);
+        configuration.addInterceptor(pageInterceptor);
+        configuration.addInterceptor(new StatementCounter());
+        parse(configuration, "mapper/manage/TaskTypeMapper.xml", Resources.getResourceAsStream("mapper/manage/TaskTypeMapper.xml"));
+        parse(configuration, "mapper/manage/TaskMapper.xml", Resources.getResourceAsStream("mapper/manage/TaskMapper.xml"));
+        parse(configuration, "legacy/TaskMapper.xml", new ByteArrayInputStream(LEGACY_MAPPER.getBytes(StandardCharsets.UTF_8)));
+        sqlSessionFactory = new SqlSessionFactoryBuilder().build(configuration);
+    }
+
+    @Test
+    public void pageIssuesOneStatement()
+    {
+        for (int pageSize : new int[] { 10, 50, 100 })
+        {
+            assertEquals(1 + TYPE_COUNT, countLegacyPage(pageSize));
+            assertEquals(1, countPage(pageSize));
+        }
+    }
+
+    /**
+     * 原映射：列表查询 + 每个不同的工单类型一次嵌套查询（同一会话内相同参数命中一级缓存）
+     */
+    private int countLegacyPage(int pageSize)
+    {
+        try (SqlSession session = sqlSessionFactory.openSession())
+        {
+            statements.set(0);
+            PageHelper.startPage(1, pageSize, false);
+            List<TaskVo> page = session.selectList("legacy.TaskMapper.selectTaskVoList", new Task());
+            assertEquals(pageSize, page.size());
+            assertNotNull(page.get(0).getTaskType());
+            return statements.get();
+        }
+    }
+
+    /**
+     * 现在的映射：只有列表查询，工单类型由Service另行填充
+     */
+    private int countPage(int pageSize)
+    {
+        try (SqlSession session = sqlSessionFactory.openSession())
+        {
+            statements.set(0);
+            PageHelper.startPage(1, pageSize, false);
+            List<TaskVo> page = session.getMapper(TaskMapper.class).selectTaskVoList(new Task());
+            assertEquals(pageSize, page.size());
+            assertNull(page.get(0).getTaskType());
+            return statements.get();
+        }
+    }
+
+    private static void parse(Configuration configuration, String resource, InputStream in) throws Exception
+    {
+        try (InputStream is = in)
+        {
+            new XMLMapperBuilder(is, configuration, resource, configuration.getSqlFragments()).parse();
+        }
+    }
+
+    /**
+     * 统计实际预编译的语句数（一级缓存命中不计）
+     */
+    @Intercepts(@Signature(type = StatementHandler.class, method = "prepare", args = { Connection.class, Integer.class }))
+    private static class StatementCounter implements Interceptor
+    {
+        @Override
+        public Object intercept(Invocation invocation) throws Throwable
+        {
+            statements.incrementAndGet();
+            return invocation.proceed();
+        }
+
+        @Override
+        public Object plugin(Object target)
+        {
+            return Plugin.wrap(target, this);
+        }
+
+        @Override
+        public void setProperties(Properties properties)
+        {
+        }
+    }
+}
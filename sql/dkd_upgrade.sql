@@ -0,0 +1,209 @@
+-- ----------------------------
+-- 帝可得业务库增量脚本（按功能依次追加，在业务库上执行）
+-- ----------------------------
+
+
+-- ----------------------------
+-- 1、订单按天汇总表
+-- ----------------------------
+drop table if exists tb_order_stats_day;
+create table tb_order_stats_day (
+  id                bigint(20)      not null auto_increment    comment '主键',
+  stat_time         date            not null                   comment '统计日期',
+  inner_code        varchar(15)     not null default ''        comment '机器编号',
+  sku_id            bigint(20)      not null default 0         comment '商品id',
+  node_id           bigint(20)      not null default 0         comment '点位id',
+  region_id         bigint(20)      not null default 0         comment '区域id',
+  partner_id        bigint(20)      not null default 0         comment '合作商id',
+  order_count       int(11)         not null default 0         comment '订单数',
+  paid_count        int(11)         not null default 0         comment '支付完成订单数',
+  success_count     int(11)         not null default 0         comment '出货成功订单数',
+  paid_amount       bigint(20)      not null default 0         comment '支付金额（分）',
+  bill              bigint(20)      not null default 0         comment '合作商账单金额（分）',
+  primary key (id),
+  unique key uk_stats_day (stat_time, inner_code, sku_id, node_id, region_id, partner_id),
+  key idx_stats_day_partner (partner_id, stat_time),
+  key idx_stats_day_region (region_id, stat_time)
+) engine=innodb comment = '订单按天汇总表';
+
+-- ----------------------------
+-- 2、订单按小时汇总表
+-- ----------------------------
+drop table if exists tb_order_stats_hour;
+create table tb_order_stats_hour (
+  id                bigint(20)      not null auto_increment    comment '主键',
+  stat_time         datetime        not null                   comment '统计小时',
+  inner_code        varchar(15)     not null default ''        comment '机器编号',
+  sku_id            bigint(20)      not null default 0         comment '商品id',
+  node_id           bigint(20)      not null default 0         comment '点位id',
+  region_id         bigint(20)      not null default 0         comment '区域id',
+  partner_id        bigint(20)      not null default 0         comment '合作商id',
+  order_count       int(11)         not null default 0         comment '订单数',
+  paid_count        int(11)         not null default 0         comment '支付完成订单数',
+  success_count     int(11)         not null default 0         comment '出货成功订单数',
+  paid_amount       bigint(20)      not null default 0         comment '支付金额（分）',
+  bill              bigint(20)      not null default 0         comment '合作商账单金额（分）',
+  primary key (id),
+  unique key uk_stats_hour (stat_time, inner_code, sku_id, node_id, region_id, partner_id)
+) engine=innodb comment = '订单按小时汇总表';
+
+-- 订单列表按创建时间范围检索
+alter table tb_order add index idx_order_create_time (create_time);
+
+-- 汇总重建任务（默认暂停，按需启用）
+insert into sys_job (job_name, job_group, invoke_target, cron_expression, misfire_policy, concurrent, status, create_by, create_time, remark)
+values ('订单汇总重建', 'DEFAULT', 'orderStatsTask.rebuild', '0 30 2 * * ?', '3', '1', '1', 'admin', sysdate(), '重建昨天和今天的订单汇总');
+
+-- ----------------------------
+-- 3、游标分页（按 create_time desc, 主键 desc 续页，二级索引隐含主键列）
+-- ----------------------------
+alter table tb_task add index idx_task_create_time (create_time);
+
+-- ----------------------------
+-- 4、合作商分账结算表
+-- ----------------------------
+drop table if exists tb_partner_settlement;
+create table tb_partner_settlement (
+  id                bigint(20)      not null auto_increment    comment '主键',
+  partner_id        bigint(20)      not null                   comment '合作商id',
+  partner_name      varchar(64)     default ''                 comment '合作商名称',
+  period            varchar(7)      not null                   comment '结算周期（yyyy-MM）',
+  order_count       int(11)         not null default 0         comment '支付完成订单数',
+  order_amount      bigint(20)      not null default 0         comment '订单金额（分）',
+  bill              bigint(20)      not null default 0         comment '合作商账单金额（分）',
+  profit_ratio      int(11)         not null default 0         comment '分成比例（%）',
+  share_amount      bigint(20)      not null default 0         comment '分成金额（分）',
+  create_time       datetime                                   comment '创建时间',
+  primary key (id),
+  unique key uk_settlement_partner_period (partner_id, period),
+  key idx_settlement_period (period)
+) engine=innodb comment = '合作商分账结算表';
+
+-- 月度结算任务（默认暂停，每月1日凌晨结算上月）
+insert into sys_job (job_name, job_group, invoke_target, cron_expression, misfire_policy, concurrent, status, create_by, create_time, remark)
+values ('合作商月度结算', 'DEFAULT', 'settlementTask.settle', '0 0 3 1 * ?', '3', '1', '1', 'admin', sysdate(), '结算上一个自然月的合作商分成');
+
+-- ----------------------------
+-- 5、自动补货
+-- ----------------------------
+alter table tb_task add index idx_task_machine_type (inner_code, product_type_id, task_status);
+alter table tb_task add index idx_task_user_status (user_id, task_status);
+
+-- 自动补货任务（默认暂停，按需启用）
+insert into sys_job (job_name, job_group, invoke_target, cron_expression, misfire_policy, concurrent, status, create_by, create_time, remark)
+values ('自动补货工单', 'DEFAULT', 'supplyTask.generate', '0 0 6 * * ?', '3', '1', '1', 'admin', sysdate(), '为低于补货警戒线的售货机生成补货工单');
+
+-- ----------------------------
+-- 6、工单状态机（乐观锁版本号）
+-- ----------------------------
+alter table tb_task add column version int(11) not null default 0 comment '版本号（每次状态流转加1）' after addr;
+
+-- ----------------------------
+-- 7、同一售货机同类型未完成工单唯一
+-- ----------------------------
+-- 历史数据中同一售货机同类型的未完成工单（待处理、进行中）每组保留最新一条，其余改为取消，避免创建唯一索引失败
+update tb_task t
+  join (select inner_code, product_type_id, max(task_id) as keep_id from tb_task
+         where task_status in (1, 2) group by inner_code, product_type_id having count(*) > 1) d
+    on t.inner_code = d.inner_code and t.product_type_id = d.product_type_id and t.task_id <> d.keep_id
+   set t.task_status = 3, t.version = t.version + 1, t.update_time = sysdate()
+ where t.task_status in (1, 2);
+alter table tb_task add column open_guard varchar(64) as (case when task_status in (1, 2) then concat(inner_code, ':', product_type_id) end) stored comment '未完成工单防重标识（售货机编号:工单类型）';
+alter table tb_task add unique index uk_task_open_guard (open_guard);
+
+-- ----------------------------
+-- 8、售货机编号唯一（编号由全局序号置换生成，唯一索引防止与历史随机编号冲突）
+-- ----------------------------
+-- 历史随机编号可能重复：每组保留主键最小的一台，其余改为"D + 14位主键"（长度15，不会与8位的新旧编号冲突），
+-- 并同步该设备的货道；已有工单和订单中的编号无法区分属于哪一台，保持不变
+update tb_vending_machine v
+  join (select inner_code, min(id) as keep_id from tb_vending_machine where inner_code is not null group by inner_code having count(*) > 1) d
+    on v.inner_code = d.inner_code and v.id <> d.keep_id
+   set v.inner_code = concat('D', lpad(v.id, 14, '0'));
+update tb_channel c
+  join tb_vending_machine v on c.vm_id = v.id
+   set c.inner_code = v.inner_code
+ where c.inner_code <> v.inner_code;
+alter table tb_vending_machine add unique index uk_vm_inner_code (inner_code);
+
+-- ----------------------------
+-- 9、货道实时库存（Redis库存按售货机编号+货道编号写回）
+-- ----------------------------
+alter table tb_channel add index idx_channel_machine_code (inner_code, channel_code);
+
+-- 货道库存对账任务（默认暂停，按需启用）
+insert into sys_job (job_name, job_group, invoke_target, cron_expression, misfire_policy, concurrent, status, create_by, create_time, remark)
+values ('货道库存对账', 'DEFAULT', 'channelStockTask.reconcile', '0 0 4 * * ?', '3', '1', '1', 'admin', sysdate(), '写回实时库存并清理与数据库不一致的缓存');
+
+-- ----------------------------
+-- 10、售货机心跳与在线状态
+-- ----------------------------
+alter table tb_vending_machine add column online_status tinyint(1) not null default 0 comment '在线状态 0:离线 1:在线';
+alter table tb_vending_machine add column last_heartbeat_time datetime comment '最后心跳时间';
+alter table tb_vending_machine add index idx_vm_online_heartbeat (online_status, last_heartbeat_time);
+-- 心跳接口按clientId认证，补齐历史设备缺少的clientId（与新增设备的生成方式一致：md5(毫秒时间戳 + 设备编号)）
+update tb_vending_machine
+   set client_id = md5(concat(floor(unix_timestamp(now(3)) * 1000), inner_code))
+ where client_id is null or client_id = '';
+
+-- 售货机离线检测任务（默认暂停，按需启用）
+insert into sys_job (job_name, job_group, invoke_target, cron_expression, misfire_policy, concurrent, status, create_by, create_time, remark)
+values ('售货机离线检测', 'DEFAULT', 'vmHeartbeatTask.detectOffline', '0 * * * * ?', '3', '1', '1', 'admin', sysdate(), '心跳超时的售货机标记为离线');
+
+-- ----------------------------
+-- 11、设备和点位计数（计数保存在Redis，列表页不再关联统计）
+-- ----------------------------
+-- 计数对账任务（默认暂停，按需启用）
+insert into sys_job (job_name, job_group, invoke_target, cron_expression, misfire_policy, concurrent, status, create_by, create_time, remark)
+values ('设备点位计数对账', 'DEFAULT', 'fleetCounterTask.verify', '0 30 4 * * ?', '3', '1', '1', 'admin', sysdate(), '按数据库重新统计设备和点位数量并修正计数');
+
+-- ----------------------------
+-- 12、冗余字段同步任务（点位、区域、角色修改后分批同步到设备、工单、员工，可断点续跑）
+-- ----------------------------
+drop table if exists tb_propagation_job;
+create table tb_propagation_job (
+  id                bigint(20)      not null auto_increment    comment '主键',
+  job_type          varchar(20)     not null                   comment '任务类型（node:点位 region:区域 role:角色）',
+  source_id         bigint(20)      not null                   comment '来源id',
+  revision          bigint(20)      not null default 1         comment '修订号（来源每次修改加1）',
+  last_id           bigint(20)      not null default 0         comment '已同步到的目标行主键',
+  processed_count   bigint(20)      not null default 0         comment '本轮已同步行数',
+  status            tinyint(1)      not null default 0         comment '状态（0:待执行 1:执行中 2:已完成 3:失败）',
+  error_msg         varchar(500)    default null               comment '失败原因',
+  create_time       datetime                                   comment '创建时间',
+  update_time       datetime                                   comment '更新时间',
+  primary key (id),
+  unique key uk_propagation_source (job_type, source_id),
+  key idx_propagation_status (status, update_time)
+) engine=innodb comment = '冗余字段同步任务表';
+
+-- 按来源分批读取目标行（二级索引隐含主键列）
+alter table tb_vending_machine add index idx_vm_node (node_id);
+alter table tb_emp add index idx_emp_region (region_id);
+alter table tb_emp add index idx_emp_role (role_id);
+
+-- 同步任务续跑（默认启用：执行失败或进程中断的任务由此从断点继续）
+insert into sys_job (job_name, job_group, invoke_target, cron_expression, misfire_policy, concurrent, status, create_by, create_time, remark)
+values ('冗余字段同步续跑', 'DEFAULT', 'propagationTask.resume', '0 */5 * * * ?', '3', '1', '0', 'admin', sysdate(), '从断点继续执行失败和中断的冗余字段同步任务');
+
+-- ----------------------------
+-- 13、商品导入去重（按商品名称查询已有商品的品牌）
+-- ----------------------------
+alter table tb_sku add index idx_sku_name (sku_name);
+
+-- ----------------------------
+-- 14、订单号唯一（批量提交按订单号幂等，重试不会重复落库和重复汇总）
+-- ----------------------------
+-- 历史数据中重复的订单号保留最早一条，其余追加主键后缀，避免创建唯一索引失败
+update tb_order o
+  join (select order_no, min(id) as keep_id from tb_order where order_no is not null group by order_no having count(*) > 1) d
+    on o.order_no = d.order_no and o.id <> d.keep_id
+   set o.order_no = concat(o.order_no, '-', o.id);
+alter table tb_order add unique index uk_order_no (order_no);
+
+-- ----------------------------
+-- 15、未完成工单防重对账（启动时只补充占位，过期占位由此清理）
+-- ----------------------------
+-- 默认启用：占位释放失败（如提交后Redis不可用）时，该设备无法再新建同类型工单，需由此清理
+insert into sys_job (job_name, job_group, invoke_target, cron_expression, misfire_policy, concurrent, status, create_by, create_time, remark)
+values ('未完成工单防重对账', 'DEFAULT', 'taskGuardTask.reconcile', '0 */10 * * * ?', '3', '1', '0', 'admin', sysdate(), '补充缺少的防重占位，清理已没有未完成工单的过期占位');